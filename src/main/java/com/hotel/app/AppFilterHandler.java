@@ -1,21 +1,30 @@
 package com.hotel.app;
 
-import com.hotel.utilities.DbConfig;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hotel.catalog.FilterIndex;
+import com.hotel.catalog.Listing;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.utilities.JsonStreamWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import java.io.*;
-import java.sql.*;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.function.Predicate;
 
 public class AppFilterHandler implements HttpHandler {
 
-	private final DbConfig dbConfig;
+    private static final int LIMIT = 100;
 
-    // ✅ Inject DbConfig via constructor
-    public AppFilterHandler(DbConfig dbConfig) {
-        this.dbConfig = dbConfig;
+	private final FilterIndex filterIndex;
+	private final AvailabilityCalendar calendar;
+
+    // Filters run against bitmaps over the in-memory catalog
+    public AppFilterHandler(FilterIndex filterIndex, AvailabilityCalendar calendar) {
+        this.filterIndex = filterIndex;
+        this.calendar = calendar;
     }
 
     @Override
@@ -62,65 +71,54 @@ public class AppFilterHandler implements HttpHandler {
                 sortBy = filters.getString("sortBy");
             }
 
-            JSONArray result = fetchHotelsWithFilters(filters, sortBy);
-            sendJsonResponse(exchange, result.toString(), 200);
+            List<Listing> result = fetchHotelsWithFilters(filters, sortBy);
+
+            try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+                gen.writeStartArray();
+                for (Listing hotel : result) {
+                    gen.writeStartObject();
+                    for (Map.Entry<String, Object> column : hotel.columns().entrySet()) {
+                        JsonStreamWriter.writeField(gen, column.getKey(), column.getValue());
+                    }
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, "Error: " + e.getMessage(), 500);
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                sendResponse(exchange, "Error: " + e.getMessage(), 500);
+            }
         }
     }
 
-    private JSONArray fetchHotelsWithFilters(JSONObject filters, String sortBy) throws SQLException {
-        JSONArray hotelsArray = new JSONArray();
-        StringBuilder baseQuery = new StringBuilder("SELECT * FROM Hotels_info WHERE 1=1");
-        List<Object> params = new ArrayList<>();
+    // Same filters as the old dynamic SQL over Hotels_info, evaluated as bitmap AND/OR over the catalog
+    private List<Listing> fetchHotelsWithFilters(JSONObject filters, String sortBy) {
+        FilterIndex.Bitmaps index = filterIndex.current();
+        BitSet hits = index.all(); // Status active only: the catalog holds Active listings only
 
         // City filter (flexible: check City and State)
         if (filters.has("city") && !filters.optString("city").trim().isEmpty()) {
-            baseQuery.append(" AND (LOWER(City) LIKE ? OR LOWER(State) LIKE ?)");
-            String cityLike = "%" + filters.getString("city").toLowerCase() + "%";
-            params.add(cityLike);
-            params.add(cityLike);
+            hits.and(index.place(filters.getString("city")));
         }
 
         // Hotel Type filter
         if (filters.has("hotelType") && !filters.optString("hotelType").trim().isEmpty()) {
-            baseQuery.append(" AND LOWER(Hotel_Type) = ?");
-            params.add(filters.getString("hotelType").toLowerCase());
+            hits.and(index.hotelType(filters.getString("hotelType")));
         }
 
         // Room Type filter
         if (filters.has("roomType") && !filters.optString("roomType").trim().isEmpty()) {
-            baseQuery.append(" AND LOWER(Room_Type) = ?");
-            params.add(filters.getString("roomType").toLowerCase());
-        }
-
-        // Price Range filter
-        if (filters.has("minPrice") && filters.has("maxPrice")) {
-            double minPrice = filters.getDouble("minPrice");
-            double maxPrice = filters.getDouble("maxPrice");
-            baseQuery.append(
-                    " AND (CAST(REPLACE(REPLACE(Room_Price,'₹',''),',','') AS DECIMAL(10,2)) BETWEEN ? AND ?)"
-            );
-            params.add(minPrice);
-            params.add(maxPrice);
-        }
-
-        // Rating filter (numeric)
-        if (filters.has("rating")) {
-            double rating = filters.getDouble("rating");
-            baseQuery.append(" AND Rating >= ?");
-            params.add(rating);
+            hits.and(index.roomType(filters.getString("roomType")));
         }
 
         // Amenities filter: expects JSON array of strings
         if (filters.has("amenities")) {
             try {
-                org.json.JSONArray amenities = filters.getJSONArray("amenities");
+                JSONArray amenities = filters.getJSONArray("amenities");
                 for (int i = 0; i < amenities.length(); i++) {
-                    baseQuery.append(" AND LOWER(Amenities) LIKE ?");
-                    params.add("%" + amenities.getString(i).toLowerCase() + "%");
+                    hits.and(index.amenity(amenities.getString(i)));
                 }
             } catch (Exception ignored) {
             }
@@ -128,75 +126,80 @@ public class AppFilterHandler implements HttpHandler {
 
         // Partner ID / Hotel ID
         if (filters.has("partnerId") && !filters.optString("partnerId").isEmpty()) {
-            baseQuery.append(" AND Partner_ID = ?");
-            params.add(filters.getString("partnerId"));
+            hits.and(index.partner(filters.getString("partnerId")));
         }
         if (filters.has("hotelId") && !filters.optString("hotelId").isEmpty()) {
-            baseQuery.append(" AND Hotel_ID = ?");
-            params.add(filters.getString("hotelId"));
+            hits.and(index.hotel(filters.getString("hotelId")));
         }
 
         // Available rooms only (optional)
         if (filters.has("availableOnly") && filters.optBoolean("availableOnly", false)) {
-            baseQuery.append(" AND Available_Rooms > 0");
+            hits.and(index.available());
         }
 
         // Customization filter (optional)
         if (filters.has("customization")) {
             String cust = filters.optString("customization");
             if (!cust.isEmpty()) {
-                baseQuery.append(" AND Customization = ?");
-                params.add(cust);
+                hits.and(index.customization(cust));
             }
         }
 
-        // Status active only
-        baseQuery.append(" AND Status = 'Active'");
-
-        // Sorting
-        String orderClause = "";
-        if (sortBy != null) {
-            switch (sortBy) {
-                case "price_lowest":
-                    orderClause = " ORDER BY CAST(REPLACE(REPLACE(Room_Price,'₹',''),',','') AS DECIMAL(10,2)) ASC";
-                    break;
-                case "price_highest":
-                    orderClause = " ORDER BY CAST(REPLACE(REPLACE(Room_Price,'₹',''),',','') AS DECIMAL(10,2)) DESC";
-                    break;
-                case "top_rated":
-                    orderClause = " ORDER BY Rating DESC";
-                    break;
-                default:
-                    orderClause = "";
-            }
+        // Price Range filter: binary search over the price index
+        if (filters.has("minPrice") && filters.has("maxPrice")) {
+            hits.and(index.priceBetween(filters.getDouble("minPrice"), filters.getDouble("maxPrice")));
         }
 
-        String finalQuery = baseQuery.toString() + orderClause + " LIMIT 100"; // limit for performance
-
-        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(finalQuery)) {
+        // Rating filter (numeric), checked only on rows that survived the bitmaps
+        Predicate<Listing> check = h -> true;
+        if (filters.has("rating")) {
+            double rating = filters.getDouble("rating");
+            check = h -> h.getNumber("Rating") != null && h.getNumber("Rating") >= rating;
+        }
+
+        // Date-range availability (optional): free rooms on every night of the stay
+        if (filters.has("checkIn") && filters.has("checkOut")) {
+            LocalDate checkIn = LocalDate.parse(filters.getString("checkIn"));
+            LocalDate checkOut = LocalDate.parse(filters.getString("checkOut"));
+            int rooms = filters.optInt("rooms", 1);
+            check = check.and(h -> calendar.isAvailable(h.getId(), checkIn, checkOut, rooms));
+        }
+
+        // Sorting (NULLs first ascending, last descending, as MySQL orders them); limit for payload size
+        switch (sortBy == null ? "" : sortBy) {
+            case "price_lowest":
+                return index.byPrice(hits, check, true, LIMIT);
+            case "price_highest":
+                return index.byPrice(hits, check, false, LIMIT);
+            case "top_rated":
+                return topRated(index, hits, check);
+            default:
+                List<Listing> matches = new ArrayList<>();
+                for (int i = hits.nextSetBit(0); i >= 0 && matches.size() < LIMIT; i = hits.nextSetBit(i + 1)) {
+                    Listing hotel = index.row(i);
+                    if (check.test(hotel)) matches.add(hotel);
+                }
+                return matches;
+        }
+    }
 
-            for (int i = 0; i < params.size(); i++) {
-                stmt.setObject(i + 1, params.get(i));
-            }
+    // Best LIMIT rows by rating (NULLs last, ties in table order) via a bounded min-heap
+    private List<Listing> topRated(FilterIndex.Bitmaps index, BitSet hits, Predicate<Listing> check) {
+        Comparator<Integer> better = Comparator
+                .comparing((Integer i) -> index.row(i).getNumber("Rating"), Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(Comparator.reverseOrder());
+        PriorityQueue<Integer> heap = new PriorityQueue<>(LIMIT + 1, better); // head = worst kept row
 
-            ResultSet rs = stmt.executeQuery();
-            ResultSetMetaData meta = rs.getMetaData();
-            int columnCount = meta.getColumnCount();
-
-            while (rs.next()) {
-                JSONObject hotel = new JSONObject();
-                for (int i = 1; i <= columnCount; i++) {
-                    String column = meta.getColumnLabel(i);
-                    Object value = rs.getObject(column);
-                    if (value == null) hotel.put(column, JSONObject.NULL);
-                    else hotel.put(column, value);
-                }
-                hotelsArray.put(hotel);
-            }
+        for (int i = hits.nextSetBit(0); i >= 0; i = hits.nextSetBit(i + 1)) {
+            if (!check.test(index.row(i))) continue;
+            heap.offer(i);
+            if (heap.size() > LIMIT) heap.poll();
         }
 
-        return hotelsArray;
+        List<Listing> top = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) top.add(index.row(heap.poll()));
+        Collections.reverse(top);
+        return top;
     }
 
     private void sendJsonResponse(HttpExchange exchange, String response, int statusCode) throws IOException {
@@ -1,7 +1,22 @@
 package com.hotel.app;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.catalog.CatalogService;
+import com.hotel.coupon.Carts;
+import com.hotel.coupon.CouponUsage;
+import com.hotel.coupon.CouponUsage.Redemption;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.Outbox;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.inventory.AvailabilityCalendar.Claim;
+import com.hotel.inventory.AvailabilityCalendar.Stay;
+import com.hotel.inventory.HoldExpiryService;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.PriceParser;
+import com.hotel.wallet.WalletService;
+import com.hotel.wallet.WalletService.Debit;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.BufferedReader;
@@ -11,27 +26,34 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.Map;
-import java.util.Random;
-import java.util.UUID;
+import java.util.concurrent.locks.Lock;
 import java.util.stream.Collectors;
 
 public class BookingHandler implements HttpHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = Json.MAPPER;
     private final DbConfig dbConfig;
-
-    public BookingHandler(DbConfig dbConfig) {
+    private final AvailabilityCalendar calendar;
+    private final IdService ids;
+    private final HoldExpiryService holds;
+    private final WalletService wallets;
+    private final CouponUsage couponUsage;
+    private final CatalogService catalog;
+
+    public BookingHandler(DbConfig dbConfig, AvailabilityCalendar calendar, IdService ids,
+                          HoldExpiryService holds, WalletService wallets, CouponUsage couponUsage,
+                          CatalogService catalog) {
         this.dbConfig = dbConfig;
+        this.calendar = calendar;
+        this.ids = ids;
+        this.holds = holds;
+        this.wallets = wallets;
+        this.couponUsage = couponUsage;
+        this.catalog = catalog;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        addCorsHeaders(exchange);
-        if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         String path = exchange.getRequestURI().getPath();
         try {
             if (path.equals("/booking") && exchange.getRequestMethod().equalsIgnoreCase("POST")) {
@@ -60,7 +82,7 @@ public class BookingHandler implements HttpHandler {
         }
 
         boolean isPgMode = data.containsKey("Selected_Room_Type") || data.containsKey("Monthly_Price");
-        String bookingId = generateBookingId();
+        String bookingId = ids.bookingId();
         String userId = str(data.get("User_ID"));
 
         // Prices
@@ -86,7 +108,7 @@ public class BookingHandler implements HttpHandler {
             if (isOffline) {
                 transactionId = "NA";
             } else {
-                transactionId = "TXN" + System.currentTimeMillis();
+                transactionId = ids.transactionId();
             }
         }
 
@@ -99,20 +121,79 @@ public class BookingHandler implements HttpHandler {
         String couponCode = str(data.get("Coupon_Code"));
         double couponDiscount = toDouble(data.get("Coupon_Discount_Amount"));
 
+        java.sql.Date checkIn = parseSqlDate(data.get("Check_In_Date"));
+        java.sql.Date checkOut = parseSqlDate(data.get("Check_Out_Date"));
+        int roomsBooked = isPgMode ? 1 : toInt(data.get("Total_Rooms_Booked"));
+
+        // Claim the rooms in memory before writing anything; fits() below confirms against bookings_info
+        Stay stay = checkIn != null && checkOut != null && checkOut.after(checkIn)
+                ? new Stay(str(data.get("Hotel_ID")), checkIn.toLocalDate(), checkOut.toLocalDate(), Math.max(1, roomsBooked))
+                : null;
+        Claim claim = stay == null ? null : calendar.reserve(bookingId, stay);
+        if (stay != null && claim == null) {
+            sendResponse(exchange, 409, json("error", "No rooms available for the selected dates"));
+            return;
+        }
+
+        // Unpaid online bookings hold their rooms only until the hold runs out
+        Timestamp holdExpiresAt = !isOffline && !"Paid".equals(paymentStatus) ? holds.expiresAt() : null;
+
         double actualWalletDebited = 0;
         Connection conn = null;
+        boolean committed = false;
+        Lock walletLock = null;   // held from before the connection is borrowed until it is returned
+        Redemption redemption = null;
+        boolean useWallet = !isOffline && "Yes".equalsIgnoreCase(walletFlagRequest) && walletRequested > 0 && !userId.isBlank();
 
         try {
+            // Coupon quota before the connection: refilling this server's lease borrows one of its own
+            if (!isOffline && !couponCode.isEmpty()) {
+                redemption = couponUsage.claim(couponCode);
+                if (!redemption.claimed()) {
+                    sendResponse(exchange, 409, json("error", redemption.message()));
+                    return;
+                }
+            }
+
+            // Stripe lock first: a thread waiting for it must not be sitting on a pooled connection
+            if (useWallet) {
+                walletLock = wallets.lockFor(userId);
+                walletLock.lock();
+            }
             conn = dbConfig.getCustomerDataSource().getConnection();
             conn.setAutoCommit(false);
 
+            // Locks the listing until commit, so no other server can sell the same rooms meanwhile
+            if (!calendar.fits(conn, stay, null)) {
+                conn.rollback();
+                sendResponse(exchange, 409, json("error", "No rooms available for the selected dates"));
+                return;
+            }
+
             // STRICT RULE: Wallet and Coupon allowed ONLY for Online payments
             if (!isOffline) {
-                if ("Yes".equalsIgnoreCase(walletFlagRequest) && walletRequested > 0 && !userId.isBlank()) {
+                if (useWallet) {
                     actualWalletDebited = handleWalletUsage(conn, userId, bookingId, walletRequested, originalAmount);
                 }
                 if (!couponCode.isEmpty()) {
-                    handleCouponUsage(conn, userId, couponCode);
+                    String platform = str(data.get("Platform"));
+                    redemption = couponUsage.redeem(conn, userId, redemption, Carts.of(catalog, conn, userId,
+                            platform.isEmpty() ? null : platform, str(data.get("Hotel_ID")),
+                            isPgMode ? "PG" : str(data.get("Hotel_Type")), null,
+                            stay == null ? null : stay.checkIn(), stay == null ? null : stay.checkOut(), originalAmount));
+                    if (!redemption.redeemed()) {
+                        conn.rollback();
+                        sendResponse(exchange, 409, json("error", redemption.message()));
+                        return;
+                    }
+                    // The client's discount is only taken up to what the coupon gives on this amount
+                    double allowed = Math.min(originalAmount, redemption.coupon().discountOn(originalAmount));
+                    if (couponDiscount > allowed + 0.01) {
+                        conn.rollback();
+                        sendResponse(exchange, 409, json("error", "Coupon discount has changed, please apply the coupon again"));
+                        return;
+                    }
+                    couponDiscount = Math.max(0, couponDiscount);
                 }
             } else {
                 // Force reset if UI accidentally sent them for offline
@@ -129,9 +210,9 @@ public class BookingHandler implements HttpHandler {
                   Original_Amount, Final_Payable_Amount, Amount_Paid_Online, Due_Amount_At_Hotel,
                   Payment_Method_Type, Paid_Via, Payment_Status, Transaction_ID,
                   Wallet_Used, Wallet_Amount_Deducted, Coupon_Code, Coupon_Discount_Amount,
-                  Room_Type, Room_Price_Per_Month, Months, Hotel_Address, Hotel_Contact
+                  Room_Type, Room_Price_Per_Month, Months, Hotel_Address, Hotel_Contact, Hold_Expires_At
                 )
-                VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
+                VALUES (?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?,?)
                 """;
 
             try (PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -143,8 +224,8 @@ public class BookingHandler implements HttpHandler {
                 ps.setString(6, str(data.get("Guest_Name")));
                 ps.setString(7, str(data.get("Email")));
                 ps.setString(8, userId);
-                ps.setDate(9, parseSqlDate(data.get("Check_In_Date")));
-                ps.setDate(10, parseSqlDate(data.get("Check_Out_Date")));
+                ps.setDate(9, checkIn);
+                ps.setDate(10, checkOut);
 
                 if (!isPgMode) {
                     ps.setInt(11, toInt(data.get("Guest_Count")));
@@ -181,11 +262,18 @@ public class BookingHandler implements HttpHandler {
                 ps.setInt(33, toInt(data.getOrDefault("Months", 1)));
                 ps.setString(34, str(data.get("Hotel_Address")));
                 ps.setString(35, str(data.get("Hotel_Contact")));
+                ps.setTimestamp(36, holdExpiresAt);
 
                 ps.executeUpdate();
             }
 
+            Outbox.append(conn, BookingEvent.Type.CREATED, bookingId);
+
             conn.commit();
+            committed = true;
+            calendar.committed(claim);
+            if (redemption != null) couponUsage.committed(redemption);
+            if (holdExpiresAt != null) holds.hold(bookingId, holdExpiresAt);
             sendResponse(exchange, 200, json("message", "Success", "booking_id", bookingId));
 
         } catch (Exception e) {
@@ -193,62 +281,20 @@ public class BookingHandler implements HttpHandler {
             e.printStackTrace();
             sendResponse(exchange, 500, json("error", e.getMessage()));
         } finally {
+            if (!committed) calendar.rolledBack(claim);
+            if (!committed && redemption != null) couponUsage.rolledBack(redemption);
             if (conn != null) try { conn.close(); } catch (SQLException ignored) {}
+            if (walletLock != null) walletLock.unlock();
         }
     }
 
     private double handleWalletUsage(Connection conn, String userId, String bId, double req, double total) throws SQLException {
-        double maxAllowed = total * 0.5;
-        double finalReq = Math.min(req, maxAllowed);
-        double balance = 0;
-        String wId = null;
-        try (PreparedStatement ps = conn.prepareStatement("SELECT wallet_id, balance FROM wallets WHERE user_id=?")) {
-            ps.setString(1, userId);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                wId = rs.getString("wallet_id");
-                balance = rs.getDouble("balance");
-            }
-        }
-        if (wId == null || balance <= 0) return 0;
-        double debit = Math.min(balance, finalReq);
-        if (debit <= 0) return 0;
-        try (PreparedStatement ps = conn.prepareStatement("UPDATE wallets SET balance = balance - ? WHERE wallet_id = ?")) {
-            ps.setDouble(1, debit);
-            ps.setString(2, wId);
-            ps.executeUpdate();
-        }
-        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO wallet_transactions (txn_id, wallet_id, type, amount, direction, reference_id, status, description, balance_after_txn) VALUES (?,?,?,?,?,?,?,?,?)")) {
-            ps.setString(1, UUID.randomUUID().toString());
-            ps.setString(2, wId);
-            ps.setString(3, "booking_payment");
-            ps.setDouble(4, debit);
-            ps.setString(5, "debit");
-            ps.setString(6, bId);
-            ps.setString(7, "success");
-            ps.setString(8, "Booking " + bId);
-            ps.setDouble(9, balance - debit);
-            ps.executeUpdate();
-        }
-        return debit;
-    }
-
-    private void handleCouponUsage(Connection conn, String uId, String code) throws SQLException {
-        String cId = null;
-        try (PreparedStatement ps = conn.prepareStatement("SELECT coupon_id FROM coupons WHERE coupon_code=?")) {
-            ps.setString(1, code);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) cId = rs.getString("coupon_id");
-        }
-        if (cId == null) return;
-        String sql = "INSERT INTO coupon_usage (usage_id, coupon_id, user_id, usage_count) VALUES (?,?,?,1) " +
-                     "ON DUPLICATE KEY UPDATE usage_count = usage_count + 1, last_used_at = NOW()";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, UUID.randomUUID().toString());
-            ps.setString(2, cId);
-            ps.setString(3, uId);
-            ps.executeUpdate();
-        }
+        // At most half of the booking can be paid from the wallet
+        long maxPaise = Math.round(Math.min(req, total * 0.5) * 100);
+        Debit debit = wallets.debitUpTo(conn, userId, maxPaise);
+        if (debit == null) return 0;
+        wallets.recordDebit(conn, debit, "booking_payment", bId, "Booking " + bId);
+        return PriceParser.toRupees(debit.amountPaise());
     }
 
     private void handleUpdatePayment(HttpExchange exchange) throws IOException {
@@ -267,7 +313,6 @@ public class BookingHandler implements HttpHandler {
         }
     }
 
-    private String generateBookingId() { return "BKG" + (100000 + new Random().nextInt(900000)); }
     private double toDouble(Object o) { if (o == null) return 0; try { return Double.parseDouble(o.toString().replace(",", "")); } catch (Exception e) { return 0; } }
     private int toInt(Object o) { if (o == null) return 0; try { return Integer.parseInt(o.toString()); } catch (Exception e) { return 0; } }
     private String str(Object o) { return o == null ? "" : o.toString().trim(); }
@@ -300,12 +345,6 @@ public class BookingHandler implements HttpHandler {
         try (OutputStream os = ex.getResponseBody()) { os.write(bytes); }
     }
 
-    private void addCorsHeaders(HttpExchange ex) {
-        ex.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        ex.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-        ex.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-    }
-
     private String json(String k, String v) { return "{\"" + k + "\":\"" + v + "\"}"; }
     private String json(String k, String v, String k2, String v2) { return "{\"" + k + "\":\"" + v + "\",\"" + k2 + "\":\"" + v2 + "\"}"; }
 }
\ No newline at end of file
@@ -1,14 +1,27 @@
 package com.hotel.app;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.BookingStateMachine;
+import com.hotel.booking.BookingStateMachine.Outcome;
+import com.hotel.booking.BookingStateMachine.Result;
+import com.hotel.booking.BookingStateMachine.Status;
+import com.hotel.booking.BookingStateMachine.Transition;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.Outbox;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.inventory.AvailabilityCalendar.Claim;
+import com.hotel.inventory.AvailabilityCalendar.Stay;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.JsonStreamWriter;
+import com.hotel.utilities.KeysetCursor;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -16,12 +29,14 @@ import java.util.*;
 
 public class BookingHistoryHandler implements HttpHandler {
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectMapper objectMapper = Json.MAPPER;
 
     private final DbConfig dbConfig;
+    private final AvailabilityCalendar calendar;
 
-    public BookingHistoryHandler(DbConfig dbConfig) {
+    public BookingHistoryHandler(DbConfig dbConfig, AvailabilityCalendar calendar) {
         this.dbConfig = dbConfig;
+        this.calendar = calendar;
     }
 
     @Override
@@ -46,9 +61,57 @@ public class BookingHistoryHandler implements HttpHandler {
     }
 
     // -------------------- GET HISTORY --------------------
+
+    /*
+     * The columns the booking-history screens render. Listing them (instead of SELECT *)
+     * keeps the payload and the rows MySQL reads per page small.
+     */
+    private static final String HISTORY_COLUMNS = """
+            Booking_ID, Partner_ID, Hotel_ID, Hotel_Name, Hotel_Type, Guest_Name, Email, User_ID,
+            Check_In_Date, Check_Out_Date, Guest_Count, Adults, Children, Total_Rooms_Booked,
+            Total_Days_at_Stay, Room_Price_Per_Day, All_Days_Price, GST, Original_Amount,
+            Final_Payable_Amount, Amount_Paid_Online, Due_Amount_At_Hotel, Payment_Method_Type,
+            Paid_Via, Transaction_ID, Hotel_Address, Booking_Status, Hotel_Contact, Payment_Status,
+            Refund_Status, Wallet_Used, Wallet_Amount_Deducted, Coupon_Code, Coupon_Discount_Amount,
+            Room_Type, Room_Price_Per_Month, Months
+            """;
+
+    // UPCOMING: check-in today or later, still Pending / Confirmed
+    private static final String UPCOMING = """
+            Check_In_Date >= ? AND UPPER(TRIM(Booking_Status)) IN ('PENDING', 'CONFIRMED')""";
+
+    // PAST: checked out before today, or no checkout and checked in before today, or Completed / Cancelled
+    private static final String PAST = """
+            (Check_Out_Date < ? OR (Check_Out_Date IS NULL AND Check_In_Date < ?) \
+            OR UPPER(TRIM(Booking_Status)) IN ('COMPLETED', 'CANCELLED'))""";
+
+    // Rows after the cursor in ORDER BY Check_In_Date DESC, Booking_ID DESC (NULL dates sort last)
+    private static final String AFTER_DATE = """
+            (Check_In_Date < ? OR (Check_In_Date = ? AND Booking_ID < ?) OR Check_In_Date IS NULL)""";
+    private static final String AFTER_NULL_DATE = "(Check_In_Date IS NULL AND Booking_ID < ?)";
+
+    private static final String HISTORY_ORDER = " ORDER BY Check_In_Date DESC, Booking_ID DESC LIMIT ?";
+
+    private static final int DEFAULT_PAGE = 50;
+    private static final int MAX_PAGE = 200;
+
+    /**
+     * One page of a user's past or upcoming bookings, newest check-in first.
+     *
+     * The tab and the cursor are applied in SQL. Matching on email OR user id is done as a
+     * UNION of two branches so that each branch can use its own index
+     * ((Email, Check_In_Date, Booking_ID) and (User_ID, Check_In_Date, Booking_ID)) and stop
+     * after one page:
+     * <pre>
+     *   CREATE INDEX idx_bookings_email_checkin ON bookings_info (Email, Check_In_Date, Booking_ID);
+     *   CREATE INDEX idx_bookings_user_checkin  ON bookings_info (User_ID, Check_In_Date, Booking_ID);
+     * </pre>
+     * Query params: email and/or userId, includeUpcoming, limit (default 50, max 200), cursor.
+     * The cursor for the next page is returned in the X-Next-Cursor header.
+     */
     private void handleBookingHistory(HttpExchange exchange) throws IOException {
 
-        Map<String, String> params = decodeParams(exchange.getRequestURI().getQuery());
+        Map<String, String> params = Router.queryParams(exchange);
 
         String email = params.getOrDefault("email", "").trim();
         String userId = params.getOrDefault("userId", "").trim();
@@ -61,80 +124,97 @@ public class BookingHistoryHandler implements HttpHandler {
             return;
         }
 
-        String sql = """
-                SELECT * FROM Bookings_Info
-                WHERE (Email=? OR User_ID=?)
-                ORDER BY Check_In_Date DESC
-                """;
+        int limit;
+        String[] cursor;
+        LocalDate cursorDate = null;
+        try {
+            limit = KeysetCursor.limit(params.get("limit"), DEFAULT_PAGE, MAX_PAGE);
+            cursor = KeysetCursor.decode(params.get("cursor"), 2);
+            if (cursor != null && !cursor[0].isEmpty()) cursorDate = LocalDate.parse(cursor[0]);
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException e) {
+            sendResponse(exchange, 400, json("error", "Invalid cursor or limit"));
+            return;
+        }
+
+        // Tab, then cursor, for one branch; every branch binds the same parameters after its key
+        String branchWhere = (showUpcoming ? UPCOMING : PAST)
+                + (cursor == null ? "" : " AND " + (cursorDate != null ? AFTER_DATE : AFTER_NULL_DATE));
 
-        List<Map<String, Object>> results = new ArrayList<>();
+        List<String> branches = new ArrayList<>();
+        List<String> keys = new ArrayList<>();
+        if (!email.isEmpty()) {
+            branches.add("(SELECT " + HISTORY_COLUMNS + " FROM Bookings_Info WHERE Email = ? AND "
+                    + branchWhere + HISTORY_ORDER + ")");
+            keys.add(email);
+        }
+        if (!userId.isEmpty()) {
+            branches.add("(SELECT " + HISTORY_COLUMNS + " FROM Bookings_Info WHERE User_ID = ? AND "
+                    + branchWhere + HISTORY_ORDER + ")");
+            keys.add(userId);
+        }
+        String sql = String.join(" UNION ", branches) + HISTORY_ORDER;
 
         try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setString(1, email);
-            stmt.setString(2, userId);
-
-            ResultSet rs = stmt.executeQuery();
-
-            LocalDate today = LocalDate.now();
-
-            while (rs.next()) {
-
-                LocalDate checkIn =
-                        rs.getDate("Check_In_Date") != null
-                                ? rs.getDate("Check_In_Date").toLocalDate()
-                                : null;
-
-                LocalDate checkOut =
-                        rs.getDate("Check_Out_Date") != null
-                                ? rs.getDate("Check_Out_Date").toLocalDate()
-                                : null;
-
-                String status = Optional.ofNullable(rs.getString("Booking_Status"))
-                        .orElse("")
-                        .trim()
-                        .toUpperCase();
-
-                boolean include = false;
-
-                if (showUpcoming) {
-                    /*
-                     UPCOMING:
-                     - Check-in today or future
-                     - Status Pending / Confirmed
-                    */
-                    if (checkIn != null &&
-                            (status.equals("PENDING") || status.equals("CONFIRMED")) &&
-                            (checkIn.isEqual(today) || checkIn.isAfter(today))) {
-                        include = true;
+            java.sql.Date today = java.sql.Date.valueOf(LocalDate.now());
+            int idx = 1;
+            for (String key : keys) {
+                stmt.setString(idx++, key);
+                stmt.setDate(idx++, today);
+                if (!showUpcoming) stmt.setDate(idx++, today);
+                if (cursor != null) {
+                    if (cursorDate != null) {
+                        stmt.setDate(idx++, java.sql.Date.valueOf(cursorDate));
+                        stmt.setDate(idx++, java.sql.Date.valueOf(cursorDate));
                     }
-
-                } else {
-                    /*
-                     PAST:
-                     - Checkout before today
-                     - OR completed / cancelled
-                     - OR checkout NULL but check-in in the past
-                    */
-                    if (checkOut != null && checkOut.isBefore(today)) {
-                        include = true;
-                    } else if (checkOut == null && checkIn != null && checkIn.isBefore(today)) {
-                        include = true;
-                    } else if (status.equals("COMPLETED") || status.equals("CANCELLED")) {
-                        include = true;
+                    stmt.setString(idx++, cursor[1]);
+                }
+                stmt.setInt(idx++, limit + 1);
+            }
+            stmt.setInt(idx, limit + 1);
+
+            // A page is at most MAX_PAGE rows: hold it so the next-page header can go out first
+            List<Object[]> page = new ArrayList<>();
+            String[] labels;
+            boolean more = false;
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                labels = new String[meta.getColumnCount()];
+                for (int i = 0; i < labels.length; i++) labels[i] = meta.getColumnLabel(i + 1);
+
+                while (rs.next()) {
+                    if (page.size() == limit) {
+                        more = true;
+                        break;
                     }
+                    Object[] row = new Object[labels.length];
+                    for (int i = 0; i < row.length; i++) row[i] = rs.getObject(i + 1);
+                    page.add(row);
                 }
+            }
 
-                if (include) {
-                    results.add(mapRow(rs));
-                }
+            if (more) {
+                List<String> columns = Arrays.asList(labels);
+                Object[] last = page.get(page.size() - 1);
+                // DATE columns print as yyyy-MM-dd, which is what the cursor holds
+                KeysetCursor.setNext(exchange, KeysetCursor.encode(
+                        last[columns.indexOf("Check_In_Date")], last[columns.indexOf("Booking_ID")]));
             }
 
-            sendResponse(exchange, 200, objectMapper.writeValueAsString(results));
+            try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+                gen.writeStartArray();
+                for (Object[] row : page) {
+                    writeRow(labels, row, gen);
+                }
+                gen.writeEndArray();
+            }
 
         } catch (Exception e) {
-            sendResponse(exchange, 500, json("error", e.getMessage()));
+            e.printStackTrace();
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                sendResponse(exchange, 500, json("error", e.getMessage()));
+            }
         }
     }
 
@@ -152,19 +232,9 @@ public class BookingHistoryHandler implements HttpHandler {
         }
 
         String fetchSql = "SELECT Room_Price_Per_Day, GST FROM Bookings_Info WHERE Booking_ID=?";
-        String updateSql = """
-                UPDATE Bookings_Info SET
-                Check_In_Date=?, 
-                Check_Out_Date=?, 
-                Total_Days_at_Stay=?, 
-                Final_Payable_Amount=?,
-                Booking_Status='PENDING'
-                WHERE Booking_ID=?
-                """;
 
         try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-             PreparedStatement fetch = conn.prepareStatement(fetchSql);
-             PreparedStatement update = conn.prepareStatement(updateSql)) {
+             PreparedStatement fetch = conn.prepareStatement(fetchSql)) {
 
             fetch.setString(1, bookingId);
             ResultSet rs = fetch.executeQuery();
@@ -185,12 +255,47 @@ public class BookingHistoryHandler implements HttpHandler {
 
             double price = rs.getDouble("Room_Price_Per_Day") * days + rs.getDouble("GST");
 
-            update.setDate(1, java.sql.Date.valueOf(in));
-            update.setDate(2, java.sql.Date.valueOf(out));
-            update.setInt(3, (int) days);
-            update.setDouble(4, price);
-            update.setString(5, bookingId);
-            update.executeUpdate();
+            // Claim the new nights before moving the booking; the old ones are freed when it commits
+            Stay oldStay = AvailabilityCalendar.findStay(conn, bookingId);
+            Stay newStay = oldStay == null ? null : new Stay(oldStay.listingId(), in, out, oldStay.rooms());
+            Claim claim = oldStay == null ? null : calendar.move(bookingId, oldStay, newStay);
+            if (oldStay != null && claim == null) {
+                sendResponse(exchange, 409, json("error", "No rooms available for the selected dates"));
+                return;
+            }
+
+            // A moved booking goes back to PENDING; completed or cancelled ones cannot move
+            Map<String, Object> dates = new LinkedHashMap<>();
+            dates.put("Check_In_Date", java.sql.Date.valueOf(in));
+            dates.put("Check_Out_Date", java.sql.Date.valueOf(out));
+            dates.put("Total_Days_at_Stay", (int) days);
+            dates.put("Final_Payable_Amount", price);
+            Result result;
+            try {
+                conn.setAutoCommit(false);
+                // Checked against bookings_info with the listing locked, leaving this booking's old nights out
+                if (!calendar.fits(conn, newStay, bookingId)) {
+                    conn.rollback();
+                    calendar.rolledBack(claim);
+                    sendResponse(exchange, 409, json("error", "No rooms available for the selected dates"));
+                    return;
+                }
+                result = BookingStateMachine.apply(conn, bookingId, Transition.RESCHEDULE, dates);
+                if (result.applied()) Outbox.append(conn, BookingEvent.Type.DATES_CHANGED, bookingId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                calendar.rolledBack(claim);
+                throw e;
+            }
+
+            if (!result.applied()) {
+                calendar.rolledBack(claim);
+                sendResponse(exchange, 409, json("error", "Dates of a " + String.valueOf(result.status()).toLowerCase()
+                        + " booking cannot be changed"));
+                return;
+            }
+            calendar.committed(claim);
 
             sendResponse(exchange, 200, json("success", "Dates updated successfully"));
 
@@ -209,15 +314,31 @@ public class BookingHistoryHandler implements HttpHandler {
             return;
         }
 
-        String sql = "UPDATE bookings_info SET Booking_Status='CANCELLED', Refund_Status='Refund Initiated' WHERE Booking_ID=?";
-
-        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, bookingId);
-            stmt.executeUpdate();
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+
+            conn.setAutoCommit(false);
+            Stay stay = AvailabilityCalendar.findStay(conn, bookingId);
+            Claim claim = stay == null ? null : calendar.release(bookingId, stay);
+            Result result;
+            try {
+                result = BookingStateMachine.apply(conn, bookingId, Transition.GUEST_CANCEL);
+                if (result.applied()) Outbox.append(conn, BookingEvent.Type.CANCELLED, bookingId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                calendar.rolledBack(claim);
+                throw e;
+            }
+            if (result.applied()) calendar.committed(claim);
+            else calendar.rolledBack(claim);
 
-            sendResponse(exchange, 200, json("success", "Booking cancelled"));
+            if (result.outcome() == Outcome.NOT_FOUND) {
+                sendResponse(exchange, 404, json("error", "Booking not found"));
+            } else if (result.applied() || Status.CANCELLED.name().equals(result.status())) {
+                sendResponse(exchange, 200, json("success", "Booking cancelled"));
+            } else {
+                sendResponse(exchange, 409, json("error", "A " + result.status().toLowerCase() + " booking cannot be cancelled"));
+            }
 
         } catch (SQLException e) {
             sendResponse(exchange, 500, json("error", e.getMessage()));
@@ -225,39 +346,15 @@ public class BookingHistoryHandler implements HttpHandler {
     }
 
     // -------------------- MAP DB → JSON --------------------
-    private Map<String, Object> mapRow(ResultSet rs) throws SQLException {
-        Map<String, Object> row = new LinkedHashMap<>();
-        ResultSetMetaData meta = rs.getMetaData();
-
-        for (int i = 1; i <= meta.getColumnCount(); i++) {
-            Object value = rs.getObject(i);
-
-            if (value instanceof java.sql.Date date)
-                value = date.toLocalDate().toString();
-
-            row.put(meta.getColumnLabel(i), value);
+    private void writeRow(String[] labels, Object[] row, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        for (int i = 0; i < labels.length; i++) {
+            // Dates go out as yyyy-MM-dd
+            JsonStreamWriter.writeField(gen, labels[i], row[i]);
         }
-        return row;
+        gen.writeEndObject();
     }
 
-    private Map<String, String> decodeParams(String query) {
-        Map<String, String> map = new HashMap<>();
-        if (query == null) return map;
-
-        for (String p : query.split("&")) {
-            String[] pair = p.split("=", 2); // <-- IMPORTANT: split once
-            if (pair.length == 2) {
-                String key = URLDecoder.decode(pair[0], StandardCharsets.UTF_8);
-                String value = URLDecoder.decode(pair[1], StandardCharsets.UTF_8)
-                        .replaceAll("[\\s\\r\\n]+$", "") // remove trailing HTTP artifacts
-                        .trim();
-                map.put(key, value);
-            }
-        }
-        return map;
-    }
-
-
     private void sendResponse(HttpExchange ex, int code, Object body) throws IOException {
         String json = body instanceof String ? (String) body : objectMapper.writeValueAsString(body);
         ex.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
@@ -1,57 +1,39 @@
 package com.hotel.app;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.hotel.utilities.DbConfig;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
+import com.hotel.catalog.SearchIndex;
+import com.hotel.server.Router;
+import com.hotel.utilities.JsonStreamWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.*;
-import java.net.URI;
-import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.sql.*;
 import java.util.*;
 
 public class HomePageHandler implements HttpHandler {
 
-    private final DbConfig dbConfig;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CatalogService catalog;
+    private final SearchIndex searchIndex;
 
-    // ✅ Inject DbConfig
-    public HomePageHandler(DbConfig dbConfig) {
-        this.dbConfig = dbConfig;
+    // Browse data comes from the in-memory catalog, not the partner DB
+    public HomePageHandler(CatalogService catalog, SearchIndex searchIndex) {
+        this.catalog = catalog;
+        this.searchIndex = searchIndex;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
-        addCorsHeaders(exchange);
-
         if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
             sendJsonResponse(exchange, 405, "{\"error\":\"Only GET allowed\"}");
             return;
         }
 
-        URI requestURI = exchange.getRequestURI();
-        String query = requestURI.getQuery();
-
-        String hotelType = null;
-        String searchQuery = null;
-
-        if (query != null && !query.isEmpty()) {
-            for (String param : query.split("&")) {
-                if (param.isBlank()) continue;
-                String[] pair = param.split("=", 2);
-                String key = URLDecoder.decode(pair[0], StandardCharsets.UTF_8);
-                String value = pair.length > 1
-                        ? URLDecoder.decode(pair[1], StandardCharsets.UTF_8)
-                        : "";
-                if ("type".equalsIgnoreCase(key)) {
-                    hotelType = value.trim();
-                } else if ("query".equalsIgnoreCase(key) || "q".equalsIgnoreCase(key)) {
-                    searchQuery = value.trim();
-                }
-            }
-        }
+        Map<String, String> params = Router.queryParams(exchange);
+        String hotelType = params.get("type");
+        String searchQuery = params.containsKey("query") ? params.get("query") : params.get("q");
 
         String normalizedType = hotelType == null
                 ? ""
@@ -70,91 +52,23 @@ public class HomePageHandler implements HttpHandler {
                                     String hotelType,
                                     String searchQuery) throws IOException {
 
-        List<Map<String, Object>> hotels = new ArrayList<>();
-
-        String baseSql = """
-            SELECT Hotel_ID, Partner_ID, Hotel_Name, Hotel_Type, Room_Type,
-                   Address, City, State, Country, Pincode, Hotel_Location,
-                   Total_Rooms, Available_Rooms, Room_Price, Amenities,
-                   Description, Policies, Rating, Hotel_Contact,
-                   About_This_Property, Hotel_Images, Customization, Status
-            FROM Hotels_info
-            WHERE Status = 'Active'
-            """;
-
-        StringBuilder sql = new StringBuilder(baseSql);
-
-        if (hotelType != null && !hotelType.isBlank()) {
-            sql.append(" AND LOWER(Hotel_Type) = LOWER(?)");
-        }
-
-        if (searchQuery != null && !searchQuery.isBlank()) {
-            sql.append("""
-                AND (
-                    LOWER(Hotel_Name) LIKE ?
-                    OR LOWER(City) LIKE ?
-                    OR LOWER(State) LIKE ?
-                    OR LOWER(Country) LIKE ?
-                )
-            """);
-        }
+        boolean byType = hotelType != null && !hotelType.isBlank();
+        List<Listing> hotels = searchIndex.search(catalog.snapshot(), Listing.Kind.HOTEL, searchQuery);
 
-        try (Connection conn = dbConfig.getPartnerDataSource().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-            int idx = 1;
-            if (hotelType != null && !hotelType.isBlank()) {
-                stmt.setString(idx++, hotelType);
-            }
-            if (searchQuery != null && !searchQuery.isBlank()) {
-                String p = "%" + searchQuery.toLowerCase() + "%";
-                stmt.setString(idx++, p);
-                stmt.setString(idx++, p);
-                stmt.setString(idx++, p);
-                stmt.setString(idx++, p);
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> hotel = new LinkedHashMap<>();
-
-                    hotel.put("Hotel_ID", rs.getString("Hotel_ID"));
-                    hotel.put("Partner_ID", rs.getString("Partner_ID"));
-                    hotel.put("Hotel_Name", rs.getString("Hotel_Name"));
-                    hotel.put("Hotel_Type", rs.getString("Hotel_Type"));
-                    hotel.put("Room_Type", rs.getString("Room_Type"));
-                    hotel.put("Address", rs.getString("Address"));
-                    hotel.put("City", rs.getString("City"));
-                    hotel.put("State", rs.getString("State"));
-                    hotel.put("Country", rs.getString("Country"));
-                    hotel.put("Pincode", rs.getString("Pincode"));
-                    hotel.put("Hotel_Location", rs.getString("Hotel_Location"));
-                    hotel.put("Total_Rooms", rs.getObject("Total_Rooms"));
-                    hotel.put("Available_Rooms", rs.getObject("Available_Rooms"));
-                    hotel.put("Room_Price", rs.getObject("Room_Price"));
-                    hotel.put("Amenities", rs.getString("Amenities"));
-                    hotel.put("Description", rs.getString("Description"));
-                    hotel.put("Policies", rs.getString("Policies"));
-                    hotel.put("Rating", rs.getObject("Rating"));
-                    hotel.put("Hotel_Contact", rs.getString("Hotel_Contact"));
-                    hotel.put("About_This_Property", rs.getString("About_This_Property"));
-                    hotel.put("Customization", rs.getString("Customization"));
-                    hotel.put("Status", rs.getString("Status"));
-
-                    hotel.put("Hotel_Images",
-                            buildImageList(rs.getString("Hotel_Images")));
-
-                    hotels.add(hotel);
-                }
+        try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+            gen.writeStartArray();
+            for (Listing hotel : hotels) {
+                if (byType && !hotelType.equalsIgnoreCase(hotel.getType())) continue;
+                writeHotel(hotel, gen);
             }
-
-            sendJsonResponse(exchange, 200,
-                    objectMapper.writeValueAsString(hotels));
+            gen.writeEndArray();
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendJsonResponse(exchange, 500,
-                    "{\"error\":\"Internal error\"}");
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                sendJsonResponse(exchange, 500,
+                        "{\"error\":\"Internal error\"}");
+            }
         }
     }
 
@@ -162,119 +76,93 @@ public class HomePageHandler implements HttpHandler {
     private void handlePayingGuestRequest(HttpExchange exchange,
                                           String searchQuery) throws IOException {
 
-        List<Map<String, Object>> pgs = new ArrayList<>();
-
-        String baseSql = """
-            SELECT PG_ID, Partner_ID, PG_Name, PG_Type, Room_Type,
-                   Address, City, State, Country, Pincode,
-                   Total_Single_Sharing_Rooms,
-                   Total_Double_SHARING_ROOMS,
-                   Total_Three_SHARING_ROOMS,
-                   Total_FOUR_SHARING_ROOMS,
-                   Total_FIVE_SHARING_ROOMS,
-                   Hotel_Location, Available_Rooms, Room_Price,
-                   Amenities, Description, Policies, Rating,
-                   PG_Contact, About_This_PG, PG_Images, Status
-            FROM paying_guest_info
-            WHERE Status = 'Active'
-        """;
+        List<Listing> pgs = searchIndex.search(catalog.snapshot(), Listing.Kind.PG, searchQuery);
 
-        StringBuilder sql = new StringBuilder(baseSql);
-
-        if (searchQuery != null && !searchQuery.isBlank()) {
-            sql.append("""
-                AND (
-                    LOWER(PG_Name) LIKE ?
-                    OR LOWER(City) LIKE ?
-                    OR LOWER(State) LIKE ?
-                    OR LOWER(Country) LIKE ?
-                )
-            """);
-        }
-
-        try (Connection conn = dbConfig.getPartnerDataSource().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
-
-            if (searchQuery != null && !searchQuery.isBlank()) {
-                String p = "%" + searchQuery.toLowerCase() + "%";
-                stmt.setString(1, p);
-                stmt.setString(2, p);
-                stmt.setString(3, p);
-                stmt.setString(4, p);
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    Map<String, Object> pg = new LinkedHashMap<>();
-
-                    pg.put("PG_ID", rs.getString("PG_ID"));
-                    pg.put("Partner_ID", rs.getString("Partner_ID"));
-                    pg.put("PG_Name", rs.getString("PG_Name"));
-                    pg.put("PG_Type", rs.getString("PG_Type"));
-                    pg.put("Room_Type", rs.getString("Room_Type"));
-                    pg.put("Address", rs.getString("Address"));
-                    pg.put("City", rs.getString("City"));
-                    pg.put("State", rs.getString("State"));
-                    pg.put("Country", rs.getString("Country"));
-                    pg.put("Pincode", rs.getString("Pincode"));
-
-                    pg.put("Total_Single_Sharing_Rooms", rs.getObject("Total_Single_Sharing_Rooms"));
-                    pg.put("Total_Double_SHARING_ROOMS", rs.getObject("Total_Double_SHARING_ROOMS"));
-                    pg.put("Total_Three_SHARING_ROOMS", rs.getObject("Total_Three_SHARING_ROOMS"));
-                    pg.put("Total_FOUR_SHARING_ROOMS", rs.getObject("Total_FOUR_SHARING_ROOMS"));
-                    pg.put("Total_FIVE_SHARING_ROOMS", rs.getObject("Total_FIVE_SHARING_ROOMS"));
-
-                    pg.put("Hotel_Location", rs.getString("Hotel_Location"));
-                    pg.put("Available_Rooms", rs.getObject("Available_Rooms"));
-                    pg.put("Room_Price", rs.getObject("Room_Price"));
-                    pg.put("Amenities", rs.getString("Amenities"));
-                    pg.put("Description", rs.getString("Description"));
-                    pg.put("Policies", rs.getString("Policies"));
-                    pg.put("Rating", rs.getObject("Rating"));
-                    pg.put("PG_Contact", rs.getString("PG_Contact"));
-                    pg.put("About_This_PG", rs.getString("About_This_PG"));
-                    pg.put("Status", rs.getString("Status"));
-
-                    pg.put("PG_Images",
-                            buildImageList(rs.getString("PG_Images")));
-
-                    pgs.add(pg);
-                }
+        try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+            gen.writeStartArray();
+            for (Listing pg : pgs) {
+                writePayingGuest(pg, gen);
             }
-
-            sendJsonResponse(exchange, 200,
-                    objectMapper.writeValueAsString(pgs));
+            gen.writeEndArray();
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendJsonResponse(exchange, 500,
-                    "{\"error\":\"Internal error\"}");
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                sendJsonResponse(exchange, 500,
+                        "{\"error\":\"Internal error\"}");
+            }
         }
     }
 
-    // =================== HELPERS ===================
-    private List<String> buildImageList(String raw) {
-        List<String> list = new ArrayList<>();
-        if (raw == null || raw.isBlank()) return list;
-
-        for (String p : raw.split(",")) {
-            String t = p.trim();
-            if (t.isEmpty()) continue;
+    // =================== ROW WRITERS ===================
+    private void writeHotel(Listing l, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("Hotel_ID", l.getString("Hotel_ID"));
+        gen.writeStringField("Partner_ID", l.getString("Partner_ID"));
+        gen.writeStringField("Hotel_Name", l.getString("Hotel_Name"));
+        gen.writeStringField("Hotel_Type", l.getString("Hotel_Type"));
+        gen.writeStringField("Room_Type", l.getString("Room_Type"));
+        gen.writeStringField("Address", l.getString("Address"));
+        gen.writeStringField("City", l.getString("City"));
+        gen.writeStringField("State", l.getString("State"));
+        gen.writeStringField("Country", l.getString("Country"));
+        gen.writeStringField("Pincode", l.getString("Pincode"));
+        gen.writeStringField("Hotel_Location", l.getString("Hotel_Location"));
+        JsonStreamWriter.writeField(gen, "Total_Rooms", l.get("Total_Rooms"));
+        JsonStreamWriter.writeField(gen, "Available_Rooms", l.get("Available_Rooms"));
+        JsonStreamWriter.writeField(gen, "Room_Price", l.get("Room_Price"));
+        gen.writeStringField("Amenities", l.getString("Amenities"));
+        gen.writeStringField("Description", l.getString("Description"));
+        gen.writeStringField("Policies", l.getString("Policies"));
+        JsonStreamWriter.writeField(gen, "Rating", l.get("Rating"));
+        gen.writeStringField("Hotel_Contact", l.getString("Hotel_Contact"));
+        gen.writeStringField("About_This_Property", l.getString("About_This_Property"));
+        gen.writeStringField("Customization", l.getString("Customization"));
+        gen.writeStringField("Status", l.getString("Status"));
+        writeImageList(gen, "Hotel_Images", l.getImages());
+        gen.writeEndObject();
+    }
 
-            if (t.startsWith("http://") || t.startsWith("https://")) {
-                list.add(t);
-            } else {
-                list.add(dbConfig.getImageBaseUrl()
-                        + t.replaceAll("^/+", ""));
-            }
-        }
-        return list;
+    private void writePayingGuest(Listing l, JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("PG_ID", l.getString("PG_ID"));
+        gen.writeStringField("Partner_ID", l.getString("Partner_ID"));
+        gen.writeStringField("PG_Name", l.getString("PG_Name"));
+        gen.writeStringField("PG_Type", l.getString("PG_Type"));
+        gen.writeStringField("Room_Type", l.getString("Room_Type"));
+        gen.writeStringField("Address", l.getString("Address"));
+        gen.writeStringField("City", l.getString("City"));
+        gen.writeStringField("State", l.getString("State"));
+        gen.writeStringField("Country", l.getString("Country"));
+        gen.writeStringField("Pincode", l.getString("Pincode"));
+
+        JsonStreamWriter.writeField(gen, "Total_Single_Sharing_Rooms", l.get("Total_Single_Sharing_Rooms"));
+        JsonStreamWriter.writeField(gen, "Total_Double_SHARING_ROOMS", l.get("Total_Double_SHARING_ROOMS"));
+        JsonStreamWriter.writeField(gen, "Total_Three_SHARING_ROOMS", l.get("Total_Three_SHARING_ROOMS"));
+        JsonStreamWriter.writeField(gen, "Total_FOUR_SHARING_ROOMS", l.get("Total_FOUR_SHARING_ROOMS"));
+        JsonStreamWriter.writeField(gen, "Total_FIVE_SHARING_ROOMS", l.get("Total_FIVE_SHARING_ROOMS"));
+
+        gen.writeStringField("Hotel_Location", l.getString("Hotel_Location"));
+        JsonStreamWriter.writeField(gen, "Available_Rooms", l.get("Available_Rooms"));
+        JsonStreamWriter.writeField(gen, "Room_Price", l.get("Room_Price"));
+        gen.writeStringField("Amenities", l.getString("Amenities"));
+        gen.writeStringField("Description", l.getString("Description"));
+        gen.writeStringField("Policies", l.getString("Policies"));
+        JsonStreamWriter.writeField(gen, "Rating", l.get("Rating"));
+        gen.writeStringField("PG_Contact", l.getString("PG_Contact"));
+        gen.writeStringField("About_This_PG", l.getString("About_This_PG"));
+        gen.writeStringField("Status", l.getString("Status"));
+        writeImageList(gen, "PG_Images", l.getImages());
+        gen.writeEndObject();
     }
 
-    private void addCorsHeaders(HttpExchange exchange) {
-        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, Authorization");
+    // =================== HELPERS ===================
+    private void writeImageList(JsonGenerator gen, String field, List<String> urls) throws IOException {
+        gen.writeArrayFieldStart(field);
+        for (String url : urls) {
+            gen.writeString(url);
+        }
+        gen.writeEndArray();
     }
 
     private void sendJsonResponse(HttpExchange exchange, int status, String json)
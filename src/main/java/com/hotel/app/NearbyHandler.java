@@ -0,0 +1,107 @@
+package com.hotel.app;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hotel.catalog.GeoIndex;
+import com.hotel.catalog.GeoIndex.Hit;
+import com.hotel.catalog.Listing;
+import com.hotel.server.Router;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.JsonStreamWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * GET /hotels/nearby and /paying_guest/nearby
+ *   ?lat=..&lng=..              required
+ *   &radiusKm=10&limit=20       optional (radius capped at 200 km, limit at 100)
+ *   &type=..&minPrice=..&maxPrice=..
+ *
+ * Nearest listings first, each with every column plus Distance_Km.
+ */
+public class NearbyHandler implements HttpHandler {
+
+    private static final double DEFAULT_RADIUS_KM = 10;
+    private static final double MAX_RADIUS_KM = 200;
+    private static final int DEFAULT_LIMIT = 20;
+    private static final int MAX_LIMIT = 100;
+
+    private final GeoIndex geoIndex;
+
+    public NearbyHandler(GeoIndex geoIndex) {
+        this.geoIndex = geoIndex;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Listing.Kind kind = exchange.getRequestURI().getPath().startsWith("/paying_guest")
+                ? Listing.Kind.PG
+                : Listing.Kind.HOTEL;
+        Map<String, String> params = Router.queryParams(exchange);
+
+        double lat, lng, radiusKm, minPrice, maxPrice;
+        int limit;
+        try {
+            lat = Double.parseDouble(required(params, "lat"));
+            lng = Double.parseDouble(required(params, "lng"));
+            radiusKm = Math.min(MAX_RADIUS_KM, number(params, "radiusKm", DEFAULT_RADIUS_KM));
+            limit = (int) Math.min(MAX_LIMIT, number(params, "limit", DEFAULT_LIMIT));
+            minPrice = number(params, "minPrice", 0);
+            maxPrice = number(params, "maxPrice", Double.MAX_VALUE);
+        } catch (IllegalArgumentException e) {
+            Json.sendError(exchange, 400, e.getMessage());
+            return;
+        }
+        // NaN slips through every comparison below, so rule it (and infinities) out first
+        if (!Double.isFinite(lat) || !Double.isFinite(lng) || !Double.isFinite(radiusKm)
+                || Double.isNaN(minPrice) || Double.isNaN(maxPrice)
+                || Math.abs(lat) > 90 || Math.abs(lng) > 180 || radiusKm <= 0 || limit <= 0) {
+            Json.sendError(exchange, 400, "lat/lng out of range, or invalid radiusKm/limit/price");
+            return;
+        }
+
+        Predicate<Listing> filter = l -> true;
+        String type = params.get("type");
+        if (type != null && !type.isBlank()) {
+            filter = filter.and(l -> type.trim().equalsIgnoreCase(l.getType()));
+        }
+        if (params.containsKey("minPrice") || params.containsKey("maxPrice")) {
+            filter = filter.and(l -> l.getRoomPrice() != null
+                    && l.getRoomPrice() >= minPrice && l.getRoomPrice() <= maxPrice);
+        }
+
+        List<Hit> hits = geoIndex.nearest(kind, lat, lng, radiusKm, limit, filter);
+
+        try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+            gen.writeStartArray();
+            for (Hit hit : hits) {
+                gen.writeStartObject();
+                for (Map.Entry<String, Object> column : hit.listing().columns().entrySet()) {
+                    JsonStreamWriter.writeField(gen, column.getKey(), column.getValue());
+                }
+                gen.writeNumberField("Distance_Km", Math.round(hit.distanceKm() * 100) / 100.0);
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    private static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) throw new IllegalArgumentException("Missing " + name);
+        return value.trim();
+    }
+
+    private static double number(Map<String, String> params, String name, double fallback) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) return fallback;
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+    }
+}
@@ -1,7 +1,15 @@
 package com.hotel.app;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.BookingStateMachine;
+import com.hotel.booking.BookingStateMachine.Outcome;
+import com.hotel.booking.BookingStateMachine.Result;
+import com.hotel.booking.BookingStateMachine.Status;
+import com.hotel.booking.BookingStateMachine.Transition;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.Outbox;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
 import com.razorpay.*;
 import com.sun.net.httpserver.*;
 import org.json.JSONObject;
@@ -14,7 +22,7 @@ import java.util.*;
 public class PaymentHandler implements HttpHandler {
 
     private final DbConfig dbConfig;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper mapper = Json.MAPPER;
 
     // Razorpay credentials
     private final String RZP_KEY; 
@@ -30,12 +38,6 @@ public class PaymentHandler implements HttpHandler {
 
     @Override
     public void handle(HttpExchange ex) throws IOException {
-        addCors(ex);
-        if ("OPTIONS".equalsIgnoreCase(ex.getRequestMethod())) {
-            ex.sendResponseHeaders(204, -1);
-            return;
-        }
-
         String path = ex.getRequestURI().getPath();
         try {
             switch (path) {
@@ -130,7 +132,7 @@ public class PaymentHandler implements HttpHandler {
             int attemptNo = nextAttempt(conn, bid);
             
             insertPaymentRecord(conn, prid, bid, uid, pid, hid, oid, payid, sig, status, failureReason, amt, attemptNo);
-            updateBookingStatus(conn, bid, status, payid, prid);
+            Outbox.append(conn, updateBookingStatus(conn, bid, status, payid, prid), bid);
 
             conn.commit();
             
@@ -172,17 +174,32 @@ public class PaymentHandler implements HttpHandler {
         }
     }
 
-    private void updateBookingStatus(Connection conn, String bid, String status, String payId, String prid) throws SQLException {
+    /** Records the attempt on the booking and returns the event describing what it did. */
+    private BookingEvent.Type updateBookingStatus(Connection conn, String bid, String status, String payId, String prid) throws SQLException {
         String sql = "UPDATE bookings_info SET Payment_Status = ?, Transaction_ID = ?, " +
-                     "Last_Payment_Record_ID = ?, Payment_Confirmed_At = NOW(), Booking_Status = ? WHERE Booking_ID = ?";
+                     "Last_Payment_Record_ID = ?, Payment_Confirmed_At = NOW() WHERE Booking_ID = ?";
         try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setString(1, status);
             ps.setString(2, payId);
             ps.setString(3, prid);
-            ps.setString(4, status.equals("Paid") ? "CONFIRMED" : "PENDING");
-            ps.setString(5, bid);
+            ps.setString(4, bid);
             ps.executeUpdate();
         }
+        if (!status.equals("Paid")) return BookingEvent.Type.PAYMENT_FAILED;   // the booking stays as it was
+
+        // Paid: PENDING -> CONFIRMED, which also ends the unpaid hold (see HoldExpiryService)
+        Result result = BookingStateMachine.apply(conn, bid, Transition.PAY);
+        if (result.outcome() == Outcome.REJECTED && Status.CANCELLED.name().equals(result.status())) {
+            // Paid after the booking was cancelled or expired: the money goes back
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE bookings_info SET Refund_Status = 'Refund Initiated' WHERE Booking_ID = ?")) {
+                ps.setString(1, bid);
+                ps.executeUpdate();
+            }
+            System.err.println("⚠ Payment " + payId + " received for cancelled booking " + bid + ", refund initiated");
+            return BookingEvent.Type.PAID_AFTER_CANCEL;
+        }
+        return BookingEvent.Type.PAYMENT_SUCCEEDED;
     }
 
     private int nextAttempt(Connection conn, String bid) throws SQLException {
@@ -193,12 +210,6 @@ public class PaymentHandler implements HttpHandler {
         }
     }
 
-    private void addCors(HttpExchange ex) {
-        ex.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        ex.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-        ex.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-    }
-
     private void respond(HttpExchange ex, int code, String body) throws IOException {
         byte[] b = body.getBytes(StandardCharsets.UTF_8);
         ex.getResponseHeaders().set("Content-Type", "application/json");
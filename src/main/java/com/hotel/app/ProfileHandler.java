@@ -2,7 +2,9 @@ package com.hotel.app;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.hotel.security.PasswordUtil;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
@@ -12,7 +14,7 @@ import java.util.*;
 
 public class ProfileHandler implements HttpHandler {
 
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectMapper mapper = Json.MAPPER;
     private final DbConfig dbConfig;
 
     public ProfileHandler(DbConfig dbConfig) {
@@ -109,12 +111,7 @@ public class ProfileHandler implements HttpHandler {
     /* ================= FETCH PROFILE ================= */
 
     private void handleGetProfile(HttpExchange exchange) throws IOException {
-        String query = exchange.getRequestURI().getQuery();
-        String email = null;
-
-        if (query != null && query.contains("email=")) {
-            email = java.net.URLDecoder.decode(query.split("email=")[1], "UTF-8");
-        }
+        String email = Router.queryParams(exchange).get("email");
 
         if (email == null || email.isEmpty()) {
             sendResponse(exchange, 400, Map.of("error", "Missing email parameter"));
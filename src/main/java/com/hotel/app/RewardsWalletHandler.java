@@ -3,26 +3,88 @@ package com.hotel.app;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.catalog.CatalogService;
+import com.hotel.coupon.Cart;
+import com.hotel.coupon.Carts;
+import com.hotel.coupon.Coupon;
+import com.hotel.coupon.CouponCatalog;
+import com.hotel.coupon.CouponUsage;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.KeysetCursor;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 
+/**
+ * Wallet, referral and coupon endpoints. Coupon data comes from the {@link CouponCatalog};
+ * only per-user usage is read from the database. /coupon/validate and /coupon/best check
+ * carts against each coupon's compiled rules (see CouponRules).
+ *
+ * /wallet returns the balance, summary counters and the first page of transactions and
+ * refunds, with the cursors for their next pages in the body. /wallet/transactions and
+ * /wallet/refunds page further back with ?cursor= and ?limit=, newest first, using keyset
+ * cursors on (created_at, txn_id) and (created_at, refund_id); the next cursor goes out in
+ * the {@value KeysetCursor#HEADER} header. Pages are served from these indexes:
+ * <pre>
+ *   CREATE INDEX idx_wallet_txn_page ON wallet_transactions (wallet_id, created_at, txn_id);
+ *   CREATE INDEX idx_refunds_page ON refunds (txn_id, created_at, refund_id);
+ * </pre>
+ */
 public class RewardsWalletHandler implements HttpHandler {
 
+    private static final int DEFAULT_PAGE = 20;
+    private static final int MAX_PAGE = 100;
+
+    private static final String TXN_PAGE_SQL = """
+            SELECT txn_id, type, amount, direction, status, description, created_at
+            FROM wallet_transactions
+            WHERE wallet_id=? %s
+            ORDER BY created_at DESC, txn_id DESC
+            LIMIT ?
+            """;
+    private static final String TXN_AFTER = "AND (created_at < ? OR (created_at = ? AND txn_id < ?))";
+
+    private static final String REFUND_PAGE_SQL = """
+            SELECT r.refund_id, r.txn_id, r.refunded_amount, r.refund_method, r.status, r.created_at
+            FROM refunds r
+            JOIN wallet_transactions t ON t.txn_id = r.txn_id
+            WHERE t.wallet_id=? %s
+            ORDER BY r.created_at DESC, r.refund_id DESC
+            LIMIT ?
+            """;
+    private static final String REFUND_AFTER = "AND (r.created_at < ? OR (r.created_at = ? AND r.refund_id < ?))";
+
+    /** Fills {@code out} with one page and returns the cursor for the next, or null. */
+    @FunctionalInterface
+    private interface Pager {
+        String page(Connection conn, String walletId, String[] cursor, int limit, ArrayNode out) throws SQLException;
+    }
+
     private final DbConfig dbConfig;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final CouponCatalog coupons;
+    private final CouponUsage couponUsage;
+    private final CatalogService catalog;
+    private final ObjectMapper mapper = Json.MAPPER;
 
-    public RewardsWalletHandler(DbConfig dbConfig) {
+    public RewardsWalletHandler(DbConfig dbConfig, CouponCatalog coupons, CouponUsage couponUsage,
+                                CatalogService catalog) {
         this.dbConfig = dbConfig;
+        this.coupons = coupons;
+        this.couponUsage = couponUsage;
+        this.catalog = catalog;
     }
 
     private Connection getConnection() throws SQLException {
@@ -36,21 +98,36 @@ public class RewardsWalletHandler implements HttpHandler {
     public void handle(HttpExchange exchange) throws IOException {
 
         ObjectNode response;
+        int status = 200;
         String method = exchange.getRequestMethod();
         String path = exchange.getRequestURI().getPath();
 
         try {
-            if ("GET".equalsIgnoreCase(method) && path.startsWith("/wallet")) {
+            if ("GET".equalsIgnoreCase(method) && path.equals("/wallet/transactions")) {
+                response = handleHistoryPage(exchange, "transactions", this::transactionsPage);
+
+            } else if ("GET".equalsIgnoreCase(method) && path.equals("/wallet/refunds")) {
+                response = handleHistoryPage(exchange, "refunds", this::refundsPage);
+
+            } else if ("GET".equalsIgnoreCase(method) && path.startsWith("/wallet")) {
                 response = handleWalletRequest(exchange);
 
             } else if ("POST".equalsIgnoreCase(method) && path.startsWith("/coupon/validate")) {
                 response = handleCouponValidate(exchange);
 
+            } else if ("POST".equalsIgnoreCase(method) && path.equals("/coupon/best")) {
+                response = handleBestCoupon(exchange);
+
             } else {
                 response = mapper.createObjectNode();
                 response.put("error", "Invalid API endpoint");
             }
 
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            response = mapper.createObjectNode();
+            response.put("error", e.getMessage());
+
         } catch (Exception e) {
             e.printStackTrace();
             response = mapper.createObjectNode();
@@ -59,7 +136,7 @@ public class RewardsWalletHandler implements HttpHandler {
 
         byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
         exchange.getResponseHeaders().set("Content-Type", "application/json");
-        exchange.sendResponseHeaders(200, bytes.length);
+        exchange.sendResponseHeaders(status, bytes.length);
 
         try (OutputStream os = exchange.getResponseBody()) {
             os.write(bytes);
@@ -91,78 +168,107 @@ public class RewardsWalletHandler implements HttpHandler {
             return resp;
         }
 
+        Coupon coupon = coupons.find(couponCode);
+        if (coupon == null) {
+            resp.put("valid", false);
+            resp.put("message", "Invalid or expired coupon");
+            return resp;
+        }
+        if (couponUsage.soldOut(coupon)) {
+            resp.put("valid", false);
+            resp.put("message", "Coupon has been fully redeemed");
+            return resp;
+        }
+
         try (Connection conn = getConnection()) {
+            String reason = coupon.reject(cartFrom(req, conn, userId));
+            if (reason != null) {
+                resp.put("valid", false);
+                resp.put("message", reason);
+                return resp;
+            }
 
-            String sql = """
-                SELECT coupon_id, discount_type, discount_value,
-                       max_discount, min_order_value, usage_limit_per_user
-                FROM coupons
-                WHERE UPPER(coupon_code) = UPPER(?)
-                  AND status='active'
-                  AND valid_from <= NOW()
-                  AND valid_to >= NOW()
-                """;
-
-            try (PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, couponCode);
-                ResultSet rs = ps.executeQuery();
+            Integer usageLimit = coupon.usageLimitPerUser();
+            if (usageLimit != null && usageLimit > 0
+                    && !coupon.usableAfter(getCouponUsage(conn, coupon.couponId(), userId))) {
+                resp.put("valid", false);
+                resp.put("message", "Coupon usage limit reached");
+                return resp;
+            }
+        }
 
-                if (!rs.next()) {
-                    resp.put("valid", false);
-                    resp.put("message", "Invalid or expired coupon");
-                    return resp;
-                }
+        // Capped at the amount, as BookingHandler recomputes it when the coupon is redeemed
+        double discountAmount = Math.min(baseAmount, coupon.discountOn(baseAmount));
+        double discountedAmount = Math.max(0, baseAmount - discountAmount);
 
-                String couponId = rs.getString("coupon_id");
-                String discountType = rs.getString("discount_type");
-                double discountValue = rs.getDouble("discount_value");
+        // ❗ IMPORTANT:
+        // Usage is intentionally NOT incremented here.
+        // It must be done only after successful payment.
 
-                Double maxDiscount =
-                        rs.getObject("max_discount") == null ? null : rs.getDouble("max_discount");
+        resp.put("valid", true);
+        resp.put("couponTitle", couponCode);
+        resp.put("discountAmount", discountAmount);
+        resp.put("discountedAmount", discountedAmount);
 
-                Double minOrderValue =
-                        rs.getObject("min_order_value") == null ? null : rs.getDouble("min_order_value");
+        return resp;
+    }
 
-                Integer usageLimit =
-                        rs.getObject("usage_limit_per_user") == null ? null : rs.getInt("usage_limit_per_user");
+    // =====================================================
+    // BEST COUPON
+    // POST /coupon/best  { userId, baseAmount, platform, hotelId, hotelType, city,
+    //                      checkInDate, checkOutDate }
+    // =====================================================
+    private ObjectNode handleBestCoupon(HttpExchange exchange) throws Exception {
+        ObjectNode req = (ObjectNode) mapper.readTree(exchange.getRequestBody());
+        String userId = req.path("userId").asText("").trim();
+        double baseAmount = req.path("baseAmount").asDouble(0);
 
-                if (minOrderValue != null && baseAmount < minOrderValue) {
-                    resp.put("valid", false);
-                    resp.put("message", "Minimum order value not met");
-                    return resp;
-                }
+        ObjectNode resp = mapper.createObjectNode();
+        if (userId.isEmpty()) {
+            resp.put("found", false);
+            resp.put("message", "Missing userId");
+            return resp;
+        }
 
-                int usedCount = getCouponUsage(conn, couponId, userId);
-                if (usageLimit != null && usageLimit > 0 && usedCount >= usageLimit) {
-                    resp.put("valid", false);
-                    resp.put("message", "Coupon usage limit reached");
-                    return resp;
-                }
+        Coupon best;
+        try (Connection conn = getConnection()) {
+            Map<String, Integer> usage = getCouponUsage(conn, userId);
+            best = coupons.best(cartFrom(req, conn, userId),
+                    c -> c.usableAfter(usage.getOrDefault(c.couponId(), 0)) && !couponUsage.soldOut(c));
+        }
 
-                double discountAmount;
-                if ("percentage".equalsIgnoreCase(discountType)) {
-                    discountAmount = baseAmount * (discountValue / 100.0);
-                    if (maxDiscount != null) {
-                        discountAmount = Math.min(discountAmount, maxDiscount);
-                    }
-                } else {
-                    discountAmount = discountValue;
-                }
+        resp.put("found", best != null);
+        if (best != null) {
+            double discountAmount = Math.min(baseAmount, best.discountOn(baseAmount));
+            resp.put("couponId", best.couponId());
+            resp.put("couponCode", best.code());
+            resp.put("couponTitle", best.title());
+            resp.put("discountAmount", discountAmount);
+            resp.put("discountedAmount", Math.max(0, baseAmount - discountAmount));
+        }
+        return resp;
+    }
 
-                double discountedAmount = Math.max(0, baseAmount - discountAmount);
+    /** The cart described by a coupon request; see {@link Carts#of}. */
+    private Cart cartFrom(ObjectNode req, Connection conn, String userId) {
+        return Carts.of(catalog, conn, userId, text(req, "platform"),
+                text(req, "hotelId"), text(req, "hotelType"), text(req, "city"),
+                date(req, "checkInDate"), date(req, "checkOutDate"), req.path("baseAmount").asDouble(0));
+    }
 
-                // ❗ IMPORTANT:
-                // Usage is intentionally NOT incremented here.
-                // It must be done only after successful payment.
+    private static String text(ObjectNode req, String field) {
+        String value = req.path(field).asText("").trim();
+        return value.isEmpty() ? null : value;
+    }
 
-                resp.put("valid", true);
-                resp.put("couponTitle", couponCode);
-                resp.put("discountAmount", discountAmount);
-                resp.put("discountedAmount", discountedAmount);
-            }
+    private static LocalDate date(ObjectNode req, String field) {
+        String value = text(req, field);
+        if (value == null) return null;
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(field + " must be yyyy-MM-dd");
         }
-
-        return resp;
     }
 
     // =====================================================
@@ -178,22 +284,131 @@ public class RewardsWalletHandler implements HttpHandler {
         }
     }
 
+    /** This user's usage_count for every coupon they have used, by coupon_id. */
+    private Map<String, Integer> getCouponUsage(Connection conn, String userId) throws SQLException {
+        Map<String, Integer> usage = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT coupon_id, usage_count FROM coupon_usage WHERE user_id=?")) {
+            ps.setString(1, userId);
+            ResultSet rs = ps.executeQuery();
+            while (rs.next()) usage.put(rs.getString("coupon_id"), rs.getInt("usage_count"));
+        }
+        return usage;
+    }
+
     // =====================================================
-    // UTIL: parse query
+    // WALLET HISTORY PAGES
+    // GET /wallet/transactions, GET /wallet/refunds
     // =====================================================
-    private Map<String, String> parseQuery(String query) {
-        Map<String, String> result = new HashMap<>();
-        if (query == null || query.isEmpty()) return result;
-
-        for (String pair : query.split("&")) {
-            String[] keyValue = pair.split("=");
-            String key = URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8);
-            String value = keyValue.length > 1
-                    ? URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8)
-                    : "";
-            result.put(key, value);
+    private ObjectNode handleHistoryPage(HttpExchange exchange, String field, Pager pager) throws Exception {
+        Map<String, String> params = Router.queryParams(exchange);
+        String userId = params.get("userId");
+        int limit = KeysetCursor.limit(params.get("limit"), DEFAULT_PAGE, MAX_PAGE);
+        String[] cursor = KeysetCursor.decode(params.get("cursor"), 2);
+
+        ObjectNode json = mapper.createObjectNode();
+        if (userId == null || userId.isBlank()) {
+            json.put("error", "Missing userId");
+            return json;
+        }
+
+        ArrayNode items = mapper.createArrayNode();
+        json.set(field, items);
+
+        try (Connection conn = getConnection()) {
+            String walletId = null;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT wallet_id FROM wallets WHERE user_id=? LIMIT 1")) {
+                ps.setString(1, userId);
+                ResultSet rs = ps.executeQuery();
+                if (rs.next()) walletId = rs.getString("wallet_id");
+            }
+            if (walletId != null) {
+                KeysetCursor.setNext(exchange, pager.page(conn, walletId, cursor, limit, items));
+            }
+        }
+        return json;
+    }
+
+    private String transactionsPage(Connection conn, String walletId, String[] cursor, int limit, ArrayNode out)
+            throws SQLException {
+        String sql = String.format(TXN_PAGE_SQL, cursor == null ? "" : TXN_AFTER);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = bindPage(ps, walletId, cursor);
+            ps.setInt(idx, limit + 1);
+            ResultSet rs = ps.executeQuery();
+
+            Timestamp lastCreatedAt = null;
+            String lastId = null;
+            while (rs.next()) {
+                if (out.size() == limit) return pageCursor(lastCreatedAt, lastId);
+                lastCreatedAt = rs.getTimestamp("created_at");
+                lastId = rs.getString("txn_id");
+                ObjectNode tx = mapper.createObjectNode();
+                tx.put("txnId", rs.getString("txn_id"));
+                tx.put("type", rs.getString("type"));
+                tx.put("amount", rs.getDouble("amount"));
+                tx.put("direction", rs.getString("direction"));
+                tx.put("status", rs.getString("status"));
+                tx.put("description", rs.getString("description"));
+                tx.put("createdAt", rs.getString("created_at"));
+                out.add(tx);
+            }
+        }
+        return null;
+    }
+
+    private String refundsPage(Connection conn, String walletId, String[] cursor, int limit, ArrayNode out)
+            throws SQLException {
+        String sql = String.format(REFUND_PAGE_SQL, cursor == null ? "" : REFUND_AFTER);
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = bindPage(ps, walletId, cursor);
+            ps.setInt(idx, limit + 1);
+            ResultSet rs = ps.executeQuery();
+
+            Timestamp lastCreatedAt = null;
+            String lastId = null;
+            while (rs.next()) {
+                if (out.size() == limit) return pageCursor(lastCreatedAt, lastId);
+                lastCreatedAt = rs.getTimestamp("created_at");
+                lastId = rs.getString("refund_id");
+                ObjectNode r = mapper.createObjectNode();
+                r.put("refundId", rs.getString("refund_id"));
+                r.put("txnId", rs.getString("txn_id"));
+                r.put("amount", rs.getDouble("refunded_amount"));
+                r.put("method", rs.getString("refund_method"));
+                r.put("status", rs.getString("status"));
+                r.put("createdAt", rs.getString("created_at"));
+                out.add(r);
+            }
         }
-        return result;
+        return null;
+    }
+
+    /**
+     * The cursor after (createdAt, id). created_at travels as the instant getTimestamp() read
+     * and goes back in through setTimestamp(), so the key is converted the same way both
+     * times, whatever the session and JVM time zones are.
+     */
+    private static String pageCursor(Timestamp createdAt, String id) {
+        return KeysetCursor.encode(createdAt == null ? null : createdAt.toInstant(), id);
+    }
+
+    /** Binds wallet_id and, for a later page, the (created_at, id) cursor; returns the LIMIT index. */
+    private static int bindPage(PreparedStatement ps, String walletId, String[] cursor) throws SQLException {
+        int idx = 1;
+        ps.setString(idx++, walletId);
+        if (cursor != null) {
+            Timestamp createdAt;
+            try {
+                createdAt = Timestamp.from(Instant.parse(cursor[0]));
+            } catch (DateTimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            ps.setTimestamp(idx++, createdAt);
+            ps.setTimestamp(idx++, createdAt);
+            ps.setString(idx++, cursor[1]);
+        }
+        return idx;
     }
 
     // =====================================================
@@ -211,8 +426,7 @@ public class RewardsWalletHandler implements HttpHandler {
    
     // ----------------- MAIN: /wallet handler -----------------
     private ObjectNode handleWalletRequest(HttpExchange exchange) throws Exception {
-        String query = exchange.getRequestURI().getQuery();
-        Map<String, String> params = parseQuery(query);
+        Map<String, String> params = Router.queryParams(exchange);
         String userId = params.get("userId");
 
         ObjectNode json = mapper.createObjectNode();
@@ -291,108 +505,61 @@ public class RewardsWalletHandler implements HttpHandler {
                 }
             }
 
-            // 4) Wallet transactions
-            ArrayNode txArray = mapper.createArrayNode();
-            String txSql = """
-                    SELECT txn_id, type, amount, direction, status, description, created_at
-                    FROM wallet_transactions
-                    WHERE wallet_id=?
-                    ORDER BY created_at DESC
+            // 4) Summary counters + first page of transactions and refunds
+            String countSql = """
+                    SELECT (SELECT COUNT(*) FROM wallet_transactions WHERE wallet_id=?) AS txns,
+                           (SELECT COUNT(*) FROM refunds r JOIN wallet_transactions t ON t.txn_id = r.txn_id
+                             WHERE t.wallet_id=?) AS refunds
                     """;
-            try (PreparedStatement ps = conn.prepareStatement(txSql)) {
+            try (PreparedStatement ps = conn.prepareStatement(countSql)) {
                 ps.setString(1, walletId);
+                ps.setString(2, walletId);
                 ResultSet rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    ObjectNode tx = mapper.createObjectNode();
-                    tx.put("txnId", rs.getString("txn_id"));
-                    tx.put("type", rs.getString("type"));
-                    tx.put("amount", rs.getDouble("amount"));
-                    tx.put("direction", rs.getString("direction"));
-                    tx.put("status", rs.getString("status"));
-                    tx.put("description", rs.getString("description"));
-                    tx.put("createdAt", rs.getString("created_at"));
-                    txArray.add(tx);
-                }
+                rs.next();
+                json.put("transactionCount", rs.getInt("txns"));
+                json.put("refundCount", rs.getInt("refunds"));
             }
+
+            ArrayNode txArray = mapper.createArrayNode();
             json.set("transactions", txArray);
+            json.put("transactionsCursor", transactionsPage(conn, walletId, null, DEFAULT_PAGE, txArray));
 
             // 5) Refunds
             ArrayNode refundArray = mapper.createArrayNode();
-            String refundSql = """
-                    SELECT refund_id, txn_id, refunded_amount, refund_method, status, created_at
-                    FROM refunds
-                    WHERE txn_id IN (SELECT txn_id FROM wallet_transactions WHERE wallet_id=?)
-                    """;
-            try (PreparedStatement ps = conn.prepareStatement(refundSql)) {
-                ps.setString(1, walletId);
-                ResultSet rs = ps.executeQuery();
-
-                while (rs.next()) {
-                    ObjectNode r = mapper.createObjectNode();
-                    r.put("refundId", rs.getString("refund_id"));
-                    r.put("txnId", rs.getString("txn_id"));
-                    r.put("amount", rs.getDouble("refunded_amount"));
-                    r.put("method", rs.getString("refund_method"));
-                    r.put("status", rs.getString("status"));
-                    r.put("createdAt", rs.getString("created_at"));
-                    refundArray.add(r);
-                }
-            }
             json.set("refunds", refundArray);
+            json.put("refundsCursor", refundsPage(conn, walletId, null, DEFAULT_PAGE, refundArray));
 
-            // 6) Coupons + usage + rules
-            ArrayNode couponArray = mapper.createArrayNode();
-            String couponSql = """
-                SELECT c.*, COALESCE(u.usage_count,0) AS used
-                FROM coupons c
-                LEFT JOIN coupon_usage u ON c.coupon_id = u.coupon_id AND u.user_id=?
-                WHERE c.status='active'
-                  AND c.valid_from <= NOW()
-                  AND c.valid_to >= NOW()
-                """;
-
-            try (PreparedStatement ps = conn.prepareStatement(couponSql)) {
-                ps.setString(1, userId);
-                ResultSet rs = ps.executeQuery();
+            // 6) Coupons (from the catalog) + this user's usage
+            Map<String, Integer> usage = getCouponUsage(conn, userId);
 
-                String ruleSql = "SELECT rule_type, rule_value FROM coupon_rules WHERE coupon_id=?";
-                try (PreparedStatement rulePs = conn.prepareStatement(ruleSql)) {
-                    while (rs.next()) {
-                        ObjectNode c = mapper.createObjectNode();
-                        String couponId = rs.getString("coupon_id");
-
-                        c.put("couponId", couponId);
-                        c.put("couponCode", rs.getString("coupon_code"));
-                        c.put("title", rs.getString("title"));
-                        c.put("description", rs.getString("description"));
-                        c.put("termsConditions", rs.getString("terms_conditions"));
-                        c.put("discountType", rs.getString("discount_type"));
-                        c.put("discountValue", rs.getDouble("discount_value"));
-                        c.put("maxDiscount",
-                                rs.getObject("max_discount") == null ? null : rs.getDouble("max_discount"));
-                        c.put("validFrom", rs.getString("valid_from"));
-                        c.put("validTo", rs.getString("valid_to"));
-                        c.put("usageLimitPerUser", rs.getInt("usage_limit_per_user"));
-                        c.put("usageCountByUser", rs.getInt("used"));
-                        c.put("minOrderValue", rs.getDouble("min_order_value"));
-                        c.put("applicablePlatform", rs.getString("applicable_platform"));
-                        c.put("status", rs.getString("status"));
-
-                        ArrayNode rulesArray = mapper.createArrayNode();
-                        rulePs.setString(1, couponId);
-                        try (ResultSet ruleRs = rulePs.executeQuery()) {
-                            while (ruleRs.next()) {
-                                ObjectNode rule = mapper.createObjectNode();
-                                rule.put("ruleType", ruleRs.getString("rule_type"));
-                                rule.put("ruleValue", ruleRs.getString("rule_value"));
-                                rulesArray.add(rule);
-                            }
-                        }
-                        c.set("rules", rulesArray);
-                        couponArray.add(c);
-                    }
+            ArrayNode couponArray = mapper.createArrayNode();
+            for (Coupon coupon : coupons.live()) {
+                ObjectNode c = mapper.createObjectNode();
+                c.put("couponId", coupon.couponId());
+                c.put("couponCode", coupon.code());
+                c.put("title", coupon.title());
+                c.put("description", coupon.description());
+                c.put("termsConditions", coupon.termsConditions());
+                c.put("discountType", coupon.discountType());
+                c.put("discountValue", coupon.discountValue());
+                c.put("maxDiscount", coupon.maxDiscount());
+                c.put("validFrom", coupon.validFrom());
+                c.put("validTo", coupon.validTo());
+                c.put("usageLimitPerUser", coupon.usageLimitPerUser() == null ? 0 : coupon.usageLimitPerUser());
+                c.put("usageCountByUser", usage.getOrDefault(coupon.couponId(), 0));
+                c.put("minOrderValue", coupon.minOrderValue() == null ? 0.0 : coupon.minOrderValue());
+                c.put("applicablePlatform", coupon.applicablePlatform());
+                c.put("status", coupon.status());
+
+                ArrayNode rulesArray = mapper.createArrayNode();
+                for (Coupon.Rule rule : coupon.rules()) {
+                    ObjectNode r = mapper.createObjectNode();
+                    r.put("ruleType", rule.type());
+                    r.put("ruleValue", rule.value());
+                    rulesArray.add(r);
                 }
+                c.set("rules", rulesArray);
+                couponArray.add(c);
             }
             json.set("coupons", couponArray);
 
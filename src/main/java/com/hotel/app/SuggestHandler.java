@@ -0,0 +1,50 @@
+package com.hotel.app;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.catalog.SuggestIndex;
+import com.hotel.catalog.SuggestIndex.Suggestion;
+import com.hotel.server.Router;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.IOException;
+import java.util.Map;
+
+// GET /search/suggest?q=<partial text>&limit=<1..10> → ranked city/state/property completions
+public class SuggestHandler implements HttpHandler {
+
+    private final SuggestIndex suggestIndex;
+
+    public SuggestHandler(SuggestIndex suggestIndex) {
+        this.suggestIndex = suggestIndex;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        Map<String, String> params = Router.queryParams(exchange);
+        String q = params.getOrDefault("q", "");
+
+        int limit = SuggestIndex.MAX_SUGGESTIONS;
+        String limitParam = params.get("limit");
+        if (limitParam != null && !limitParam.isBlank()) {
+            try {
+                limit = Math.max(1, Math.min(SuggestIndex.MAX_SUGGESTIONS, Integer.parseInt(limitParam.trim())));
+            } catch (NumberFormatException e) {
+                Json.sendError(exchange, 400, "limit must be a number");
+                return;
+            }
+        }
+
+        ArrayNode out = Json.MAPPER.createArrayNode();
+        for (Suggestion s : suggestIndex.suggest(q, limit)) {
+            ObjectNode node = out.addObject();
+            node.put("text", s.text());
+            node.put("type", s.type().name().toLowerCase());
+            node.put("count", s.count());
+            if (s.rating() == null) node.putNull("rating");
+            else node.put("rating", s.rating());
+        }
+        Json.send(exchange, 200, out);
+    }
+}
@@ -0,0 +1,161 @@
+package com.hotel.booking;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The only place Booking_Status changes.
+ *
+ * <pre>
+ *   PENDING ──CONFIRM / PAY──▶ CONFIRMED ──COMPLETE (after checkout)──▶ COMPLETED
+ *      │  ▲                        │
+ *      │  └──────RESCHEDULE────────┤
+ *      └──CANCEL / GUEST_CANCEL / EXPIRE──▶ CANCELLED ◀──CANCEL / GUEST_CANCEL──┘
+ * </pre>
+ *
+ * A transition is one conditional UPDATE ... WHERE Booking_ID = ? AND status IN (from).
+ * The check and the write are a single statement, so a concurrent cancel and confirm
+ * cannot both win, and the common case costs one round trip. Only a rejected transition
+ * reads the row again, to tell "not found" from "wrong state".
+ *
+ * A booking with no Booking_Status counts as PENDING, which is the state BookingHandler
+ * creates it in.
+ */
+public final class BookingStateMachine {
+
+    public enum Status { PENDING, CONFIRMED, COMPLETED, CANCELLED }
+
+    public enum Transition {
+        CONFIRM(Status.CONFIRMED, "", Status.PENDING),
+        PAY(Status.CONFIRMED, ", Hold_Expires_At = NULL", Status.PENDING),
+        COMPLETE(Status.COMPLETED, "", Status.CONFIRMED),
+        RESCHEDULE(Status.PENDING, "", Status.PENDING, Status.CONFIRMED),
+        CANCEL(Status.CANCELLED, "", Status.PENDING, Status.CONFIRMED),
+        GUEST_CANCEL(Status.CANCELLED, ", Refund_Status = 'Refund Initiated'", Status.PENDING, Status.CONFIRMED),
+        EXPIRE(Status.CANCELLED, ", Hold_Expires_At = NULL, Refund_Status = "
+                + "CASE WHEN Wallet_Amount_Deducted > 0 THEN 'Refund Initiated' ELSE Refund_Status END",
+                Status.PENDING);
+
+        final Status to;
+        final String alsoSet;
+        final List<Status> from;
+
+        Transition(Status to, String alsoSet, Status... from) {
+            this.to = to;
+            this.alsoSet = alsoSet;
+            this.from = List.of(from);
+        }
+
+        public Status to() {
+            return to;
+        }
+    }
+
+    public enum Outcome { APPLIED, REJECTED, NOT_FOUND }
+
+    /** What happened, and the status the booking has now (null when not found). */
+    public record Result(Outcome outcome, String status) {
+        public boolean applied() {
+            return outcome == Outcome.APPLIED;
+        }
+    }
+
+    private static final String CURRENT_STATUS = "UPPER(COALESCE(Booking_Status, 'PENDING'))";
+
+    private BookingStateMachine() {
+    }
+
+    /** SQL condition: the booking is currently in one of {@code statuses}. */
+    public static String statusIn(Status... statuses) {
+        return statusIn(Arrays.asList(statuses));
+    }
+
+    private static String statusIn(List<Status> statuses) {
+        return CURRENT_STATUS + " IN (" + statuses.stream()
+                .map(s -> "'" + s.name() + "'").collect(Collectors.joining(", ")) + ")";
+    }
+
+    public static Result apply(Connection conn, String bookingId, Transition transition) throws SQLException {
+        return apply(conn, bookingId, transition, Map.of());
+    }
+
+    /**
+     * Applies {@code transition} to one booking. {@code columns} (column name → value,
+     * written in map order) are set by the same UPDATE, and only if the transition is
+     * allowed.
+     */
+    public static Result apply(Connection conn, String bookingId, Transition transition,
+                               Map<String, Object> columns) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE bookings_info SET Booking_Status = ?").append(transition.alsoSet);
+        for (String column : columns.keySet()) sql.append(", ").append(column).append(" = ?");
+        sql.append(" WHERE Booking_ID = ? AND ").append(guard(transition));
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int idx = 1;
+            ps.setString(idx++, transition.to.name());
+            for (Object value : columns.values()) ps.setObject(idx++, value);
+            ps.setString(idx, bookingId);
+            if (ps.executeUpdate() > 0) return new Result(Outcome.APPLIED, transition.to.name());
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT " + CURRENT_STATUS + " FROM bookings_info WHERE Booking_ID = ?")) {
+            ps.setString(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? new Result(Outcome.REJECTED, rs.getString(1)) : new Result(Outcome.NOT_FOUND, null);
+            }
+        }
+    }
+
+    /**
+     * Applies {@code transition} to every booking in {@code bookingIds} that allows it, and
+     * returns those ids. The allowed rows are locked with SELECT ... FOR UPDATE and then
+     * updated with one statement, so this must run inside the caller's transaction.
+     */
+    public static List<String> applyAll(Connection conn, Collection<String> bookingIds, Transition transition)
+            throws SQLException {
+        if (bookingIds.isEmpty()) return List.of();
+
+        List<String> allowed = new ArrayList<>();
+        String select = "SELECT Booking_ID FROM bookings_info WHERE Booking_ID IN (" + placeholders(bookingIds.size())
+                + ") AND " + guard(transition) + " FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(select)) {
+            int idx = 1;
+            for (String id : bookingIds) ps.setString(idx++, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) allowed.add(rs.getString(1));
+            }
+        }
+        if (allowed.isEmpty()) return allowed;
+
+        String update = "UPDATE bookings_info SET Booking_Status = ?" + transition.alsoSet
+                + " WHERE Booking_ID IN (" + placeholders(allowed.size()) + ")";
+        try (PreparedStatement ps = conn.prepareStatement(update)) {
+            int idx = 1;
+            ps.setString(idx++, transition.to.name());
+            for (String id : allowed) ps.setString(idx++, id);
+            ps.executeUpdate();
+        }
+        return allowed;
+    }
+
+    private static String guard(Transition transition) {
+        String guard = statusIn(transition.from);
+        // A stay can only be completed once the guest has checked out
+        if (transition == Transition.COMPLETE) guard += " AND Check_Out_Date <= CURDATE()";
+        return guard;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
@@ -0,0 +1,22 @@
+package com.hotel.catalog;
+
+import java.util.List;
+
+/**
+ * Notified on the catalog refresh thread after a new snapshot is published.
+ * Use it to keep derived structures (search indexes etc.) in step with the catalog.
+ *
+ * The first call after start() has previous == an empty snapshot and every
+ * listing in {@code changed}.
+ */
+public interface CatalogListener {
+
+    /**
+     * @param previous snapshot that was replaced
+     * @param current  snapshot now being served
+     * @param changed  listings in {@code current} that are new or whose columns changed
+     * @param removed  listings from {@code previous} that are gone (deleted or no longer Active)
+     */
+    void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                          List<Listing> changed, List<Listing> removed);
+}
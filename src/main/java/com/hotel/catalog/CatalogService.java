@@ -0,0 +1,268 @@
+package com.hotel.catalog;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.catalog.Listing.Kind;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the in-memory hotel/PG catalog that the browse endpoints read from.
+ *
+ * Refreshes run on one background thread and never on the request path:
+ *   - listingChanged()/listingsChanged() from the partner write handlers after they commit
+ *     re-read just those rows (insert, update and delete all go through this)
+ *   - every catalog.refresh.seconds (default 300) a full reload catches anything else
+ *     written to the tables directly
+ *
+ * Requests arriving while a refresh is pending are coalesced into that refresh.
+ * A failed refresh keeps serving the previous snapshot and is retried as a full reload.
+ */
+public final class CatalogService {
+
+    private static final int IN_BATCH = 500;
+    private static final int RETRY_SECONDS = 30;
+
+    private final DbConfig dbConfig;
+    private final long refreshSeconds;
+
+    private final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.EMPTY);
+    private final List<CatalogListener> listeners = new CopyOnWriteArrayList<>();
+
+    // ===== Pending work, drained by the refresh thread =====
+    private final Set<String> pendingHotels = ConcurrentHashMap.newKeySet();
+    private final Set<String> pendingPgs = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullReloadRequested = new AtomicBoolean();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "catalog-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CatalogService(DbConfig dbConfig) {
+        this.dbConfig = dbConfig;
+        this.refreshSeconds = dbConfig.getIntSetting("catalog.refresh.seconds", 300);
+    }
+
+    /** Register before start(); listeners then see the initial load as a full change. */
+    public void addListener(CatalogListener listener) {
+        listeners.add(listener);
+    }
+
+    /** Loads the catalog synchronously, then starts the periodic fallback refresh. */
+    public void start() throws SQLException {
+        Future<?> initial = worker.submit(() -> {
+            publish(loadAll());
+            return null;
+        });
+        try {
+            initial.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) throw sql;
+            throw new IllegalStateException("Initial catalog load failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading catalog", e);
+        }
+
+        worker.scheduleWithFixedDelay(() -> {
+            fullReloadRequested.set(true);
+            runRefresh();
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    public CatalogSnapshot snapshot() {
+        return current.get();
+    }
+
+    // ===== Change notifications from write handlers =====
+
+    public void listingChanged(Kind kind, String id) {
+        listingsChanged(kind, List.of(id));
+    }
+
+    public void listingsChanged(Kind kind, Collection<String> ids) {
+        Set<String> pending = kind == Kind.HOTEL ? pendingHotels : pendingPgs;
+        for (String id : ids) {
+            if (id != null && !id.isBlank()) pending.add(id.trim());
+        }
+        refreshAsync();
+    }
+
+    public void refreshAsync() {
+        if (refreshScheduled.compareAndSet(false, true)) {
+            worker.execute(this::runRefresh);
+        }
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    // ===== Refresh (catalog-refresh thread only) =====
+
+    private void runRefresh() {
+        refreshScheduled.set(false);
+
+        boolean full = fullReloadRequested.getAndSet(false);
+        List<String> hotelIds = drain(pendingHotels);
+        List<String> pgIds = drain(pendingPgs);
+        if (!full && hotelIds.isEmpty() && pgIds.isEmpty()) return;
+
+        try {
+            if (full) {
+                publish(loadAll());
+            } else {
+                publish(loadChanged(hotelIds, pgIds));
+            }
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.err.println("⚠ Catalog refresh failed, serving previous snapshot: " + e.getMessage());
+            fullReloadRequested.set(true);
+            worker.schedule(this::refreshAsync, RETRY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    private List<String> drain(Set<String> pending) {
+        List<String> ids = new ArrayList<>();
+        for (Iterator<String> it = pending.iterator(); it.hasNext(); ) {
+            ids.add(it.next());
+            it.remove();
+        }
+        return ids;
+    }
+
+    private CatalogSnapshot loadAll() throws SQLException {
+        LinkedHashMap<String, Listing> hotels = new LinkedHashMap<>();
+        LinkedHashMap<String, Listing> pgs = new LinkedHashMap<>();
+
+        try (Connection conn = dbConfig.getPartnerDataSource().getConnection()) {
+            loadInto(conn, Kind.HOTEL, null, hotels);
+            loadInto(conn, Kind.PG, null, pgs);
+        }
+        return next(hotels, pgs);
+    }
+
+    // Re-reads only the given ids and applies them on top of the current snapshot
+    private CatalogSnapshot loadChanged(List<String> hotelIds, List<String> pgIds) throws SQLException {
+        CatalogSnapshot prev = current.get();
+        LinkedHashMap<String, Listing> hotels = new LinkedHashMap<>(prev.byId(Kind.HOTEL));
+        LinkedHashMap<String, Listing> pgs = new LinkedHashMap<>(prev.byId(Kind.PG));
+
+        try (Connection conn = dbConfig.getPartnerDataSource().getConnection()) {
+            reload(conn, Kind.HOTEL, hotelIds, hotels);
+            reload(conn, Kind.PG, pgIds, pgs);
+        }
+        return next(hotels, pgs);
+    }
+
+    private void reload(Connection conn, Kind kind, List<String> ids, Map<String, Listing> target)
+            throws SQLException {
+        for (int from = 0; from < ids.size(); from += IN_BATCH) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + IN_BATCH));
+
+            Map<String, Listing> fresh = new HashMap<>();
+            loadInto(conn, kind, batch, fresh);
+
+            for (String id : batch) {
+                Listing listing = fresh.get(id);
+                if (listing == null) {
+                    target.remove(id);           // deleted or no longer Active
+                } else {
+                    target.put(id, listing);     // existing keys keep their position
+                }
+            }
+        }
+    }
+
+    private void loadInto(Connection conn, Kind kind, List<String> ids, Map<String, Listing> target)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM ").append(kind.table)
+                .append(" WHERE Status = 'Active'");
+        if (ids != null) {
+            sql.append(" AND ").append(kind.idColumn).append(" IN (")
+               .append(String.join(",", Collections.nCopies(ids.size(), "?"))).append(")");
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            if (ids != null) {
+                for (int i = 0; i < ids.size(); i++) ps.setString(i + 1, ids.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Listing listing = Listing.fromRow(kind, rs, dbConfig.getImageBaseUrl());
+                    if (listing.getId() != null) target.put(listing.getId(), listing);
+                }
+            }
+        }
+    }
+
+    private CatalogSnapshot next(LinkedHashMap<String, Listing> hotels, LinkedHashMap<String, Listing> pgs) {
+        return new CatalogSnapshot(current.get().getVersion() + 1, System.currentTimeMillis(), hotels, pgs);
+    }
+
+    private void publish(CatalogSnapshot next) {
+        CatalogSnapshot prev = current.getAndSet(next);
+        refreshes.incrementAndGet();
+
+        if (listeners.isEmpty()) return;
+
+        List<Listing> changed = new ArrayList<>();
+        List<Listing> removed = new ArrayList<>();
+        for (Kind kind : Kind.values()) {
+            Map<String, Listing> before = prev.byId(kind);
+            Map<String, Listing> after = next.byId(kind);
+
+            for (Listing listing : after.values()) {
+                if (!listing.sameContent(before.get(listing.getId()))) changed.add(listing);
+            }
+            for (Listing listing : before.values()) {
+                if (!after.containsKey(listing.getId())) removed.add(listing);
+            }
+        }
+        if (changed.isEmpty() && removed.isEmpty()) return;
+
+        for (CatalogListener listener : listeners) {
+            try {
+                listener.onCatalogChanged(prev, next, changed, removed);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    // ===== GET /server/catalog → snapshot stats as JSON =====
+    public HttpHandler statsHandler() {
+        return this::sendStats;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        CatalogSnapshot snap = current.get();
+        ObjectNode node = Json.object();
+        node.put("version", snap.getVersion());
+        node.put("loadedAt", snap.getLoadedAtMillis());
+        node.put("hotels", snap.hotels().size());
+        node.put("payingGuests", snap.pgs().size());
+        node.put("refreshes", refreshes.get());
+        node.put("failedRefreshes", failures.get());
+        node.put("refreshSeconds", refreshSeconds);
+        Json.send(exchange, 200, node);
+    }
+}
@@ -0,0 +1,87 @@
+package com.hotel.catalog;
+
+import com.hotel.catalog.Listing.Kind;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable view of every active hotel and PG. A new instance replaces the
+ * old one on each refresh, so readers never see a half-applied change.
+ */
+public final class CatalogSnapshot {
+
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(0, 0, new LinkedHashMap<>(), new LinkedHashMap<>());
+
+    private final long version;
+    private final long loadedAtMillis;
+    private final Map<String, Listing> hotelsById;
+    private final Map<String, Listing> pgsById;
+    private final List<Listing> hotels;
+    private final List<Listing> pgs;
+    private final Map<String, Integer> hotelPositions;
+    private final Map<String, Integer> pgPositions;
+
+    CatalogSnapshot(long version, long loadedAtMillis,
+                    LinkedHashMap<String, Listing> hotelsById, LinkedHashMap<String, Listing> pgsById) {
+        this.version = version;
+        this.loadedAtMillis = loadedAtMillis;
+        this.hotelsById = Collections.unmodifiableMap(hotelsById);
+        this.pgsById = Collections.unmodifiableMap(pgsById);
+        this.hotels = Collections.unmodifiableList(new ArrayList<>(hotelsById.values()));
+        this.pgs = Collections.unmodifiableList(new ArrayList<>(pgsById.values()));
+        this.hotelPositions = positions(this.hotels);
+        this.pgPositions = positions(this.pgs);
+    }
+
+    private static Map<String, Integer> positions(List<Listing> listings) {
+        Map<String, Integer> positions = new HashMap<>(listings.size() * 2);
+        for (int i = 0; i < listings.size(); i++) {
+            positions.put(listings.get(i).getId(), i);
+        }
+        return positions;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getLoadedAtMillis() {
+        return loadedAtMillis;
+    }
+
+    /** Active listings of one kind, in table order. */
+    public List<Listing> listings(Kind kind) {
+        return kind == Kind.HOTEL ? hotels : pgs;
+    }
+
+    public List<Listing> hotels() {
+        return hotels;
+    }
+
+    public List<Listing> pgs() {
+        return pgs;
+    }
+
+    public Listing get(Kind kind, String id) {
+        return id == null ? null : byId(kind).get(id);
+    }
+
+    /** Index of the listing in {@link #listings(Kind)}, or -1 if absent. Lets index lookups keep table order. */
+    public int position(Kind kind, String id) {
+        Integer pos = (kind == Kind.HOTEL ? hotelPositions : pgPositions).get(id);
+        return pos == null ? -1 : pos;
+    }
+
+    public int size() {
+        return hotels.size() + pgs.size();
+    }
+
+    Map<String, Listing> byId(Kind kind) {
+        return kind == Kind.HOTEL ? hotelsById : pgsById;
+    }
+}
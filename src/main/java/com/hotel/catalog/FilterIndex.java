@@ -0,0 +1,257 @@
+package com.hotel.catalog;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Bitmap index over the hotel catalog for /filterHotels.
+ *
+ * Bit i stands for {@code snapshot.hotels().get(i)}. There is one bitmap per hotel type,
+ * room type, customization, partner, amenity and distinct City/State value, plus one for
+ * "has available rooms". Any filter combination is then a handful of AND/OR operations,
+ * and only the surviving rows are read.
+ *
+ * Room prices are also kept as a primitive index: long paise sorted ascending, with the
+ * row each price belongs to. Price ranges are two binary searches, and price-sorted
+ * results are read off the index in order, stopping at the limit.
+ *
+ * A set of bitmaps is built once per snapshot on the catalog thread. Readers take
+ * {@link #current()} once per request, so the bitmaps and the rows they point at always
+ * come from the same snapshot.
+ */
+public final class FilterIndex implements CatalogListener {
+
+    private volatile Bitmaps current = new Bitmaps(CatalogSnapshot.EMPTY);
+
+    public Bitmaps current() {
+        return current;
+    }
+
+    @Override
+    public void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                                 List<Listing> changed, List<Listing> removed) {
+        // Positions shift on insert/delete, so rebuild rather than patch
+        this.current = new Bitmaps(current);
+    }
+
+    /**
+     * Immutable bitmaps for one snapshot. Returned BitSets are shared: callers AND/OR into
+     * their own copy (start from {@link #all()}) and never modify them.
+     */
+    public static final class Bitmaps {
+
+        private static final BitSet NONE = new BitSet();
+
+        private final List<Listing> hotels;
+
+        private final Map<String, BitSet> hotelTypes;
+        private final Map<String, BitSet> roomTypes;
+        private final Map<String, BitSet> customizations;
+        private final Map<String, BitSet> partners;
+        private final Map<String, BitSet> ids;
+        private final Map<String, BitSet> amenities;   // one per comma-separated Amenities entry
+        private final Map<String, BitSet> places;      // one per distinct City or State value
+        private final BitSet available;
+
+        // Price index: rows with a price, ordered by (paise, position)
+        private final long[] pricePaise;
+        private final int[] priceRows;
+        private final BitSet unpriced;
+
+        Bitmaps(CatalogSnapshot snapshot) {
+            this.hotels = snapshot.hotels();
+
+            hotelTypes = byValue(l -> l.getString("Hotel_Type"));
+            roomTypes = byValue(l -> l.getString("Room_Type"));
+            customizations = byValue(l -> l.getString("Customization"));
+            partners = byValue(l -> l.getString("Partner_ID"));
+            ids = byValue(Listing::getId);
+
+            amenities = new HashMap<>();
+            places = new HashMap<>();
+            available = new BitSet(hotels.size());
+
+            for (int i = 0; i < hotels.size(); i++) {
+                Listing hotel = hotels.get(i);
+
+                String list = hotel.getString("Amenities");
+                if (list != null) {
+                    for (String amenity : list.split(",")) {
+                        set(amenities, key(amenity), i);
+                    }
+                }
+                set(places, key(hotel.getString("City")), i);
+                set(places, key(hotel.getString("State")), i);
+
+                Double rooms = hotel.getNumber("Available_Rooms");
+                if (rooms != null && rooms > 0) available.set(i);
+            }
+
+            unpriced = new BitSet(hotels.size());
+            List<Integer> priced = new ArrayList<>(hotels.size());
+            for (int i = 0; i < hotels.size(); i++) {
+                if (hotels.get(i).getRoomPricePaise() == null) unpriced.set(i);
+                else priced.add(i);
+            }
+            // List.sort is stable, so equal prices stay in table order
+            priced.sort(Comparator.comparingLong(i -> hotels.get(i).getRoomPricePaise()));
+
+            pricePaise = new long[priced.size()];
+            priceRows = new int[priced.size()];
+            for (int i = 0; i < priced.size(); i++) {
+                priceRows[i] = priced.get(i);
+                pricePaise[i] = hotels.get(priceRows[i]).getRoomPricePaise();
+            }
+        }
+
+        private static long paise(double rupees) {
+            return Math.round(rupees * 100);
+        }
+
+        private Map<String, BitSet> byValue(Function<Listing, String> column) {
+            Map<String, BitSet> bitmaps = new HashMap<>();
+            for (int i = 0; i < hotels.size(); i++) {
+                set(bitmaps, key(column.apply(hotels.get(i))), i);
+            }
+            return bitmaps;
+        }
+
+        private static void set(Map<String, BitSet> bitmaps, String key, int bit) {
+            if (key == null || key.isEmpty()) return;
+            bitmaps.computeIfAbsent(key, k -> new BitSet()).set(bit);
+        }
+
+        private static String key(String value) {
+            return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+        }
+
+        // ===== Bitmaps (exact, case-insensitive) =====
+
+        /** A fresh bitmap with every hotel set; the starting point for a query. */
+        public BitSet all() {
+            BitSet bits = new BitSet(hotels.size());
+            bits.set(0, hotels.size());
+            return bits;
+        }
+
+        public BitSet hotelType(String value) {
+            return hotelTypes.getOrDefault(key(value), NONE);
+        }
+
+        public BitSet roomType(String value) {
+            return roomTypes.getOrDefault(key(value), NONE);
+        }
+
+        public BitSet customization(String value) {
+            return customizations.getOrDefault(key(value), NONE);
+        }
+
+        public BitSet partner(String value) {
+            return partners.getOrDefault(key(value), NONE);
+        }
+
+        public BitSet available() {
+            return available;
+        }
+
+        /** Just the hotel with this id, if it is in the snapshot. */
+        public BitSet hotel(String id) {
+            return ids.getOrDefault(key(id), NONE);
+        }
+
+        // ===== Bitmaps (substring): OR of every distinct value containing the needle =====
+
+        /** Hotels whose City or State contains {@code needle}. */
+        public BitSet place(String needle) {
+            return containing(places, needle);
+        }
+
+        /** Hotels with an Amenities entry containing {@code needle}. */
+        public BitSet amenity(String needle) {
+            return containing(amenities, needle);
+        }
+
+        private static BitSet containing(Map<String, BitSet> bitmaps, String needle) {
+            String n = key(needle);
+            BitSet bits = new BitSet();
+            for (Map.Entry<String, BitSet> e : bitmaps.entrySet()) {
+                if (e.getKey().contains(n)) bits.or(e.getValue());
+            }
+            return bits;
+        }
+
+        // ===== Price index =====
+
+        /** Hotels priced between {@code min} and {@code max} rupees, inclusive. */
+        public BitSet priceBetween(double min, double max) {
+            int from = lowerBound(paise(min));
+            int to = lowerBound(paise(max) + 1);
+
+            BitSet bits = new BitSet(hotels.size());
+            for (int i = from; i < to; i++) bits.set(priceRows[i]);
+            return bits;
+        }
+
+        /** First index in pricePaise whose value is >= {@code paise}. */
+        private int lowerBound(long paise) {
+            int lo = 0, hi = pricePaise.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (pricePaise[mid] < paise) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * Up to {@code limit} rows from {@code hits} that pass {@code check}, ordered by price
+         * the way MySQL orders them: NULL prices first when ascending, last when descending,
+         * and equal prices in table order. Only walks the index until the limit is reached.
+         */
+        public List<Listing> byPrice(BitSet hits, Predicate<Listing> check, boolean ascending, int limit) {
+            List<Listing> out = new ArrayList<>(Math.min(limit, hits.cardinality()));
+
+            if (ascending) {
+                collectUnpriced(hits, check, limit, out);
+                for (int i = 0; i < priceRows.length && out.size() < limit; i++) {
+                    collect(priceRows[i], hits, check, out);
+                }
+            } else {
+                // Walk runs of equal price from the top, each run front to back
+                int end = priceRows.length;
+                while (end > 0 && out.size() < limit) {
+                    int start = lowerBound(pricePaise[end - 1]);
+                    for (int i = start; i < end && out.size() < limit; i++) {
+                        collect(priceRows[i], hits, check, out);
+                    }
+                    end = start;
+                }
+                collectUnpriced(hits, check, limit, out);
+            }
+            return out;
+        }
+
+        private void collectUnpriced(BitSet hits, Predicate<Listing> check, int limit, List<Listing> out) {
+            for (int i = unpriced.nextSetBit(0); i >= 0 && out.size() < limit; i = unpriced.nextSetBit(i + 1)) {
+                collect(i, hits, check, out);
+            }
+        }
+
+        private void collect(int row, BitSet hits, Predicate<Listing> check, List<Listing> out) {
+            if (!hits.get(row)) return;
+            Listing hotel = hotels.get(row);
+            if (check.test(hotel)) out.add(hotel);
+        }
+
+        // ===== Rows =====
+
+        public Listing row(int bit) {
+            return hotels.get(bit);
+        }
+
+        public int size() {
+            return hotels.size();
+        }
+    }
+}
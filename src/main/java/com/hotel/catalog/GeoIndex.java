@@ -0,0 +1,145 @@
+package com.hotel.catalog;
+
+import com.hotel.catalog.Listing.Kind;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Spatial index over Hotel_Location ("lat,lng") for the nearby endpoints.
+ *
+ * Listings are bucketed into a fixed lat/lng grid of {@link #CELL_DEGREES} cells. A radius
+ * query only visits the cells overlapping the circle's bounding box and computes exact
+ * haversine distances for the listings in them; the nearest N are kept in a bounded heap.
+ * Listings with a missing or malformed location are simply not indexed.
+ *
+ * One immutable grid per snapshot is built on the catalog thread and swapped in.
+ */
+public final class GeoIndex implements CatalogListener {
+
+    static final double CELL_DEGREES = 0.05;            // ~5.5 km north-south
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final int LNG_COLUMNS = (int) Math.round(360 / CELL_DEGREES);
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    /** A listing with its distance from the query point. */
+    public record Hit(Listing listing, double distanceKm) {}
+
+    private record Point(Listing listing, double lat, double lng) {}
+
+    private volatile Map<Kind, Map<Long, List<Point>>> grids = build(CatalogSnapshot.EMPTY);
+
+    // ===== Query =====
+
+    /**
+     * Up to {@code limit} listings of {@code kind} within {@code radiusKm} of (lat, lng) that
+     * pass {@code filter}, nearest first.
+     */
+    public List<Hit> nearest(Kind kind, double lat, double lng, double radiusKm, int limit,
+                             Predicate<Listing> filter) {
+        Map<Long, List<Point>> grid = grids.get(kind);
+
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double cosLat = Math.cos(Math.toRadians(lat));
+        // Near the poles one degree of longitude shrinks to nothing; fall back to every column
+        double lngSpan = cosLat < 1e-6 ? 180 : Math.min(180, radiusKm / (KM_PER_DEGREE * cosLat));
+
+        int latFrom = cell(Math.max(-90, lat - latSpan));
+        int latTo = cell(Math.min(90, lat + latSpan));
+        int lngFrom = cell(lng - lngSpan);
+        int lngTo = cell(lng + lngSpan);
+        if (lngTo - lngFrom + 1 >= LNG_COLUMNS) {   // whole band: visit each column once
+            lngFrom = cell(-180);
+            lngTo = lngFrom + LNG_COLUMNS - 1;
+        }
+
+        // Max-heap on distance: head is the farthest hit kept so far
+        PriorityQueue<Hit> heap = new PriorityQueue<>(limit + 1,
+                Comparator.comparingDouble(Hit::distanceKm).reversed());
+
+        for (int la = latFrom; la <= latTo; la++) {
+            for (int lo = lngFrom; lo <= lngTo; lo++) {
+                List<Point> bucket = grid.get(key(la, wrapLng(lo)));
+                if (bucket == null) continue;
+
+                for (Point p : bucket) {
+                    double d = haversineKm(lat, lng, p.lat, p.lng);
+                    if (d > radiusKm) continue;
+                    if (heap.size() == limit && d >= heap.peek().distanceKm()) continue;
+                    if (!filter.test(p.listing)) continue;
+
+                    heap.offer(new Hit(p.listing, d));
+                    if (heap.size() > limit) heap.poll();
+                }
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits;
+    }
+
+    public static double haversineKm(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    // ===== Build (catalog thread) =====
+
+    @Override
+    public void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                                 List<Listing> changed, List<Listing> removed) {
+        grids = build(current);
+    }
+
+    private static Map<Kind, Map<Long, List<Point>>> build(CatalogSnapshot snapshot) {
+        Map<Kind, Map<Long, List<Point>>> grids = new EnumMap<>(Kind.class);
+        for (Kind kind : Kind.values()) {
+            Map<Long, List<Point>> grid = new HashMap<>();
+            for (Listing listing : snapshot.listings(kind)) {
+                double[] latLng = parseLocation(listing.getString("Hotel_Location"));
+                if (latLng == null) continue;
+                grid.computeIfAbsent(key(cell(latLng[0]), wrapLng(cell(latLng[1]))), k -> new ArrayList<>())
+                    .add(new Point(listing, latLng[0], latLng[1]));
+            }
+            grids.put(kind, grid);
+        }
+        return grids;
+    }
+
+    /** "lat,lng" → {lat, lng}, or null when missing, malformed, not finite or out of range. */
+    public static double[] parseLocation(String location) {
+        if (location == null) return null;
+        String[] parts = location.split(",");
+        if (parts.length != 2) return null;
+        try {
+            double lat = Double.parseDouble(parts[0].trim());
+            double lng = Double.parseDouble(parts[1].trim());
+            if (!Double.isFinite(lat) || !Double.isFinite(lng)) return null;
+            if (Math.abs(lat) > 90 || Math.abs(lng) > 180 || (lat == 0 && lng == 0)) return null;
+            return new double[]{lat, lng};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // ===== Grid =====
+
+    private static int cell(double degrees) {
+        return (int) Math.floor(degrees / CELL_DEGREES);
+    }
+
+    // Keeps queries that cross the antimeridian on the right columns
+    private static int wrapLng(int lngCell) {
+        int min = cell(-180);
+        return Math.floorMod(lngCell - min, LNG_COLUMNS) + min;
+    }
+
+    private static long key(int latCell, int lngCell) {
+        return ((long) latCell << 32) | (lngCell & 0xffffffffL);
+    }
+}
@@ -0,0 +1,149 @@
+package com.hotel.catalog;
+
+import com.hotel.utilities.PriceParser;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One active row of Hotels_info or paying_guest_info, frozen at load time.
+ *
+ * Columns are kept exactly as JDBC returned them (SELECT * order), and the
+ * derived values every browse request needs - image URLs and the numeric
+ * room price - are computed once here instead of per request.
+ */
+public final class Listing {
+
+    public enum Kind {
+        HOTEL("Hotels_info", "Hotel_ID", "Hotel_Name", "Hotel_Type", "Hotel_Images"),
+        PG("paying_guest_info", "PG_ID", "PG_Name", "PG_Type", "PG_Images");
+
+        final String table;
+        final String idColumn;
+        final String nameColumn;
+        final String typeColumn;
+        final String imagesColumn;
+
+        Kind(String table, String idColumn, String nameColumn, String typeColumn, String imagesColumn) {
+            this.table = table;
+            this.idColumn = idColumn;
+            this.nameColumn = nameColumn;
+            this.typeColumn = typeColumn;
+            this.imagesColumn = imagesColumn;
+        }
+
+        public String idColumn() {
+            return idColumn;
+        }
+
+        public String imagesColumn() {
+            return imagesColumn;
+        }
+    }
+
+    private final Kind kind;
+    private final String id;
+    private final Map<String, Object> columns;
+    private final List<String> images;
+    private final List<String> legacyImages;
+    private final Long roomPricePaise;
+
+    private Listing(Kind kind, String id, Map<String, Object> columns, String imageBaseUrl) {
+        this.kind = kind;
+        this.id = id;
+        this.columns = Collections.unmodifiableMap(columns);
+
+        String rawImages = getString(kind.imagesColumn);
+        this.images = ListingImages.forApp(rawImages, imageBaseUrl);
+        this.legacyImages = kind == Kind.HOTEL
+                ? ListingImages.legacyHotel(rawImages)
+                : ListingImages.legacyPg(rawImages);
+        this.roomPricePaise = columns.get("Room_Price_Paise") instanceof Number n
+                ? Long.valueOf(n.longValue())
+                : PriceParser.castPaise(columns.get("Room_Price"));
+    }
+
+    static Listing fromRow(Kind kind, ResultSet rs, String imageBaseUrl) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        int cols = meta.getColumnCount();
+
+        Map<String, Object> columns = new LinkedHashMap<>(cols * 2);
+        for (int i = 1; i <= cols; i++) {
+            columns.put(meta.getColumnLabel(i), rs.getObject(i));
+        }
+        return new Listing(kind, rs.getString(kind.idColumn), columns, imageBaseUrl);
+    }
+
+    // ===== Accessors =====
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /** All columns in table order; values are the raw JDBC objects (may be null). */
+    public Map<String, Object> columns() {
+        return columns;
+    }
+
+    public Object get(String column) {
+        return columns.get(column);
+    }
+
+    public String getString(String column) {
+        Object value = columns.get(column);
+        return value == null ? null : value.toString();
+    }
+
+    /** Numeric column value, or null when NULL or not a number. */
+    public Double getNumber(String column) {
+        Object value = columns.get(column);
+        if (value == null) return null;
+        if (value instanceof Number n) return n.doubleValue();
+        try {
+            return Double.parseDouble(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public String getName() {
+        return getString(kind.nameColumn);
+    }
+
+    public String getType() {
+        return getString(kind.typeColumn);
+    }
+
+    /** Image URLs built from DbConfig.imageBaseUrl (used by /hotels/filter). */
+    public List<String> getImages() {
+        return images;
+    }
+
+    /** Image URLs in the emulator form /hotels and /paying_guest have always returned. */
+    public List<String> getLegacyImages() {
+        return legacyImages;
+    }
+
+    /** Room_Price_Paise, or for rows not yet backfilled the legacy CAST of Room_Price. */
+    public Long getRoomPricePaise() {
+        return roomPricePaise;
+    }
+
+    /** Room price in rupees; null when the listing has no price. */
+    public Double getRoomPrice() {
+        return roomPricePaise == null ? null : PriceParser.toRupees(roomPricePaise);
+    }
+
+    boolean sameContent(Listing other) {
+        return other != null && columns.equals(other.columns);
+    }
+}
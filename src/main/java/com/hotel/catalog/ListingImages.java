@@ -0,0 +1,91 @@
+package com.hotel.catalog;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Turns the comma separated Hotel_Images / PG_Images column into client URLs.
+ * Each endpoint historically built them differently; the three forms are kept
+ * as they were so responses don't change.
+ */
+final class ListingImages {
+
+    private static final String LEGACY_BASE = "http://10.0.2.2:8080/hotel_images/";
+
+    private ListingImages() {
+    }
+
+    // /hotels/filter: relative names resolved against DbConfig.imageBaseUrl
+    static List<String> forApp(String raw, String imageBaseUrl) {
+        if (raw == null || raw.isBlank()) return Collections.emptyList();
+
+        List<String> list = new ArrayList<>();
+        for (String p : raw.split(",")) {
+            String t = p.trim();
+            if (t.isEmpty()) continue;
+
+            if (t.startsWith("http://") || t.startsWith("https://")) {
+                list.add(t);
+            } else {
+                list.add(imageBaseUrl + t.replaceAll("^/+", ""));
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    // /hotels
+    static List<String> legacyHotel(String raw) {
+        if (raw == null || raw.isEmpty()) return Collections.emptyList();
+
+        List<String> list = new ArrayList<>();
+        for (String name : raw.split(",")) {
+            name = name.trim();
+            if (!name.startsWith("http")) {
+                name = LEGACY_BASE + name;
+            }
+            list.add(name);
+        }
+        return Collections.unmodifiableList(list);
+    }
+
+    // /paying_guest
+    static List<String> legacyPg(String raw) {
+        if (raw == null || raw.isEmpty()) return Collections.emptyList();
+
+        List<String> list = new ArrayList<>();
+        for (String u : raw.split(",")) {
+            String orig = u.trim();
+            if (orig.isEmpty()) continue;
+
+            // Strip brackets/quotes
+            while (orig.startsWith("[") || orig.startsWith("\"")) orig = orig.substring(1);
+            while (orig.endsWith("]") || orig.endsWith("\"")) orig = orig.substring(0, orig.length() - 1);
+            orig = orig.trim().replace("\\", "/");
+
+            // Full URL case
+            if (orig.startsWith("http://") || orig.startsWith("https://")) {
+                list.add(orig.replace("localhost", "10.0.2.2").trim());
+                continue;
+            }
+
+            // Encode each path segment
+            String clean = orig.replaceAll("\\.\\.", "").replaceAll("//+", "/");
+            if (clean.startsWith("/")) clean = clean.substring(1);
+            StringBuilder encoded = new StringBuilder();
+            for (String seg : clean.split("/")) {
+                if (seg.isEmpty()) continue;
+                String enc = URLEncoder.encode(seg, StandardCharsets.UTF_8).replace("+", "%20");
+                if (encoded.length() > 0) encoded.append("/");
+                encoded.append(enc);
+            }
+
+            if (encoded.length() > 0) {
+                list.add(LEGACY_BASE + encoded);
+            }
+        }
+        return Collections.unmodifiableList(list);
+    }
+}
@@ -0,0 +1,132 @@
+package com.hotel.catalog;
+
+import com.hotel.catalog.Listing.Kind;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Inverted index over listing name, City, State and Country, one per listing kind.
+ *
+ * Terms are kept sorted, so a query word matches every indexed word it is a prefix of
+ * ("ban" finds "Bangalore"); several query words must all match (AND). The index follows
+ * the catalog through CatalogListener diffs instead of being rebuilt.
+ *
+ * Updates run on the catalog thread while searches run on request threads. A search
+ * may briefly miss a listing that was just added; results are always resolved against
+ * the caller's snapshot, so a deleted listing is never returned.
+ */
+public final class SearchIndex implements CatalogListener {
+
+    private static final String[] FIELDS = {"City", "State", "Country"};
+
+    private final Map<Kind, ConcurrentSkipListMap<String, Set<String>>> postings = new EnumMap<>(Kind.class);
+
+    public SearchIndex() {
+        for (Kind kind : Kind.values()) {
+            postings.put(kind, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    // ===== Query =====
+
+    /** Listings of {@code kind} matching every word of {@code query}, in table order. */
+    public List<Listing> search(CatalogSnapshot snapshot, Kind kind, String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) return snapshot.listings(kind);
+
+        ConcurrentSkipListMap<String, Set<String>> terms = postings.get(kind);
+
+        // Most selective word first, so the intersection shrinks as early as possible
+        List<Set<String>> perWord = new ArrayList<>(words.size());
+        for (String word : words) {
+            Set<String> ids = prefixMatches(terms, word);
+            if (ids.isEmpty()) return List.of();
+            perWord.add(ids);
+        }
+        perWord.sort(Comparator.comparingInt(Set::size));
+
+        Set<String> result = new HashSet<>(perWord.get(0));
+        for (int i = 1; i < perWord.size() && !result.isEmpty(); i++) {
+            result.retainAll(perWord.get(i));
+        }
+
+        List<Listing> listings = new ArrayList<>(result.size());
+        for (String id : result) {
+            Listing listing = snapshot.get(kind, id);
+            if (listing != null) listings.add(listing);
+        }
+        listings.sort(Comparator.comparingInt(l -> snapshot.position(kind, l.getId())));
+        return listings;
+    }
+
+    private Set<String> prefixMatches(ConcurrentSkipListMap<String, Set<String>> terms, String prefix) {
+        NavigableMap<String, Set<String>> range =
+                terms.subMap(prefix, true, prefix + Character.MAX_VALUE, true);
+        if (range.isEmpty()) return Set.of();
+
+        Iterator<Set<String>> it = range.values().iterator();
+        Set<String> first = it.next();
+        if (!it.hasNext()) return first;
+
+        Set<String> union = new HashSet<>(first);
+        while (it.hasNext()) union.addAll(it.next());
+        return union;
+    }
+
+    // ===== Maintenance (catalog thread) =====
+
+    @Override
+    public void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                                 List<Listing> changed, List<Listing> removed) {
+        for (Listing listing : removed) {
+            unindex(listing);
+        }
+        for (Listing listing : changed) {
+            Listing old = previous.get(listing.getKind(), listing.getId());
+            if (old != null) unindex(old);
+            index(listing);
+        }
+    }
+
+    private void index(Listing listing) {
+        ConcurrentSkipListMap<String, Set<String>> terms = postings.get(listing.getKind());
+        for (String term : terms(listing)) {
+            terms.computeIfAbsent(term, t -> ConcurrentHashMap.newKeySet()).add(listing.getId());
+        }
+    }
+
+    private void unindex(Listing listing) {
+        ConcurrentSkipListMap<String, Set<String>> terms = postings.get(listing.getKind());
+        for (String term : terms(listing)) {
+            terms.computeIfPresent(term, (t, ids) -> {
+                ids.remove(listing.getId());
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private Set<String> terms(Listing listing) {
+        Set<String> terms = new HashSet<>(tokenize(listing.getName()));
+        for (String field : FIELDS) {
+            terms.addAll(tokenize(listing.getString(field)));
+        }
+        return terms;
+    }
+
+    /** Lower-cased words of letters and digits; everything else separates words. */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) return List.of();
+
+        List<String> words = new ArrayList<>(4);
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!word.isEmpty()) words.add(word);
+        }
+        return words;
+    }
+
+    public int termCount(Kind kind) {
+        return postings.get(kind).size();
+    }
+}
@@ -0,0 +1,171 @@
+package com.hotel.catalog;
+
+import com.hotel.catalog.Listing.Kind;
+
+import java.util.*;
+
+/**
+ * Prefix trie of city, state and property names for search-as-you-type.
+ *
+ * Every node stores its best {@link #MAX_SUGGESTIONS} completions up front, so a lookup is
+ * one walk down the query's characters and never visits the subtree. Completions are ranked
+ * by how many listings they cover, then by average rating.
+ *
+ * Multi-word entries are also reachable from each later word ("york" finds "New York").
+ * The trie is immutable; each catalog change builds a new one on the catalog thread and
+ * swaps it in.
+ */
+public final class SuggestIndex implements CatalogListener {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    public enum Type { CITY, STATE, HOTEL, PG }
+
+    /** One completion: display text plus the listings it stands for. */
+    public record Suggestion(String text, Type type, int count, Double rating) {}
+
+    private static final Comparator<Suggestion> RANK = Comparator
+            .comparingInt(Suggestion::count).reversed()
+            .thenComparing(Suggestion::rating, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(Suggestion::text, String.CASE_INSENSITIVE_ORDER);
+
+    private volatile Node root = new Builder().build();
+
+    // ===== Query =====
+
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) return List.of();
+
+        Node node = root;
+        for (int i = 0; i < key.length() && node != null; i++) {
+            node = node.child(key.charAt(i));
+        }
+        if (node == null) return List.of();
+
+        Suggestion[] top = node.top;
+        return List.of(top).subList(0, Math.min(limit, top.length));
+    }
+
+    // ===== Rebuild (catalog thread) =====
+
+    @Override
+    public void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                                 List<Listing> changed, List<Listing> removed) {
+        root = build(current);
+    }
+
+    private static Node build(CatalogSnapshot snapshot) {
+        Map<String, Tally> tallies = new HashMap<>();
+        for (Kind kind : Kind.values()) {
+            Type nameType = kind == Kind.HOTEL ? Type.HOTEL : Type.PG;
+            for (Listing listing : snapshot.listings(kind)) {
+                Double rating = listing.getNumber("Rating");
+                tally(tallies, listing.getName(), nameType, rating);
+                tally(tallies, listing.getString("City"), Type.CITY, rating);
+                tally(tallies, listing.getString("State"), Type.STATE, rating);
+            }
+        }
+
+        Builder builder = new Builder();
+        for (Tally t : tallies.values()) {
+            Suggestion s = t.toSuggestion();
+            String key = normalize(s.text());
+            builder.insert(key, s);
+            for (int i = key.indexOf(' '); i >= 0; i = key.indexOf(' ', i + 1)) {
+                builder.insert(key.substring(i + 1), s);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void tally(Map<String, Tally> tallies, String text, Type type, Double rating) {
+        if (text == null || text.isBlank()) return;
+        String display = text.trim();
+        tallies.computeIfAbsent(type + ":" + normalize(display), k -> new Tally(display, type)).add(rating);
+    }
+
+    /** Lower-cased words joined by single spaces, the same words SearchIndex matches on. */
+    static String normalize(String text) {
+        return String.join(" ", SearchIndex.tokenize(text));
+    }
+
+    // ===== Trie =====
+
+    private static final class Node {
+        final char[] keys;          // sorted, for binary search
+        final Node[] children;
+        final Suggestion[] top;
+
+        Node(char[] keys, Node[] children, Suggestion[] top) {
+            this.keys = keys;
+            this.children = children;
+            this.top = top;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i < 0 ? null : children[i];
+        }
+    }
+
+    private static final class Builder {
+        final TreeMap<Character, Builder> children = new TreeMap<>();
+        final List<Suggestion> own = new ArrayList<>(1);
+
+        void insert(String key, Suggestion s) {
+            Builder node = this;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+            }
+            node.own.add(s);
+        }
+
+        Node build() {
+            char[] keys = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+
+            // Candidates: what ends here plus each child's top list
+            Set<Suggestion> candidates = new HashSet<>(own);
+            int i = 0;
+            for (Map.Entry<Character, Builder> e : children.entrySet()) {
+                keys[i] = e.getKey();
+                nodes[i] = e.getValue().build();
+                Collections.addAll(candidates, nodes[i].top);
+                i++;
+            }
+
+            List<Suggestion> ranked = new ArrayList<>(candidates);
+            ranked.sort(RANK);
+            Suggestion[] top = ranked.subList(0, Math.min(MAX_SUGGESTIONS, ranked.size()))
+                    .toArray(new Suggestion[0]);
+            return new Node(keys, nodes, top);
+        }
+    }
+
+    private static final class Tally {
+        final String text;
+        final Type type;
+        int count;
+        int rated;
+        double ratingSum;
+
+        Tally(String text, Type type) {
+            this.text = text;
+            this.type = type;
+        }
+
+        void add(Double rating) {
+            count++;
+            if (rating != null) {
+                rated++;
+                ratingSum += rating;
+            }
+        }
+
+        Suggestion toSuggestion() {
+            Double avg = rated == 0 ? null : Math.round(ratingSum / rated * 10) / 10.0;
+            return new Suggestion(text, type, count, avg);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.hotel.coupon;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * What a coupon is being applied to. Any fact may be null when the client did not send it;
+ * a rule that needs a missing fact is not met. {@code firstBooking} is only asked for when
+ * a coupon has a first_booking rule, so callers can look it up lazily.
+ */
+public record Cart(String platform,
+                   String hotelId,
+                   String hotelType,
+                   String city,
+                   LocalDate checkIn,
+                   LocalDate checkOut,
+                   double baseAmount,
+                   BooleanSupplier firstBooking) {
+
+    /** Nights between check-in and check-out, or -1 when either date is missing. */
+    public long nights() {
+        return checkIn == null || checkOut == null ? -1 : ChronoUnit.DAYS.between(checkIn, checkOut);
+    }
+}
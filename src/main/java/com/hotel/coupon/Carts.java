@@ -0,0 +1,66 @@
+package com.hotel.coupon;
+
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.CatalogSnapshot;
+import com.hotel.catalog.Listing;
+import com.hotel.catalog.Listing.Kind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Builds the {@link Cart} a coupon is checked against, the same way for validating a
+ * coupon and for redeeming it at booking time.
+ */
+public final class Carts {
+
+    private Carts() {
+    }
+
+    /**
+     * Property type and city come from the catalog when {@code hotelId} is known to it, and
+     * from the caller's values otherwise. Whether this is the user's first booking is only
+     * looked up on {@code conn} if a coupon's rules ask, and at most once.
+     */
+    public static Cart of(CatalogService catalog, Connection conn, String userId, String platform,
+                          String hotelId, String hotelType, String city,
+                          LocalDate checkIn, LocalDate checkOut, double baseAmount) {
+        if (hotelId != null) {
+            CatalogSnapshot snapshot = catalog.snapshot();
+            Listing listing = snapshot.get(Kind.HOTEL, hotelId);
+            if (listing == null) listing = snapshot.get(Kind.PG, hotelId);
+            if (listing != null) {
+                hotelType = listing.getKind() == Kind.PG ? "PG" : listing.getType();
+                city = listing.getString("City");
+            }
+        }
+        return new Cart(platform, hotelId, hotelType, city, checkIn, checkOut, baseAmount,
+                firstBooking(conn, userId));
+    }
+
+    private static BooleanSupplier firstBooking(Connection conn, String userId) {
+        return new BooleanSupplier() {
+            private Boolean first;
+
+            @Override
+            public boolean getAsBoolean() {
+                if (first == null) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "SELECT 1 FROM bookings_info WHERE User_ID=? LIMIT 1")) {
+                        ps.setString(1, userId);
+                        try (ResultSet rs = ps.executeQuery()) {
+                            first = !rs.next();
+                        }
+                    } catch (SQLException e) {
+                        throw new IllegalStateException("Could not check booking history", e);
+                    }
+                }
+                return first;
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+package com.hotel.coupon;
+
+import java.util.List;
+
+/**
+ * One active coupon as loaded by {@link CouponCatalog}, with its rules. The validity
+ * window is kept so that coupons can be checked in memory between catalog refreshes.
+ * {@code eligibility} is the rules compiled by {@link CouponRules}.
+ */
+public record Coupon(String couponId,
+                     String code,
+                     String title,
+                     String description,
+                     String termsConditions,
+                     String discountType,
+                     double discountValue,
+                     Double maxDiscount,
+                     Double minOrderValue,
+                     Integer usageLimitPerUser,
+                     Integer usageLimitTotal,
+                     String validFrom,
+                     String validTo,
+                     long validFromMillis,
+                     long validToMillis,
+                     String applicablePlatform,
+                     String status,
+                     List<Rule> rules,
+                     CouponRule eligibility) {
+
+    public record Rule(String type, String value) {}
+
+    /** This coupon with {@code rules}, compiled. */
+    Coupon withRules(List<Rule> rules) {
+        return new Coupon(couponId, code, title, description, termsConditions, discountType, discountValue,
+                maxDiscount, minOrderValue, usageLimitPerUser, usageLimitTotal, validFrom, validTo, validFromMillis, validToMillis,
+                applicablePlatform, status, List.copyOf(rules),
+                CouponRules.compile(code, applicablePlatform, minOrderValue, rules));
+    }
+
+    /** Null when {@code cart} meets every rule, otherwise why it does not. */
+    public String reject(Cart cart) {
+        return eligibility.reject(cart);
+    }
+
+    /** Whether redemptions across all users are capped (coupons.usage_limit_total). */
+    public boolean hasTotalLimit() {
+        return usageLimitTotal != null && usageLimitTotal > 0;
+    }
+
+    /** Whether {@code usedCount} earlier uses leave this user any. */
+    public boolean usableAfter(int usedCount) {
+        return usageLimitPerUser == null || usageLimitPerUser <= 0 || usedCount < usageLimitPerUser;
+    }
+
+    /** Whether {@code nowMillis} falls inside valid_from..valid_to. */
+    public boolean liveAt(long nowMillis) {
+        return validFromMillis <= nowMillis && nowMillis <= validToMillis;
+    }
+
+    /** The discount this coupon gives on {@code baseAmount}, before usage and rule checks. */
+    public double discountOn(double baseAmount) {
+        if ("percentage".equalsIgnoreCase(discountType)) {
+            double discount = baseAmount * (discountValue / 100.0);
+            return maxDiscount != null ? Math.min(discount, maxDiscount) : discount;
+        }
+        return discountValue;
+    }
+}
@@ -0,0 +1,218 @@
+package com.hotel.coupon;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * In-memory catalog of active coupons and their rules, indexed by normalised code.
+ *
+ * Coupons and rules are loaded together by one LEFT JOIN, and each coupon's rules are
+ * compiled into a {@link CouponRule} there and then. Every coupon that is active and
+ * not yet past valid_to is loaded, including ones that start later. Validity windows are
+ * then checked in memory with {@link Coupon#liveAt}, so a coupon goes live or expires on
+ * time between reloads.
+ *
+ * Reloads run on one background thread every coupons.refresh.seconds (default 60), and
+ * only on that schedule. Nothing in this service edits coupons or coupon_rules. They are
+ * maintained outside it, so an edit is served within one refresh interval. A failed reload
+ * keeps serving the previous catalog. Per-user usage (coupon_usage) changes with every booking
+ * and is not cached here.
+ */
+public final class CouponCatalog {
+
+    private static final String LOAD_SQL = """
+            SELECT c.coupon_id, c.coupon_code, c.title, c.description, c.terms_conditions,
+                   c.discount_type, c.discount_value, c.max_discount, c.min_order_value,
+                   c.usage_limit_per_user, c.usage_limit_total, c.valid_from, c.valid_to, c.applicable_platform, c.status,
+                   r.rule_type, r.rule_value
+            FROM coupons c
+            LEFT JOIN coupon_rules r ON r.coupon_id = c.coupon_id
+            WHERE c.status='active' AND c.valid_from IS NOT NULL AND c.valid_to >= NOW()
+            ORDER BY c.coupon_id
+            """;
+
+    private record Snapshot(Map<String, Coupon> byCode, List<Coupon> all, long loadedAtMillis) {}
+
+    private final DbConfig dbConfig;
+    private final long refreshSeconds;
+
+    private final AtomicReference<Snapshot> current =
+            new AtomicReference<>(new Snapshot(Map.of(), List.of(), 0));
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "coupon-refresh");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CouponCatalog(DbConfig dbConfig) {
+        this.dbConfig = dbConfig;
+        this.refreshSeconds = dbConfig.getIntSetting("coupons.refresh.seconds", 60);
+    }
+
+    /** Loads the catalog synchronously, then starts the periodic reload. */
+    public void start() throws SQLException {
+        current.set(load());
+        refreshes.incrementAndGet();
+        System.out.println("✅ Coupons loaded: " + current.get().all().size());
+
+        worker.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    /** The coupon for {@code code} if it is live right now, else null. */
+    public Coupon find(String code) {
+        if (code == null) return null;
+        Coupon coupon = current.get().byCode().get(normalise(code));
+        return coupon != null && coupon.liveAt(System.currentTimeMillis()) ? coupon : null;
+    }
+
+    // Also past valid_to, as long as the coupon is still loaded; for giving back uses
+    Coupon loaded(String code) {
+        return code == null ? null : current.get().byCode().get(normalise(code));
+    }
+
+    /** Every coupon that is live right now, in coupon_id order. */
+    public List<Coupon> live() {
+        long now = System.currentTimeMillis();
+        List<Coupon> live = new ArrayList<>();
+        for (Coupon coupon : current.get().all()) {
+            if (coupon.liveAt(now)) live.add(coupon);
+        }
+        return live;
+    }
+
+    /**
+     * The live coupon giving the largest discount on {@code cart}, or null if none applies.
+     * {@code usable} filters out coupons this user cannot redeem any more (usage limits).
+     * Ties go to the lower coupon_id.
+     */
+    public Coupon best(Cart cart, Predicate<Coupon> usable) {
+        Coupon best = null;
+        double bestDiscount = 0;
+        for (Coupon coupon : live()) {
+            if (!usable.test(coupon)) continue;
+            if (coupon.reject(cart) != null) continue;
+            double discount = Math.min(cart.baseAmount(), coupon.discountOn(cart.baseAmount()));
+            if (discount > bestDiscount) {
+                best = coupon;
+                bestDiscount = discount;
+            }
+        }
+        return best;
+    }
+
+    static String normalise(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    // ===== Reload (coupon-refresh thread) =====
+
+    private void refresh() {
+        try {
+            current.set(load());
+            refreshes.incrementAndGet();
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            System.err.println("⚠ Coupon refresh failed, serving previous catalog: " + e.getMessage());
+        }
+    }
+
+    private Snapshot load() throws SQLException {
+        Map<String, Coupon> byCode = new LinkedHashMap<>();
+        List<Coupon> all = new ArrayList<>();
+
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(LOAD_SQL);
+             ResultSet rs = ps.executeQuery()) {
+
+            Coupon coupon = null;
+            List<Coupon.Rule> rules = new ArrayList<>();
+
+            while (rs.next()) {
+                if (coupon == null || !coupon.couponId().equals(rs.getString("coupon_id"))) {
+                    if (coupon != null) add(coupon.withRules(rules), byCode, all);
+                    coupon = fromRow(rs);
+                    rules.clear();
+                }
+                String ruleType = rs.getString("rule_type");
+                if (ruleType != null) rules.add(new Coupon.Rule(ruleType, rs.getString("rule_value")));
+            }
+            if (coupon != null) add(coupon.withRules(rules), byCode, all);
+        }
+        return new Snapshot(Collections.unmodifiableMap(byCode), List.copyOf(all), System.currentTimeMillis());
+    }
+
+    private static void add(Coupon coupon, Map<String, Coupon> byCode, List<Coupon> all) {
+        all.add(coupon);
+        // Codes should be unique; if two live coupons share one, the lower coupon_id wins
+        if (coupon.code() != null) byCode.putIfAbsent(normalise(coupon.code()), coupon);
+    }
+
+    // Without rules; load() adds them with withRules() once all of the coupon's rows are read
+    private static Coupon fromRow(ResultSet rs) throws SQLException {
+        return new Coupon(
+                rs.getString("coupon_id"),
+                rs.getString("coupon_code"),
+                rs.getString("title"),
+                rs.getString("description"),
+                rs.getString("terms_conditions"),
+                rs.getString("discount_type"),
+                rs.getDouble("discount_value"),
+                rs.getObject("max_discount") == null ? null : rs.getDouble("max_discount"),
+                rs.getObject("min_order_value") == null ? null : rs.getDouble("min_order_value"),
+                rs.getObject("usage_limit_per_user") == null ? null : rs.getInt("usage_limit_per_user"),
+                rs.getObject("usage_limit_total") == null ? null : rs.getInt("usage_limit_total"),
+                rs.getString("valid_from"),
+                rs.getString("valid_to"),
+                rs.getTimestamp("valid_from").getTime(),
+                rs.getTimestamp("valid_to").getTime(),
+                rs.getString("applicable_platform"),
+                rs.getString("status"),
+                List.of(),
+                CouponRule.NONE);
+    }
+
+    // ===== GET /server/coupons → catalog stats as JSON =====
+    public HttpHandler statsHandler() {
+        return this::sendStats;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        Snapshot snap = current.get();
+        ObjectNode node = Json.object();
+        node.put("loadedAt", snap.loadedAtMillis());
+        node.put("coupons", snap.all().size());
+        node.put("live", live().size());
+        node.put("refreshes", refreshes.get());
+        node.put("failedRefreshes", failures.get());
+        node.put("refreshSeconds", refreshSeconds);
+        Json.send(exchange, 200, node);
+    }
+}
@@ -0,0 +1,23 @@
+package com.hotel.coupon;
+
+/**
+ * A compiled coupon condition. Built once per coupon by {@link CouponRules#compile} when
+ * the catalog loads, then evaluated against carts with no parsing or database access.
+ */
+@FunctionalInterface
+public interface CouponRule {
+
+    CouponRule NONE = cart -> null;
+
+    /** Null when {@code cart} meets the rule, otherwise the reason shown to the user. */
+    String reject(Cart cart);
+
+    default CouponRule and(CouponRule next) {
+        if (this == NONE) return next;
+        if (next == NONE) return this;
+        return cart -> {
+            String reason = reject(cart);
+            return reason != null ? reason : next.reject(cart);
+        };
+    }
+}
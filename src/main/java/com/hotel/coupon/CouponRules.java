@@ -0,0 +1,169 @@
+package com.hotel.coupon;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Compiles coupon_rules rows into {@link CouponRule}s.
+ *
+ * rule_type is matched case-insensitively, with spaces and dashes read as underscores.
+ * List values are comma-separated.
+ * <pre>
+ *   platform          android,ios,web        cart platform is one of these
+ *   min_nights        2                      stay is at least this many nights
+ *   max_nights        7                      stay is at most this many nights
+ *   hotel_type        Resort,PG              property type is one of these
+ *   city              Goa,Pune               property city is one of these
+ *   hotel_id          H1001,H1002            property is one of these
+ *   first_booking     true | false           user has (not) booked before
+ *   day_of_week       FRI,SAT                check-in falls on one of these days
+ *   min_advance_days  14                     check-in is at least this many days away
+ *   min_amount        1500                   base amount is at least this much
+ * </pre>
+ * A rule of an unknown type or with a value that does not parse makes the coupon
+ * unusable, and is logged when the catalog loads. Granting a discount nobody configured
+ * is worse than refusing one.
+ */
+public final class CouponRules {
+
+    private static final String UNAVAILABLE = "Coupon is not available";
+
+    private CouponRules() {
+    }
+
+    /**
+     * One rule for a coupon: its coupons columns (applicable_platform, min_order_value) and
+     * then every coupon_rules row, all of which must hold. applicable_platform is only
+     * checked for carts that name a platform, since older clients do not send one.
+     */
+    public static CouponRule compile(String couponCode, String applicablePlatform, Double minOrderValue,
+                                     List<Coupon.Rule> rules) {
+        CouponRule compiled = CouponRule.NONE;
+
+        Set<String> platforms = values(applicablePlatform);
+        if (!platforms.isEmpty() && !platforms.contains("ALL")) {
+            compiled = compiled.and(cart -> cart.platform() == null
+                    || platforms.contains(key(cart.platform())) ? null : "Not available on this platform");
+        }
+        if (minOrderValue != null) {
+            compiled = compiled.and(minAmount(minOrderValue));
+        }
+
+        for (Coupon.Rule rule : rules) {
+            try {
+                compiled = compiled.and(compile(rule));
+            } catch (IllegalArgumentException e) {
+                System.err.println("⚠ Coupon " + couponCode + " disabled, bad rule " + rule.type() + "="
+                        + rule.value() + ": " + e.getMessage());
+                compiled = compiled.and(cart -> UNAVAILABLE);
+            }
+        }
+        return compiled;
+    }
+
+    private static CouponRule compile(Coupon.Rule rule) {
+        String type = rule.type() == null ? "" : rule.type().trim().toLowerCase(Locale.ROOT).replaceAll("[\\s-]+", "_");
+        String value = rule.value() == null ? "" : rule.value().trim();
+
+        switch (type) {
+            case "platform": {
+                Set<String> allowed = nonEmpty(values(value));
+                return cart -> cart.platform() != null && allowed.contains(key(cart.platform()))
+                        ? null : "Not available on this platform";
+            }
+            case "min_nights": {
+                long min = Long.parseLong(value);
+                String reason = "Minimum stay of " + min + " nights required";
+                return cart -> cart.nights() >= min ? null : reason;
+            }
+            case "max_nights": {
+                long max = Long.parseLong(value);
+                String reason = "Valid for stays of up to " + max + " nights";
+                return cart -> cart.nights() >= 0 && cart.nights() <= max ? null : reason;
+            }
+            case "hotel_type":
+            case "property_type": {
+                Set<String> allowed = nonEmpty(values(value));
+                return cart -> cart.hotelType() != null && allowed.contains(key(cart.hotelType()))
+                        ? null : "Not valid for this property type";
+            }
+            case "city": {
+                Set<String> allowed = nonEmpty(values(value));
+                return cart -> cart.city() != null && allowed.contains(key(cart.city()))
+                        ? null : "Not valid in this city";
+            }
+            case "hotel_id": {
+                Set<String> allowed = nonEmpty(values(value));
+                return cart -> cart.hotelId() != null && allowed.contains(key(cart.hotelId()))
+                        ? null : "Not valid for this property";
+            }
+            case "first_booking": {
+                boolean first = flag(value);
+                String reason = first ? "Only valid on your first booking" : "Not valid on your first booking";
+                return cart -> cart.firstBooking() != null && cart.firstBooking().getAsBoolean() == first
+                        ? null : reason;
+            }
+            case "day_of_week":
+            case "checkin_day": {
+                Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+                for (String day : nonEmpty(values(value))) days.add(day(day));
+                return cart -> cart.checkIn() != null && days.contains(cart.checkIn().getDayOfWeek())
+                        ? null : "Not valid for this check-in day";
+            }
+            case "min_advance_days": {
+                long days = Long.parseLong(value);
+                String reason = "Book at least " + days + " days in advance";
+                return cart -> cart.checkIn() != null
+                        && ChronoUnit.DAYS.between(LocalDate.now(), cart.checkIn()) >= days ? null : reason;
+            }
+            case "min_amount":
+            case "min_order_value":
+                return minAmount(Double.parseDouble(value));
+            default:
+                throw new IllegalArgumentException("unknown rule type");
+        }
+    }
+
+    private static CouponRule minAmount(double min) {
+        return cart -> cart.baseAmount() >= min ? null : "Minimum order value not met";
+    }
+
+    private static boolean flag(String value) {
+        return switch (value.toLowerCase(Locale.ROOT)) {
+            case "true", "yes", "1" -> true;
+            case "false", "no", "0" -> false;
+            default -> throw new IllegalArgumentException("expected true or false");
+        };
+    }
+
+    private static DayOfWeek day(String value) {
+        for (DayOfWeek day : DayOfWeek.values()) {
+            if (day.name().startsWith(value) && value.length() >= 3) return day;
+        }
+        throw new IllegalArgumentException("unknown day " + value);
+    }
+
+    private static Set<String> values(String csv) {
+        Set<String> values = new HashSet<>();
+        if (csv == null) return values;
+        for (String part : csv.split(",")) {
+            if (!part.isBlank()) values.add(key(part));
+        }
+        return values;
+    }
+
+    private static Set<String> nonEmpty(Set<String> values) {
+        if (values.isEmpty()) throw new IllegalArgumentException("empty value");
+        return values;
+    }
+
+    private static String key(String value) {
+        return value.trim().toUpperCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,408 @@
+package com.hotel.coupon;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coupon redemption accounting, built so that a flash-sale code does not serialise every
+ * booking that uses it on one row.
+ *
+ * Per-user limits (usage_limit_per_user) stay on the user's own coupon_usage row, which
+ * is updated inside the booking transaction with the limit in the WHERE clause. Only
+ * bookings by the same user meet there.
+ *
+ * Global limits (coupons.usage_limit_total) are enforced with quota leased in blocks of
+ * coupons.usage.lease.size (default 50). A booking takes one unit from this server's
+ * in-memory block with {@link #claim}, before it opens its own transaction. Only when the
+ * block is empty does the server go to the coupons row, in a short transaction on a
+ * connection of its own, to lease the next one. Because the booking holds no connection
+ * at that point, a lease never needs a second one from the pool. The coupon can never be
+ * oversold. Units leased but not used when a server stops are not handed back, so a
+ * coupon can undersell by at most one block per server.
+ *
+ * A booking whose hold expires gives its use back: {@link #unredeem} lowers the user's
+ * count in the expiring transaction, and {@link #returned} puts the global unit back in
+ * this server's lease and takes the redemption off the totals.
+ *
+ * Redemption totals are counted in a LongAdder per coupon. Every
+ * coupons.usage.flush.millis (default 1000) a reconciler thread adds what is new to one of
+ * coupons.usage.shards (default 16) rows per coupon in coupon_usage_shards, picked at
+ * random. It then reads the totals back as SUM(used). Counts not flushed yet are retried
+ * on the next round.
+ * <pre>
+ *   ALTER TABLE coupons ADD COLUMN usage_limit_total INT NULL,
+ *     ADD COLUMN usage_leased INT NOT NULL DEFAULT 0;
+ *   CREATE TABLE coupon_usage_shards (
+ *     coupon_id VARCHAR(64) NOT NULL,
+ *     shard     SMALLINT    NOT NULL,
+ *     used      BIGINT      NOT NULL DEFAULT 0,
+ *     PRIMARY KEY (coupon_id, shard)
+ *   );
+ *   -- coupon_usage must be UNIQUE (coupon_id, user_id), as its ON DUPLICATE KEY UPDATE already assumed
+ * </pre>
+ */
+public final class CouponUsage {
+
+    public enum Outcome { CLAIMED, REDEEMED, UNKNOWN, NOT_APPLICABLE, USER_LIMIT, SOLD_OUT }
+
+    /**
+     * The result of {@link #claim} and then {@link #redeem}. Whatever the outcome, pass the
+     * latest one to {@link #committed} or {@link #rolledBack}.
+     */
+    public record Redemption(Outcome outcome, Coupon coupon, boolean tookQuota, String reason) {
+        public boolean claimed() {
+            return outcome == Outcome.CLAIMED;
+        }
+
+        public boolean redeemed() {
+            return outcome == Outcome.REDEEMED;
+        }
+
+        public String message() {
+            return switch (outcome) {
+                case CLAIMED, REDEEMED -> null;
+                case UNKNOWN -> "Invalid or expired coupon";
+                case NOT_APPLICABLE -> reason;
+                case USER_LIMIT -> "Coupon usage limit reached";
+                case SOLD_OUT -> "Coupon has been fully redeemed";
+            };
+        }
+    }
+
+    /** The coupon a booking used, from its Coupon_Code and User_ID. */
+    public record Use(String code, String userId) {}
+
+    // This server's leased units of one coupon's global limit
+    private static final class Quota {
+        final AtomicLong units = new AtomicLong();
+        volatile long soldOutUntil;     // after a lease came back empty, don't ask again before this
+    }
+
+    // Redemptions counted here, and how many of them are already in coupon_usage_shards
+    private static final class Counter {
+        final LongAdder redeemed = new LongAdder();
+        volatile long flushed;          // written by the reconciler thread only
+    }
+
+    private final DbConfig dbConfig;
+    private final CouponCatalog catalog;
+    private final int leaseSize;
+    private final int shards;
+    private final long flushMillis;
+
+    private final Map<String, Quota> quotas = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private volatile Map<String, Long> totals = Map.of();
+
+    private final AtomicLong leases = new AtomicLong();
+    private final AtomicLong failedReconciles = new AtomicLong();
+
+    private final ScheduledExecutorService reconciler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "coupon-usage");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CouponUsage(DbConfig dbConfig, CouponCatalog catalog) {
+        this.dbConfig = dbConfig;
+        this.catalog = catalog;
+        this.leaseSize = Math.max(1, dbConfig.getIntSetting("coupons.usage.lease.size", 50));
+        this.shards = Math.max(1, dbConfig.getIntSetting("coupons.usage.shards", 16));
+        this.flushMillis = dbConfig.getIntSetting("coupons.usage.flush.millis", 1000);
+    }
+
+    public void start() {
+        reconciler.scheduleWithFixedDelay(this::reconcile, 0, flushMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops the reconciler and flushes what it has not written yet. */
+    public void shutdown() {
+        reconciler.shutdown();
+        try {
+            if (reconciler.awaitTermination(5, TimeUnit.SECONDS)) reconcile();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ===== Redemption (request threads) =====
+
+    /**
+     * Looks up {@code code} and, if the coupon has a global limit, takes a unit of it from
+     * this server's lease. Call before borrowing the booking's connection: refilling the
+     * lease borrows one.
+     */
+    public Redemption claim(String code) throws SQLException {
+        Coupon coupon = catalog.find(code);
+        if (coupon == null) return new Redemption(Outcome.UNKNOWN, null, false, null);
+
+        if (coupon.hasTotalLimit() && !take(coupon.couponId())) {
+            return new Redemption(Outcome.SOLD_OUT, coupon, false, null);
+        }
+        return new Redemption(Outcome.CLAIMED, coupon, coupon.hasTotalLimit(), null);
+    }
+
+    /**
+     * Checks a {@link #claim}ed coupon's rules against {@code cart}, then counts it against
+     * {@code userId}'s limit inside the caller's booking transaction, on {@code conn}.
+     * NOT_APPLICABLE (with the rule's reason) when the cart does not qualify, USER_LIMIT
+     * when the user has used it up.
+     */
+    public Redemption redeem(Connection conn, String userId, Redemption claimed, Cart cart) throws SQLException {
+        if (!claimed.claimed()) return claimed;
+        Coupon coupon = claimed.coupon();
+        String reason = coupon.reject(cart);
+        if (reason != null) return new Redemption(Outcome.NOT_APPLICABLE, coupon, claimed.tookQuota(), reason);
+        Outcome outcome = countForUser(conn, coupon, userId) ? Outcome.REDEEMED : Outcome.USER_LIMIT;
+        return new Redemption(outcome, coupon, claimed.tookQuota(), null);
+    }
+
+    /** The booking transaction holding {@code redemption} committed. */
+    public void committed(Redemption redemption) {
+        if (!redemption.redeemed()) return;
+        counters.computeIfAbsent(redemption.coupon().couponId(), id -> new Counter()).redeemed.increment();
+    }
+
+    /** The booking did not go through, for whatever reason; its quota unit is reusable. */
+    public void rolledBack(Redemption redemption) {
+        if (redemption.tookQuota()) giveBack(redemption.coupon().couponId());
+    }
+
+    /**
+     * Takes {@code uses} off the users' coupon_usage counts inside the caller's transaction,
+     * for bookings that are being cancelled without ever having been paid.
+     */
+    public void unredeem(Connection conn, List<Use> uses) throws SQLException {
+        if (uses.isEmpty()) return;
+        String sql = "UPDATE coupon_usage u JOIN coupons c ON c.coupon_id = u.coupon_id " +
+                "SET u.usage_count = u.usage_count - 1 " +
+                "WHERE c.coupon_code = ? AND u.user_id = ? AND u.usage_count > 0";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Use use : uses) {
+                ps.setString(1, use.code());
+                ps.setString(2, use.userId());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+    }
+
+    /** The transaction that called {@link #unredeem} committed: give back quota and totals. */
+    public void returned(List<Use> uses) {
+        for (Use use : uses) {
+            Coupon coupon = catalog.loaded(use.code());
+            if (coupon == null) continue;                  // no longer loaded: past valid_to or inactive
+            counters.computeIfAbsent(coupon.couponId(), id -> new Counter()).redeemed.decrement();
+            if (coupon.hasTotalLimit()) giveBack(coupon.couponId());
+        }
+    }
+
+    /**
+     * Whether {@code coupon}'s global limit is known to be used up. This is a hint for
+     * listing and validation. {@link #redeem} is what enforces the limit.
+     */
+    public boolean soldOut(Coupon coupon) {
+        if (!coupon.hasTotalLimit()) return false;
+        Quota quota = quotas.get(coupon.couponId());
+        if (quota != null && quota.units.get() > 0) return false;
+        return quota != null && quota.soldOutUntil > System.currentTimeMillis()
+                || used(coupon.couponId()) >= coupon.usageLimitTotal();
+    }
+
+    /** Redemptions of {@code couponId} across all servers, as of the last reconcile, plus ours since. */
+    public long used(String couponId) {
+        Counter counter = counters.get(couponId);
+        long unflushed = counter == null ? 0 : counter.redeemed.sum() - counter.flushed;
+        return Math.max(0, totals.getOrDefault(couponId, 0L) + unflushed);
+    }
+
+    // The user's row with the limit in the WHERE clause; the first use inserts it
+    private boolean countForUser(Connection conn, Coupon coupon, String userId) throws SQLException {
+        int limit = coupon.usageLimitPerUser() == null ? 0 : coupon.usageLimitPerUser();
+        String update = "UPDATE coupon_usage SET usage_count = usage_count + 1, last_used_at = NOW() " +
+                "WHERE coupon_id=? AND user_id=? AND (? <= 0 OR usage_count < ?)";
+        String insert = "INSERT IGNORE INTO coupon_usage (usage_id, coupon_id, user_id, usage_count) VALUES (?,?,?,1)";
+
+        for (int attempt = 0; attempt < 2; attempt++) {
+            try (PreparedStatement ps = conn.prepareStatement(update)) {
+                ps.setString(1, coupon.couponId());
+                ps.setString(2, userId);
+                ps.setInt(3, limit);
+                ps.setInt(4, limit);
+                if (ps.executeUpdate() > 0) return true;
+            }
+            try (PreparedStatement ps = conn.prepareStatement(insert)) {
+                ps.setString(1, UUID.randomUUID().toString());
+                ps.setString(2, coupon.couponId());
+                ps.setString(3, userId);
+                if (ps.executeUpdate() > 0) return true;
+            }
+            // Neither: the row exists and is at the limit, or another booking by this user
+            // inserted it between the two statements; one more UPDATE tells which
+        }
+        return false;
+    }
+
+    private boolean take(String couponId) throws SQLException {
+        Quota quota = quotas.computeIfAbsent(couponId, id -> new Quota());
+        while (true) {
+            if (takeUnit(quota)) return true;
+            if (quota.soldOutUntil > System.currentTimeMillis()) return false;
+            synchronized (quota) {
+                // Another thread may have leased while this one waited
+                if (quota.units.get() > 0) continue;
+                long granted = lease(couponId);
+                leases.incrementAndGet();
+                if (granted == 0) {
+                    quota.soldOutUntil = System.currentTimeMillis() + flushMillis;
+                    return false;
+                }
+                quota.units.addAndGet(granted);
+            }
+        }
+    }
+
+    private static boolean takeUnit(Quota quota) {
+        long units;
+        do {
+            units = quota.units.get();
+            if (units <= 0) return false;
+        } while (!quota.units.compareAndSet(units, units - 1));
+        return true;
+    }
+
+    private void giveBack(String couponId) {
+        quotas.computeIfAbsent(couponId, id -> new Quota()).units.incrementAndGet();
+    }
+
+    // Leases up to leaseSize units in a transaction of its own; returns how many were granted
+    private long lease(String couponId) throws SQLException {
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                long limit;
+                long leased;
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "SELECT usage_limit_total, usage_leased FROM coupons WHERE coupon_id=? FOR UPDATE")) {
+                    ps.setString(1, couponId);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (!rs.next() || rs.getObject(1) == null) {
+                            conn.rollback();
+                            return 0;
+                        }
+                        limit = rs.getLong(1);
+                        leased = rs.getLong(2);
+                    }
+                }
+                long granted = Math.max(0, Math.min(leaseSize, limit - leased));
+                if (granted > 0) {
+                    try (PreparedStatement ps = conn.prepareStatement(
+                            "UPDATE coupons SET usage_leased = usage_leased + ? WHERE coupon_id=?")) {
+                        ps.setLong(1, granted);
+                        ps.setString(2, couponId);
+                        ps.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return granted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // ===== Reconcile (coupon-usage thread) =====
+
+    private void reconcile() {
+        try {
+            flush();
+            Map<String, Long> fresh = new HashMap<>();
+            try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+                 PreparedStatement ps = conn.prepareStatement(
+                         "SELECT coupon_id, SUM(used) FROM coupon_usage_shards GROUP BY coupon_id");
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) fresh.put(rs.getString(1), rs.getLong(2));
+            }
+            totals = fresh;
+        } catch (SQLException e) {
+            failedReconciles.incrementAndGet();
+            System.err.println("⚠ Coupon usage reconcile failed, will retry: " + e.getMessage());
+        }
+    }
+
+    private void flush() throws SQLException {
+        Map<Counter, Long> deltas = new HashMap<>();
+        Map<String, Long> byCoupon = new HashMap<>();
+        counters.forEach((couponId, counter) -> {
+            long delta = counter.redeemed.sum() - counter.flushed;    // negative after uses came back
+            if (delta != 0) {
+                deltas.put(counter, delta);
+                byCoupon.put(couponId, delta);
+            }
+        });
+        if (byCoupon.isEmpty()) return;
+
+        String sql = "INSERT INTO coupon_usage_shards (coupon_id, shard, used) VALUES (?,?,?) " +
+                "ON DUPLICATE KEY UPDATE used = used + VALUES(used)";
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            conn.setAutoCommit(false);
+            for (Map.Entry<String, Long> e : byCoupon.entrySet()) {
+                ps.setString(1, e.getKey());
+                ps.setInt(2, ThreadLocalRandom.current().nextInt(shards));
+                ps.setLong(3, e.getValue());
+                ps.addBatch();
+            }
+            try {
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        deltas.forEach((counter, delta) -> counter.flushed += delta);
+    }
+
+    // ===== GET /server/coupon-usage → counters as JSON =====
+    public HttpHandler statsHandler() {
+        return this::sendStats;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        ObjectNode node = Json.object();
+        ObjectNode used = node.putObject("used");
+        for (String couponId : counters.keySet()) used.put(couponId, used(couponId));
+        totals.forEach((couponId, total) -> {
+            if (!used.has(couponId)) used.put(couponId, total);
+        });
+        ObjectNode leased = node.putObject("unitsLeasedHere");
+        quotas.forEach((couponId, quota) -> leased.put(couponId, quota.units.get()));
+        node.put("leases", leases.get());
+        node.put("failedReconciles", failedReconciles.get());
+        node.put("shards", shards);
+        node.put("flushMillis", flushMillis);
+        Json.send(exchange, 200, node);
+    }
+}
@@ -0,0 +1,25 @@
+package com.hotel.events;
+
+import java.time.Instant;
+
+/**
+ * A booking state change, as recorded in booking_outbox by the transaction that made it.
+ *
+ * The booking columns are a snapshot of the row at commit time, so subscribers do not
+ * have to read bookings_info again.
+ */
+public record BookingEvent(long id, Type type, String bookingId, String partnerId, String hotelId,
+                           String userId, String bookingStatus, String paymentStatus,
+                           double finalPayableAmount, Instant createdAt) {
+
+    public enum Type {
+        CREATED,
+        PAYMENT_SUCCEEDED,
+        PAYMENT_FAILED,
+        PAID_AFTER_CANCEL,      // payment arrived for a cancelled or expired booking; refund initiated
+        DATES_CHANGED,
+        STATUS_CHANGED,
+        CANCELLED,
+        EXPIRED
+    }
+}
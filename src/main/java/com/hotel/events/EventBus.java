@@ -0,0 +1,79 @@
+package com.hotel.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * In-process publish/subscribe with a bounded queue and a delivery thread per subscriber.
+ *
+ * Each subscriber gets events in publish order, in batches of up to {@code maxBatch}, on
+ * its own daemon thread. A slow subscriber does not hold up the others. When its queue is
+ * full, publish() blocks. That back-pressure reaches the outbox relay, which stops reading
+ * until there is room, and the events stay safely in the table in the meantime.
+ * Exceptions thrown by a subscriber are logged and the batch is dropped for that
+ * subscriber only. The batch list is reused, so subscribers must copy what they keep.
+ */
+public final class EventBus<E> {
+
+    private final int queueCapacity;
+    private final int maxBatch;
+    private final List<Subscription<E>> subscriptions = new CopyOnWriteArrayList<>();
+
+    public EventBus(int queueCapacity, int maxBatch) {
+        this.queueCapacity = queueCapacity;
+        this.maxBatch = maxBatch;
+    }
+
+    /** Registers a subscriber; call before the relay starts publishing. */
+    public void subscribe(String name, Consumer<List<E>> subscriber) {
+        Subscription<E> subscription = new Subscription<>(name, subscriber, new ArrayBlockingQueue<>(queueCapacity));
+        Thread t = new Thread(() -> deliver(subscription), "events-" + name);
+        t.setDaemon(true);
+        subscriptions.add(subscription);
+        t.start();
+    }
+
+    public void publish(E event) throws InterruptedException {
+        for (Subscription<E> subscription : subscriptions) {
+            subscription.queue.put(event);
+        }
+    }
+
+    /** Events waiting in the fullest subscriber queue. */
+    public int backlog() {
+        int max = 0;
+        for (Subscription<E> subscription : subscriptions) max = Math.max(max, subscription.queue.size());
+        return max;
+    }
+
+    public int subscribers() {
+        return subscriptions.size();
+    }
+
+    private record Subscription<E>(String name, Consumer<List<E>> subscriber, BlockingQueue<E> queue) {}
+
+    private void deliver(Subscription<E> subscription) {
+        List<E> batch = new ArrayList<>(maxBatch);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                E first = subscription.queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                subscription.queue.drainTo(batch, maxBatch - 1);
+                subscription.subscriber.accept(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                System.err.println("⚠ Event subscriber " + subscription.name + " failed on " + batch.size()
+                        + " events: " + e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+}
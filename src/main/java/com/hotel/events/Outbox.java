@@ -0,0 +1,60 @@
+package com.hotel.events;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes booking events into booking_outbox inside the caller's transaction.
+ *
+ * The event row commits or rolls back together with the state change it describes.
+ * {@link OutboxRelay} later reads the committed rows and publishes them. The booking
+ * columns are copied from bookings_info by an INSERT ... SELECT, so call append() after
+ * the UPDATE/INSERT it describes, on the same connection.
+ * <pre>
+ *   CREATE TABLE booking_outbox (
+ *     Id                   BIGINT AUTO_INCREMENT PRIMARY KEY,
+ *     Event_Type           VARCHAR(32)  NOT NULL,
+ *     Booking_ID           VARCHAR(64)  NOT NULL,
+ *     Partner_ID           VARCHAR(64)  NULL,
+ *     Hotel_ID             VARCHAR(64)  NULL,
+ *     User_ID              VARCHAR(64)  NULL,
+ *     Booking_Status       VARCHAR(32)  NULL,
+ *     Payment_Status       VARCHAR(32)  NULL,
+ *     Final_Payable_Amount DOUBLE       NULL,
+ *     Created_At           DATETIME(3)  NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+ *     INDEX idx_outbox_created (Created_At)
+ *   );
+ * </pre>
+ */
+public final class Outbox {
+
+    private Outbox() {
+    }
+
+    public static void append(Connection conn, BookingEvent.Type type, String bookingId) throws SQLException {
+        append(conn, type, List.of(bookingId));
+    }
+
+    /** One event per booking, all of the same type (batch expiry, bulk updates). */
+    public static void append(Connection conn, BookingEvent.Type type, Collection<String> bookingIds)
+            throws SQLException {
+        if (bookingIds.isEmpty()) return;
+
+        String sql = "INSERT INTO booking_outbox (Event_Type, Booking_ID, Partner_ID, Hotel_ID, User_ID, " +
+                "Booking_Status, Payment_Status, Final_Payable_Amount) " +
+                "SELECT ?, Booking_ID, Partner_ID, Hotel_ID, User_ID, Booking_Status, Payment_Status, " +
+                "Final_Payable_Amount FROM bookings_info WHERE Booking_ID IN (" +
+                String.join(",", Collections.nCopies(bookingIds.size(), "?")) + ")";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            ps.setString(idx++, type.name());
+            for (String id : bookingIds) ps.setString(idx++, id);
+            ps.executeUpdate();
+        }
+    }
+}
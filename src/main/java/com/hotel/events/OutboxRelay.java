@@ -0,0 +1,182 @@
+package com.hotel.events;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tails booking_outbox and publishes each committed row to the {@link EventBus}.
+ *
+ * Every server runs its own relay, because the subscribers are in-process caches and
+ * aggregates that all need every event. The position is kept in memory. It starts at the
+ * newest row, since subscribers build their state from the database at startup. Polls
+ * every events.poll.millis (default 250) and reads up to events.batch.size rows (default
+ * 500) per query.
+ *
+ * Auto-increment ids are handed out at INSERT but become visible at COMMIT, so a
+ * lower id can appear after a higher one. When the next id is missing, the relay stops at
+ * the gap until the row behind it is events.gap.wait.millis old (default 5000), measured
+ * on the database clock so app servers' clocks do not matter. After that the gap is taken
+ * to be a rolled-back transaction, and the skipped ids are logged. A row that cannot be
+ * turned into an event (say an Event_Type this build does not know) is logged, counted
+ * and passed over, so it cannot stall the relay. Rows older than events.retention.days
+ * (default 7) are purged hourly.
+ */
+public final class OutboxRelay {
+
+    private final DbConfig dbConfig;
+    private final EventBus<BookingEvent> bus;
+    private final long pollMillis;
+    private final int batchSize;
+    private final long gapWaitMillis;
+    private final int retentionDays;
+
+    private volatile long position;
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong unreadable = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "outbox-relay");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public OutboxRelay(DbConfig dbConfig, EventBus<BookingEvent> bus) {
+        this.dbConfig = dbConfig;
+        this.bus = bus;
+        this.pollMillis = dbConfig.getIntSetting("events.poll.millis", 250);
+        this.batchSize = dbConfig.getIntSetting("events.batch.size", 500);
+        this.gapWaitMillis = dbConfig.getIntSetting("events.gap.wait.millis", 5000);
+        this.retentionDays = dbConfig.getIntSetting("events.retention.days", 7);
+    }
+
+    public void start() throws SQLException {
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("SELECT COALESCE(MAX(Id), 0) FROM booking_outbox");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            position = rs.getLong(1);
+        }
+        poller.scheduleWithFixedDelay(this::poll, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+        poller.scheduleWithFixedDelay(this::purge, 1, 1, TimeUnit.HOURS);
+    }
+
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    // ===== Relay (outbox-relay thread) =====
+
+    private void poll() {
+        String sql = "SELECT Id, Event_Type, Booking_ID, Partner_ID, Hotel_ID, User_ID, Booking_Status, " +
+                "Payment_Status, Final_Payable_Amount, Created_At, " +
+                "TIMESTAMPDIFF(MICROSECOND, Created_At, NOW(3)) DIV 1000 AS Age_Millis " +
+                "FROM booking_outbox WHERE Id > ? ORDER BY Id LIMIT ?";
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int read;
+            do {
+                ps.setLong(1, position);
+                ps.setInt(2, batchSize);
+                read = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        long id = rs.getLong("Id");
+                        Timestamp createdAt = rs.getTimestamp("Created_At");
+                        if (id != position + 1) {
+                            if (rs.getLong("Age_Millis") < gapWaitMillis) {
+                                return;   // an earlier transaction may still commit: wait at the gap
+                            }
+                            skipped.addAndGet(id - position - 1);
+                            System.err.println("⚠ Outbox relay skipped ids " + (position + 1)
+                                    + (id - 1 > position + 1 ? ".." + (id - 1) : "") + ", taken as rolled back");
+                        }
+                        BookingEvent event;
+                        try {
+                            event = event(rs, id, createdAt);
+                        } catch (RuntimeException e) {
+                            // An unknown Event_Type or a missing Created_At: skip the row, do not stall behind it
+                            event = null;
+                            unreadable.incrementAndGet();
+                            System.err.println("⚠ Outbox relay skipped unreadable row " + id
+                                    + " (" + rs.getString("Event_Type") + "): " + e);
+                        }
+                        if (event != null) {
+                            bus.publish(event);
+                            published.incrementAndGet();
+                        }
+                        position = id;
+                        read++;
+                    }
+                }
+            } while (read == batchSize);
+        } catch (SQLException e) {
+            failures.incrementAndGet();
+            System.err.println("⚠ Outbox relay failed, will retry: " + e.getMessage());
+        } catch (RuntimeException e) {
+            // Escaping the task would cancel every later poll
+            failures.incrementAndGet();
+            System.err.println("⚠ Outbox relay failed, will retry: " + e);
+            e.printStackTrace();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BookingEvent event(ResultSet rs, long id, Timestamp createdAt) throws SQLException {
+        return new BookingEvent(id,
+                BookingEvent.Type.valueOf(rs.getString("Event_Type")),
+                rs.getString("Booking_ID"),
+                rs.getString("Partner_ID"),
+                rs.getString("Hotel_ID"),
+                rs.getString("User_ID"),
+                rs.getString("Booking_Status"),
+                rs.getString("Payment_Status"),
+                rs.getDouble("Final_Payable_Amount"),
+                createdAt.toInstant());
+    }
+
+    private void purge() {
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "DELETE FROM booking_outbox WHERE Created_At < NOW() - INTERVAL ? DAY")) {
+            ps.setInt(1, retentionDays);
+            ps.executeUpdate();
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("⚠ Outbox purge failed, will retry: " + e.getMessage());
+        }
+    }
+
+    // ===== Stats =====
+
+    public HttpHandler statsHandler() {
+        return this::sendStats;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        ObjectNode node = Json.object();
+        node.put("position", position);
+        node.put("published", published.get());
+        node.put("skippedIds", skipped.get());
+        node.put("unreadableRows", unreadable.get());
+        node.put("failedPolls", failures.get());
+        node.put("subscribers", bus.subscribers());
+        node.put("backlog", bus.backlog());
+        Json.send(exchange, 200, node);
+    }
+}
@@ -0,0 +1,576 @@
+package com.hotel.inventory;
+
+import com.hotel.catalog.CatalogListener;
+import com.hotel.catalog.CatalogSnapshot;
+import com.hotel.catalog.Listing;
+import com.hotel.events.BookingEvent;
+import com.hotel.utilities.DbConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-listing, per-night room inventory held in memory.
+ *
+ * Each listing has one int array covering a rolling window of inventory.horizon.days
+ * nights (default 365) starting today, plus one spare slot. Slot
+ * {@code epochDay % (horizon + 1)} holds the rooms booked that night; capacity comes from
+ * the catalog (Total_Rooms for hotels, the sum of the sharing-room counts for PGs), so a
+ * partner editing Total_Rooms only swaps one int and never touches the booked counts.
+ *
+ * Booked counts are two parts: the committed bookings in bookings_info (the base), plus
+ * this server's {@link Claim}s whose transaction has not ended yet. A booking handler
+ * takes a claim before writing, then reports it {@link #committed} or {@link #rolledBack}.
+ * Every booking event from the outbox (all servers' bookings, date changes, cancellations
+ * and expiries) reloads the base of its listing from bookings_info, leaving out the rows
+ * of bookings that still have an open claim, and adds the difference to the counts. So a
+ * reload never undoes or repeats a claim, whichever side of it the claim commits.
+ *
+ * Claims never lock: each night is a compare-and-set against capacity. Reloads, commits
+ * and the daily roll keep the base under a per-listing lock, which reservations do not
+ * take. The roll fills the spare slot with the night entering the window before the
+ * window moves onto it, so it never clears a slot a reservation may be claiming.
+ *
+ * The calendar is this server's view and answers availability queries. A claim is a
+ * fast first check of the in-window nights. The arbiter is {@link #fits}, which runs in
+ * the booking transaction. It serialises bookings per listing on a listing_locks row and
+ * counts every night of the stay in bookings_info, so several servers cannot oversell,
+ * and stays reaching past the window are checked as well. Listings without capacity data
+ * are not checked, as before the calendar existed.
+ * <pre>
+ *   CREATE TABLE listing_locks (listing_id VARCHAR(64) NOT NULL PRIMARY KEY);
+ *   CREATE INDEX idx_bookings_hotel_checkin ON bookings_info (Hotel_ID, Check_In_Date);
+ * </pre>
+ */
+public final class AvailabilityCalendar implements CatalogListener {
+
+    /** The part of a booking that holds inventory: nights [checkIn, checkOut) of one listing. */
+    public record Stay(String listingId, LocalDate checkIn, LocalDate checkOut, int rooms) {}
+
+    /**
+     * Rooms this server took, or is giving back, for one booking while its transaction is
+     * open. Pass it to {@link #committed} or {@link #rolledBack} once the transaction ends.
+     */
+    public static final class Claim {
+        final String bookingId;
+        final Nights nights;       // null when nothing was claimed
+        final long from;           // claimed nights [from, to)
+        final long to;
+        final int rooms;
+        final Stay replacing;      // the stay this booking held before, given back on commit
+
+        Claim(String bookingId, Nights nights, long from, long to, int rooms, Stay replacing) {
+            this.bookingId = bookingId;
+            this.nights = nights;
+            this.from = from;
+            this.to = to;
+            this.rooms = rooms;
+            this.replacing = replacing;
+        }
+    }
+
+    private static final Claim NOTHING = new Claim(null, null, 0, 0, 0, null);
+
+    // Bookings that hold rooms: everything except cancellations
+    static final String HOLDS_ROOMS = "UPPER(COALESCE(Booking_Status, '')) <> 'CANCELLED'";
+
+    private static final int RELOAD_BATCH = 500;
+
+    private static final String[] PG_ROOM_COLUMNS = {
+            "Total_Single_Sharing_Rooms", "Total_Double_Sharing_Rooms", "Total_Three_Sharing_Rooms",
+            "Total_Four_Sharing_Rooms", "Total_Five_Sharing_Rooms"
+    };
+
+    private final DbConfig dbConfig;
+    private final int horizon;
+    private final ConcurrentHashMap<String, Nights> listings = new ConcurrentHashMap<>();
+    private volatile long firstNight;
+
+    private final ScheduledExecutorService roller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "inventory-roll");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static final class Nights {
+        volatile int capacity;
+        final AtomicIntegerArray booked;                   // base + open claims, claimed by CAS
+        final int[] base;                                  // committed bookings, guarded by lock
+        final Set<Claim> open = ConcurrentHashMap.newKeySet();
+        final ReentrantLock lock = new ReentrantLock();    // base only; reservations never take it
+
+        Nights(int slots) {
+            this.booked = new AtomicIntegerArray(slots);
+            this.base = new int[slots];
+        }
+    }
+
+    public AvailabilityCalendar(DbConfig dbConfig) {
+        this(dbConfig, dbConfig.getIntSetting("inventory.horizon.days", 365), LocalDate.now());
+    }
+
+    AvailabilityCalendar(DbConfig dbConfig, int horizon, LocalDate firstNight) {
+        this.dbConfig = dbConfig;
+        this.horizon = horizon;
+        this.firstNight = firstNight.toEpochDay();
+    }
+
+    /** Loads booked nights for the window, then rolls it forward every hour once the date changes. */
+    public void start() throws SQLException {
+        String sql = "SELECT Hotel_ID, Check_In_Date, Check_Out_Date, Total_Rooms_Booked FROM bookings_info " +
+                "WHERE Check_Out_Date > ? AND Check_In_Date < ? AND " + HOLDS_ROOMS;
+
+        long first = firstNight;
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, java.sql.Date.valueOf(LocalDate.ofEpochDay(first)));
+            ps.setDate(2, java.sql.Date.valueOf(LocalDate.ofEpochDay(first + horizon)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Stay stay = stay(rs);
+                    if (stay == null || stay.listingId() == null) continue;
+                    Nights nights = nights(stay.listingId());
+                    nights.lock.lock();
+                    try {
+                        forEachNight(stay, first, slot -> {
+                            nights.base[slot] += stay.rooms();
+                            nights.booked.addAndGet(slot, stay.rooms());
+                        });
+                    } finally {
+                        nights.lock.unlock();
+                    }
+                }
+            }
+        }
+
+        roller.scheduleWithFixedDelay(this::roll, 1, 1, TimeUnit.HOURS);
+    }
+
+    public void shutdown() {
+        roller.shutdownNow();
+    }
+
+    // ===== Queries =====
+
+    /**
+     * Rooms free on every night of [checkIn, checkOut), or -1 when the listing is unknown or
+     * the range is empty or outside the window.
+     */
+    public int freeRooms(String listingId, LocalDate checkIn, LocalDate checkOut) {
+        Nights nights = listingId == null ? null : listings.get(listingId);
+        if (nights == null || !inWindow(checkIn, checkOut)) return -1;
+
+        int capacity = nights.capacity;
+        int free = capacity;
+        for (long day = checkIn.toEpochDay(); day < checkOut.toEpochDay(); day++) {
+            free = Math.min(free, capacity - nights.booked.get(slot(day)));
+        }
+        return Math.max(0, free);
+    }
+
+    public boolean isAvailable(String listingId, LocalDate checkIn, LocalDate checkOut, int rooms) {
+        return freeRooms(listingId, checkIn, checkOut) >= Math.max(1, rooms);
+    }
+
+    /** Rooms counted on one night, or -1 outside the window. For tests. */
+    int booked(String listingId, LocalDate night) {
+        Nights nights = listings.get(listingId);
+        if (nights == null || !inWindow(night, night.plusDays(1))) return -1;
+        return nights.booked.get(slot(night.toEpochDay()));
+    }
+
+    // ===== Claims (request threads) =====
+
+    /**
+     * Claims {@code stay.rooms()} on every in-window night of a new booking's stay, or
+     * nothing at all. Null when a night is full.
+     *
+     * Each night is claimed with a compare-and-set against that night's capacity, so two
+     * requests on this server racing for the last room cannot both win, and no lock is
+     * taken. If any night is full, the nights already claimed are given back. A listing
+     * without capacity data is recorded but not checked. Nights outside the window, and
+     * other servers' bookings not yet seen here, are left to {@link #fits}.
+     */
+    public Claim reserve(String bookingId, Stay stay) {
+        return claim(bookingId, stay, null);
+    }
+
+    /**
+     * Claims the nights of {@code to} for a booking whose dates change from {@code from}.
+     * The booking's own rooms on nights both stays share do not count against it. The old
+     * nights stay taken until the claim commits. Null when a night is full.
+     */
+    public Claim move(String bookingId, Stay from, Stay to) {
+        return claim(bookingId, to, from);
+    }
+
+    /** Gives back {@code stay} when the claim commits, for a booking being cancelled or expired. */
+    public Claim release(String bookingId, Stay stay) {
+        return claim(bookingId, null, stay);
+    }
+
+    private Claim claim(String bookingId, Stay stay, Stay replacing) {
+        Stay any = stay != null ? stay : replacing;
+        if (any == null || any.listingId() == null || any.rooms() <= 0) return NOTHING;
+
+        Nights nights = nights(any.listingId());
+        long first = firstNight;
+        long from = stay == null ? 0 : Math.max(stay.checkIn().toEpochDay(), first);
+        long to = stay == null ? 0 : Math.min(stay.checkOut().toEpochDay(), first + horizon);
+        int rooms = stay == null ? 0 : stay.rooms();
+
+        int capacity = nights.capacity;
+        for (long day = from; day < to; day++) {
+            if (capacity <= 0) {
+                nights.booked.addAndGet(slot(day), rooms);
+            } else if (!claim(nights.booked, slot(day), rooms, capacity + ownRooms(replacing, day))) {
+                for (long d = from; d < day; d++) nights.booked.addAndGet(slot(d), -rooms);
+                return null;
+            }
+        }
+
+        Claim claim = new Claim(bookingId, nights, from, to, rooms, replacing);
+        nights.open.add(claim);
+        return claim;
+    }
+
+    private static boolean claim(AtomicIntegerArray booked, int slot, int rooms, int capacity) {
+        while (true) {
+            int current = booked.get(slot);
+            if (current + rooms > capacity) return false;
+            if (booked.compareAndSet(slot, current, current + rooms)) return true;
+        }
+    }
+
+    private static int ownRooms(Stay stay, long day) {
+        if (stay == null) return 0;
+        return day >= stay.checkIn().toEpochDay() && day < stay.checkOut().toEpochDay() ? stay.rooms() : 0;
+    }
+
+    /** The claim's transaction committed: its nights move into the base, the replaced stay leaves it. */
+    public void committed(Claim claim) {
+        if (claim == null || claim.nights == null) return;
+        Nights nights = claim.nights;
+
+        nights.lock.lock();
+        try {
+            if (!nights.open.remove(claim)) return;
+            long first = firstNight;
+            for (long day = Math.max(claim.from, first); day < claim.to; day++) {
+                nights.base[slot(day)] += claim.rooms;
+            }
+            if (claim.replacing != null) {
+                forEachNight(claim.replacing, first, slot -> {
+                    nights.base[slot] -= claim.replacing.rooms();
+                    nights.booked.addAndGet(slot, -claim.replacing.rooms());
+                });
+            }
+        } finally {
+            nights.lock.unlock();
+        }
+    }
+
+    /** The claim's transaction rolled back, or never started: the claimed nights are given back. */
+    public void rolledBack(Claim claim) {
+        if (claim == null || claim.nights == null || !claim.nights.open.remove(claim)) return;
+
+        long first = firstNight;
+        for (long day = Math.max(claim.from, first); day < claim.to; day++) {
+            claim.nights.booked.addAndGet(slot(day), -claim.rooms);
+        }
+    }
+
+    /**
+     * The capacity check that holds across servers. Must run inside the booking
+     * transaction, before the booking row is written or moved. Locks the listing's
+     * listing_locks row until commit or rollback, then counts the rooms held on every night
+     * of the stay, leaving out {@code movingBookingId} (a booking whose dates are changing,
+     * or null). True when the stay fits, or when the listing has no capacity data.
+     */
+    public boolean fits(Connection conn, Stay stay, String movingBookingId) throws SQLException {
+        if (stay == null || stay.listingId() == null || stay.rooms() <= 0) return true;
+        Nights nights = listings.get(stay.listingId());
+        int capacity = nights == null ? 0 : nights.capacity;
+        if (capacity <= 0) return true;
+
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO listing_locks (listing_id) VALUES (?) ON DUPLICATE KEY UPDATE listing_id = listing_id")) {
+            ps.setString(1, stay.listingId());
+            ps.executeUpdate();
+        }
+
+        // A locking read sees the latest committed bookings, whatever this transaction read before.
+        // The listing lock already keeps other bookings of the listing out, so FOR UPDATE costs
+        // nothing over a shared lock here.
+        String sql = "SELECT Hotel_ID, Check_In_Date, Check_Out_Date, Total_Rooms_Booked FROM bookings_info " +
+                "WHERE Hotel_ID = ? AND Check_In_Date < ? AND Check_Out_Date > ? AND " + HOLDS_ROOMS +
+                (movingBookingId == null ? "" : " AND Booking_ID <> ?") + " FOR UPDATE";
+
+        long first = stay.checkIn().toEpochDay();
+        int[] held = new int[(int) (stay.checkOut().toEpochDay() - first)];
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, stay.listingId());
+            ps.setDate(2, java.sql.Date.valueOf(stay.checkOut()));
+            ps.setDate(3, java.sql.Date.valueOf(stay.checkIn()));
+            if (movingBookingId != null) ps.setString(4, movingBookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Stay other = stay(rs);
+                    if (other == null) continue;
+                    long from = Math.max(other.checkIn().toEpochDay(), first);
+                    long to = Math.min(other.checkOut().toEpochDay(), stay.checkOut().toEpochDay());
+                    for (long day = from; day < to; day++) held[(int) (day - first)] += other.rooms();
+                }
+            }
+        }
+        for (int rooms : held) {
+            if (rooms + stay.rooms() > capacity) return false;
+        }
+        return true;
+    }
+
+    // ===== Other servers' changes (event bus thread) =====
+
+    /**
+     * Reloads the base of every listing named in {@code events} from bookings_info.
+     * Subscribed to the booking event bus, so bookings, date changes, cancellations and
+     * expiries on any server reach this calendar.
+     */
+    public void onBookingEvents(List<BookingEvent> events) {
+        Set<String> ids = new TreeSet<>();      // sorted: the listing locks are taken in this order
+        for (BookingEvent event : events) {
+            if (event.hotelId() != null) ids.add(event.hotelId());
+        }
+        if (ids.isEmpty()) return;
+
+        try {
+            reload(new ArrayList<>(ids));
+        } catch (SQLException e) {
+            System.err.println("⚠ Inventory reload failed for " + ids.size() + " listings: " + e.getMessage());
+        }
+    }
+
+    private void reload(List<String> ids) throws SQLException {
+        for (int from = 0; from < ids.size(); from += RELOAD_BATCH) {
+            List<String> batch = ids.subList(from, Math.min(ids.size(), from + RELOAD_BATCH));
+            List<Nights> locked = new ArrayList<>(batch.size());
+            try {
+                // Held across the query, so no claim can commit into the base between reading and applying
+                for (String id : batch) {
+                    Nights nights = nights(id);
+                    nights.lock.lock();
+                    locked.add(nights);
+                }
+                reload(batch, locked);
+            } finally {
+                for (Nights nights : locked) nights.lock.unlock();
+            }
+        }
+    }
+
+    // Caller holds the lock of every listing in the batch
+    private void reload(List<String> batch, List<Nights> locked) throws SQLException {
+        String sql = "SELECT Booking_ID, Hotel_ID, Check_In_Date, Check_Out_Date, Total_Rooms_Booked " +
+                "FROM bookings_info WHERE Hotel_ID IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) +
+                ") AND Check_Out_Date > ? AND Check_In_Date < ? AND " + HOLDS_ROOMS;
+
+        long first = firstNight;
+        Map<String, Stay> rows = new HashMap<>();
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (String id : batch) ps.setString(idx++, id);
+            ps.setDate(idx++, java.sql.Date.valueOf(LocalDate.ofEpochDay(first)));
+            ps.setDate(idx, java.sql.Date.valueOf(LocalDate.ofEpochDay(first + horizon)));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Stay stay = stay(rs);
+                    if (stay != null) rows.put(rs.getString("Booking_ID"), stay);
+                }
+            }
+        }
+
+        // Claims are read after the query: any claim whose transaction committed before it is still open
+        Map<String, int[]> fresh = new HashMap<>();
+        Set<String> claimed = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            int[] base = new int[horizon + 1];
+            fresh.put(batch.get(i), base);
+            // A booking with an open claim keeps the stay it had, whatever its row says now
+            for (Claim claim : locked.get(i).open) {
+                if (claim.bookingId == null || !claimed.add(claim.bookingId) || claim.replacing == null) continue;
+                forEachNight(claim.replacing, first, slot -> base[slot] += claim.replacing.rooms());
+            }
+        }
+        rows.forEach((bookingId, stay) -> {
+            int[] base = fresh.get(stay.listingId());
+            if (base != null && !claimed.contains(bookingId)) {
+                forEachNight(stay, first, slot -> base[slot] += stay.rooms());
+            }
+        });
+
+        // Added as differences, so claims landing meanwhile keep their rooms
+        for (int i = 0; i < batch.size(); i++) {
+            Nights nights = locked.get(i);
+            int[] base = fresh.get(batch.get(i));
+            for (long day = first; day < first + horizon; day++) {
+                int slot = slot(day);
+                int delta = base[slot] - nights.base[slot];
+                if (delta == 0) continue;
+                nights.base[slot] = base[slot];
+                nights.booked.addAndGet(slot, delta);
+            }
+        }
+    }
+
+    /**
+     * The stay a booking currently holds, or null when the booking does not exist, is
+     * already cancelled, or has no usable dates.
+     */
+    public static Stay findStay(Connection conn, String bookingId) throws SQLException {
+        String sql = "SELECT Hotel_ID, Check_In_Date, Check_Out_Date, Total_Rooms_Booked FROM bookings_info " +
+                "WHERE Booking_ID = ? AND " + HOLDS_ROOMS;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, bookingId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? stay(rs) : null;
+            }
+        }
+    }
+
+    static Stay stay(ResultSet rs) throws SQLException {
+        java.sql.Date in = rs.getDate("Check_In_Date");
+        java.sql.Date out = rs.getDate("Check_Out_Date");
+        if (in == null || out == null || !out.after(in)) return null;
+        return new Stay(rs.getString("Hotel_ID"), in.toLocalDate(), out.toLocalDate(),
+                Math.max(1, rs.getInt("Total_Rooms_Booked")));
+    }
+
+    // ===== Capacity from the catalog (catalog thread) =====
+
+    @Override
+    public void onCatalogChanged(CatalogSnapshot previous, CatalogSnapshot current,
+                                 List<Listing> changed, List<Listing> removed) {
+        for (Listing listing : changed) {
+            nights(listing.getId()).capacity = capacity(listing);
+        }
+        for (Listing listing : removed) {
+            Nights nights = listings.get(listing.getId());
+            if (nights != null) nights.capacity = 0;   // keep booked counts: the bookings still exist
+        }
+    }
+
+    static int capacity(Listing listing) {
+        if (listing.getKind() == Listing.Kind.HOTEL) {
+            Double rooms = listing.getNumber("Total_Rooms");
+            return rooms == null ? 0 : rooms.intValue();
+        }
+        int rooms = 0;
+        for (String column : PG_ROOM_COLUMNS) {
+            Double n = listing.getNumber(column);
+            if (n != null) rooms += n.intValue();
+        }
+        return rooms;
+    }
+
+    // ===== Rolling window (inventory-roll thread) =====
+
+    void roll() {
+        long today = LocalDate.now().toEpochDay();
+        try {
+            while (firstNight < today) rollOneNight();
+        } catch (SQLException e) {
+            System.err.println("⚠ Inventory roll failed, will retry: " + e.getMessage());
+        }
+    }
+
+    /*
+     * The night entering the window goes into the spare slot, which no reservation can be
+     * claiming: it held the night that left the window a day ago. The window moves onto it
+     * only once every listing has its count, so reservations never wait for the roll.
+     */
+    private void rollOneNight() throws SQLException {
+        long entering = firstNight + horizon;
+        // Read the entering night first, so a failed query changes nothing
+        Map<String, Integer> rooms = bookedOn(entering);
+
+        int slot = slot(entering);
+        for (String id : rooms.keySet()) nights(id);
+        for (Map.Entry<String, Nights> listing : listings.entrySet()) {
+            Nights nights = listing.getValue();
+            int booked = rooms.getOrDefault(listing.getKey(), 0);
+            nights.lock.lock();
+            try {
+                nights.base[slot] = booked;
+                nights.booked.set(slot, booked);
+            } finally {
+                nights.lock.unlock();
+            }
+        }
+        firstNight++;
+    }
+
+    private Map<String, Integer> bookedOn(long epochDay) throws SQLException {
+        String sql = "SELECT Hotel_ID, SUM(GREATEST(Total_Rooms_Booked, 1)) AS Rooms FROM bookings_info " +
+                "WHERE Check_In_Date <= ? AND Check_Out_Date > ? AND " + HOLDS_ROOMS + " GROUP BY Hotel_ID";
+
+        Map<String, Integer> rooms = new HashMap<>();
+        java.sql.Date night = java.sql.Date.valueOf(LocalDate.ofEpochDay(epochDay));
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, night);
+            ps.setDate(2, night);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    String id = rs.getString("Hotel_ID");
+                    if (id != null) rooms.put(id, rs.getInt("Rooms"));
+                }
+            }
+        }
+        return rooms;
+    }
+
+    // ===== Window =====
+
+    private Nights nights(String listingId) {
+        return listings.computeIfAbsent(listingId, id -> new Nights(horizon + 1));
+    }
+
+    private interface SlotAction {
+        void apply(int slot);
+    }
+
+    // Every night of the stay inside the window starting at first
+    private void forEachNight(Stay stay, long first, SlotAction action) {
+        long to = Math.min(stay.checkOut().toEpochDay(), first + horizon);
+        for (long day = Math.max(stay.checkIn().toEpochDay(), first); day < to; day++) {
+            action.apply(slot(day));
+        }
+    }
+
+    private boolean inWindow(LocalDate checkIn, LocalDate checkOut) {
+        if (checkIn == null || checkOut == null || !checkOut.isAfter(checkIn)) return false;
+        return checkIn.toEpochDay() >= firstNight && checkOut.toEpochDay() <= firstNight + horizon;
+    }
+
+    private int slot(long epochDay) {
+        return (int) Math.floorMod(epochDay, (long) horizon + 1);
+    }
+}
@@ -0,0 +1,193 @@
+package com.hotel.inventory;
+
+import com.hotel.booking.BookingStateMachine;
+import com.hotel.booking.BookingStateMachine.Status;
+import com.hotel.booking.BookingStateMachine.Transition;
+import com.hotel.coupon.CouponUsage;
+import com.hotel.coupon.CouponUsage.Use;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.Outbox;
+import com.hotel.inventory.AvailabilityCalendar.Claim;
+import com.hotel.inventory.AvailabilityCalendar.Stay;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.TimingWheel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cancels unpaid online bookings once their hold runs out, and gives their rooms back.
+ *
+ * BookingHandler stamps Hold_Expires_At (now + booking.hold.ttl.minutes, default 15) on
+ * bookings that still have to be paid online, and registers them here. Payment clears the
+ * column. Every pending hold is a timer on a {@link TimingWheel} with one-second ticks.
+ * Each tick, the bookings whose holds are due are cancelled in batches of
+ * booking.hold.batch.size (default 200), one transaction per batch, and their stays are
+ * released from the {@link AvailabilityCalendar}. A coupon the booking used is given back
+ * in the same transaction (see {@link CouponUsage#unredeem}). Other servers' calendars pick
+ * up the freed rooms from the EXPIRED event written with it.
+ *
+ * The locking SELECT re-checks PENDING and Hold_Expires_At, so a booking paid or confirmed after
+ * its timer was set is left alone. The wheel only decides when to look. On start() the
+ * wheel is rebuilt from the pending holds in bookings_info.
+ * <pre>
+ *   ALTER TABLE bookings_info ADD COLUMN Hold_Expires_At DATETIME NULL,
+ *     ADD INDEX idx_bookings_hold (Hold_Expires_At);
+ *   -- optional: give unpaid online bookings from before this change a hold as well
+ *   UPDATE bookings_info SET Hold_Expires_At = NOW() + INTERVAL 15 MINUTE
+ *    WHERE UPPER(COALESCE(Booking_Status, 'PENDING')) = 'PENDING'
+ *      AND Payment_Method_Type = 'Online' AND COALESCE(Payment_Status, '') <> 'Paid';
+ * </pre>
+ */
+public final class HoldExpiryService {
+
+    private static final long TICK_MILLIS = 1000;
+
+    private final DbConfig dbConfig;
+    private final AvailabilityCalendar calendar;
+    private final CouponUsage couponUsage;
+    private final long ttlMillis;
+    private final int batchSize;
+    private final TimingWheel<String> wheel = new TimingWheel<>(TICK_MILLIS, System.currentTimeMillis());
+
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "hold-expiry");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public HoldExpiryService(DbConfig dbConfig, AvailabilityCalendar calendar, CouponUsage couponUsage) {
+        this.dbConfig = dbConfig;
+        this.calendar = calendar;
+        this.couponUsage = couponUsage;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(dbConfig.getIntSetting("booking.hold.ttl.minutes", 15));
+        this.batchSize = dbConfig.getIntSetting("booking.hold.batch.size", 200);
+    }
+
+    /** Rebuilds the timers from bookings_info, then starts ticking. */
+    public void start() throws SQLException {
+        String sql = "SELECT Booking_ID, Hold_Expires_At FROM bookings_info " +
+                "WHERE Hold_Expires_At IS NOT NULL AND " + BookingStateMachine.statusIn(Status.PENDING);
+
+        int holds = 0;
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                wheel.schedule(rs.getString("Booking_ID"), rs.getTimestamp("Hold_Expires_At").getTime());
+                holds++;
+            }
+        }
+        System.out.println("✅ Booking holds pending: " + holds);
+
+        ticker.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+
+    /** When a hold taken now runs out. */
+    public Timestamp expiresAt() {
+        return new Timestamp(System.currentTimeMillis() + ttlMillis);
+    }
+
+    /** Registers a committed booking whose hold runs out at {@code expiresAt}. */
+    public void hold(String bookingId, Timestamp expiresAt) {
+        wheel.schedule(bookingId, expiresAt.getTime());
+    }
+
+    // ===== Expiry (hold-expiry thread) =====
+
+    // Never lets an exception out: one escaping a scheduleAtFixedRate task cancels every later tick
+    private void tick() {
+        long now = System.currentTimeMillis();
+        List<String> due;
+        try {
+            due = wheel.advance(now);
+        } catch (RuntimeException e) {
+            System.err.println("⚠ Hold expiry tick failed: " + e);
+            e.printStackTrace();
+            return;
+        }
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<String> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            try {
+                expire(batch, new Timestamp(now));
+            } catch (SQLException e) {
+                // Try again in a minute rather than dropping the holds
+                System.err.println("⚠ Hold expiry failed for " + batch.size() + " bookings: " + e.getMessage());
+                for (String bookingId : batch) wheel.schedule(bookingId, now + 60_000);
+            } catch (RuntimeException e) {
+                System.err.println("⚠ Hold expiry failed for " + batch.size() + " bookings: " + e);
+                e.printStackTrace();
+                for (String bookingId : batch) wheel.schedule(bookingId, now + 60_000);
+            }
+        }
+    }
+
+    private void expire(List<String> bookingIds, Timestamp now) throws SQLException {
+        String in = String.join(",", Collections.nCopies(bookingIds.size(), "?"));
+        String select = "SELECT Booking_ID, Hotel_ID, Check_In_Date, Check_Out_Date, Total_Rooms_Booked, " +
+                "User_ID, Coupon_Code " +
+                "FROM bookings_info WHERE Booking_ID IN (" + in + ") " +
+                "AND " + BookingStateMachine.statusIn(Status.PENDING) + " AND Hold_Expires_At <= ? FOR UPDATE";
+
+        List<String> expired = new ArrayList<>();
+        List<Claim> claims = new ArrayList<>();
+        List<Use> coupons = new ArrayList<>();
+
+        boolean committed = false;
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement ps = conn.prepareStatement(select)) {
+                    int idx = 1;
+                    for (String id : bookingIds) ps.setString(idx++, id);
+                    ps.setTimestamp(idx, now);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            String id = rs.getString("Booking_ID");
+                            expired.add(id);
+                            Stay stay = AvailabilityCalendar.stay(rs);
+                            if (stay != null) claims.add(calendar.release(id, stay));
+                            String code = rs.getString("Coupon_Code");
+                            if (code != null && !code.isBlank()) coupons.add(new Use(code.trim(), rs.getString("User_ID")));
+                        }
+                    }
+                }
+                if (expired.isEmpty()) {
+                    conn.rollback();
+                    return;
+                }
+
+                // Rows are locked above, so every selected booking takes the transition
+                BookingStateMachine.applyAll(conn, expired, Transition.EXPIRE);
+                couponUsage.unredeem(conn, coupons);
+                Outbox.append(conn, BookingEvent.Type.EXPIRED, expired);
+                conn.commit();
+                committed = true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            for (Claim claim : claims) {
+                if (committed) calendar.committed(claim);
+                else calendar.rolledBack(claim);
+            }
+        }
+
+        couponUsage.returned(coupons);
+        System.out.println("✅ Expired " + expired.size() + " unpaid booking holds");
+    }
+}
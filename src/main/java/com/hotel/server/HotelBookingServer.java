@@ -8,13 +8,31 @@ import com.hotel.app.BookingHistoryHandler;
 import com.hotel.app.HomePageHandler;
 import com.hotel.app.HotelsHandler;
 import com.hotel.app.LoginHandler;
+import com.hotel.app.NearbyHandler;
 import com.hotel.app.PaymentHandler;
 import com.hotel.app.PgsHandler;
 import com.hotel.app.ProfileHandler;
 import com.hotel.app.RegisterHandler;
 import com.hotel.app.RewardsWalletHandler;
+import com.hotel.app.SuggestHandler;
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.FilterIndex;
+import com.hotel.catalog.GeoIndex;
+import com.hotel.catalog.SearchIndex;
+import com.hotel.catalog.SuggestIndex;
+import com.hotel.coupon.CouponCatalog;
+import com.hotel.coupon.CouponUsage;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.EventBus;
+import com.hotel.events.OutboxRelay;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.inventory.HoldExpiryService;
+import com.hotel.server.Router.Cors;
 import com.hotel.utilities.DbConfig;
 import com.hotel.utilities.DbConfigLoader;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.KeysetCursor;
+import com.hotel.wallet.WalletService;
 import com.hotel.web.finance.GetPartnerFinanceHandler;
 import com.hotel.web.finance.GetPartnerTransactionsHandler;
 import com.hotel.web.finance.RequestPayoutHandler;
@@ -56,75 +74,171 @@ public class HotelBookingServer {
             // Just validation
         }
 
+        // ===== In-memory hotel/PG catalog for the browse endpoints =====
+        CatalogService catalog = new CatalogService(dbConfig);
+        SearchIndex searchIndex = new SearchIndex();
+        SuggestIndex suggestIndex = new SuggestIndex();
+        FilterIndex filterIndex = new FilterIndex();
+        GeoIndex geoIndex = new GeoIndex();
+        catalog.addListener(searchIndex);
+        catalog.addListener(suggestIndex);
+        catalog.addListener(filterIndex);
+        catalog.addListener(geoIndex);
+        AvailabilityCalendar calendar = new AvailabilityCalendar(dbConfig);
+        catalog.addListener(calendar);
+        catalog.start();
+        calendar.start();
+
+        CouponCatalog coupons = new CouponCatalog(dbConfig);
+        coupons.start();
+        CouponUsage couponUsage = new CouponUsage(dbConfig, coupons);
+        couponUsage.start();
+        HoldExpiryService holds = new HoldExpiryService(dbConfig, calendar, couponUsage);
+        holds.start();
+
+        IdService ids = new IdService(dbConfig);
+        WalletService wallets = new WalletService(dbConfig);
+
+        // Booking events: outbox rows written with each state change, relayed to in-process subscribers.
+        // events.batch.size is the relay's page size; events.bus.batch.size is per subscriber delivery
+        EventBus<BookingEvent> events = new EventBus<>(
+                dbConfig.getIntSetting("events.queue.size", 10_000), dbConfig.getIntSetting("events.bus.batch.size", 500));
+        // Every server's bookings, cancellations and expiries reach this server's room counts
+        events.subscribe("availability", calendar::onBookingEvents);
+        OutboxRelay outboxRelay = new OutboxRelay(dbConfig, events);
+        outboxRelay.start();
+
+        IdempotencyStore idempotency = new IdempotencyStore(dbConfig);
+        idempotency.start();
+
+        // ===== One instance per handler, shared by all of its routes =====
+        LoginHandler login = new LoginHandler(dbConfig);
+        RegisterHandler register = new RegisterHandler(dbConfig, ids);
+        HomePageHandler homePage = new HomePageHandler(catalog, searchIndex);
+        HotelsHandler hotels = new HotelsHandler(catalog);
+        PgsHandler pgs = new PgsHandler(catalog);
+        SuggestHandler suggest = new SuggestHandler(suggestIndex);
+        NearbyHandler nearby = new NearbyHandler(geoIndex);
+        BookingHandler booking = new BookingHandler(dbConfig, calendar, ids, holds, wallets, couponUsage, catalog);
+        ProfileHandler profile = new ProfileHandler(dbConfig);
+        BookingHistoryHandler bookingHistory = new BookingHistoryHandler(dbConfig, calendar);
+        AppFilterHandler appFilter = new AppFilterHandler(filterIndex, calendar);
+        RewardsWalletHandler wallet = new RewardsWalletHandler(dbConfig, coupons, couponUsage, catalog);
+        PaymentHandler payment = new PaymentHandler(dbConfig);
+
+        WebLoginRegisterHandler webLogin = new WebLoginRegisterHandler(dbConfig, ids);
+        WebDashBoardHandler webDashboard = new WebDashBoardHandler(dbConfig);
+        WebProfileHandler webProfile = new WebProfileHandler(dbConfig);
+        AddHotelsHandler addHotels = new AddHotelsHandler(dbConfig, catalog, ids);
+        HotelImagesHandler hotelImages = new HotelImagesHandler(dbConfig);
+        AddPgHandler addPgs = new AddPgHandler(dbConfig, catalog, ids);
+        WebViewHotelsHandler webViewHotels = new WebViewHotelsHandler(dbConfig, catalog);
+        WebViewPGsHandler webViewPgs = new WebViewPGsHandler(dbConfig, catalog);
+        WebBookingHandler webBooking = new WebBookingHandler(dbConfig, calendar);
+        SetFinanceNotificationViewedHandler financeViewed = new SetFinanceNotificationViewedHandler(dbConfig);
+
+        GetPartnerFinanceHandler partnerFinance = new GetPartnerFinanceHandler(dbConfig);
+        UpdateBankDetailsHandler bankDetails = new UpdateBankDetailsHandler(dbConfig);
+        RequestPayoutHandler payout = new RequestPayoutHandler(dbConfig, ids);
+        GetPartnerTransactionsHandler partnerTransactions = new GetPartnerTransactionsHandler(dbConfig);
+
+        RequestExecutor executor = RequestExecutor.fromConfig(dbConfig);
+
+        // ===== CORS policies =====
+        Cors appGet = Cors.of("GET, POST, OPTIONS", "Content-Type, Authorization");
+        Cors appPost = Cors.of("POST, OPTIONS", "Content-Type, " + IdempotentHandler.HEADER);
+        Cors webPost = Cors.of("POST, OPTIONS", "Content-Type");
+        // Paged lists return their next-page cursor in a header that browsers hide unless exposed
+        Cors webGetPost = Cors.of("GET, POST, OPTIONS", "Content-Type").exposing(KeysetCursor.HEADER);
+        Cors webAuth = Cors.of("GET, POST, OPTIONS", "Content-Type, Authorization");
+        Cors images = Cors.of("GET, OPTIONS", "*");
+
+        Router router = new Router();
+
         // ========== MOBILE / APP HANDLERS ==========
-        server.createContext("/login", new LoginHandler(dbConfig));
-        server.createContext("/app/forgot-password/verify", new LoginHandler(dbConfig));
-        server.createContext("/app/forgot-password/change", new LoginHandler(dbConfig));
-        server.createContext("/register", new RegisterHandler(dbConfig));
-        server.createContext("/hotels/filter", new HomePageHandler(dbConfig));
-        server.createContext("/hotels", new HotelsHandler(dbConfig));
-        server.createContext("/paying_guest", new PgsHandler(dbConfig));
-        server.createContext("/booking", new BookingHandler(dbConfig));
-        server.createContext("/profile", new ProfileHandler(dbConfig));
-        server.createContext("/app/change-password", new ProfileHandler(dbConfig));
-        server.createContext("/booking-history", new BookingHistoryHandler(dbConfig));
-        server.createContext("/cancel-booking", new BookingHistoryHandler(dbConfig));
-        server.createContext("/update-booking-dates", new BookingHistoryHandler(dbConfig));
-        server.createContext("/filterHotels", new AppFilterHandler(dbConfig));
-        
+        router.add("/login", login, "POST");
+        router.add("/app/forgot-password/verify", login, "POST");
+        router.add("/app/forgot-password/change", login, "POST");
+        router.add("/register", register, "POST");
+        router.add("/hotels/filter", homePage, appGet, "GET");
+        router.add("/search/suggest", suggest, appGet, "GET");
+        router.add("/hotels", hotels, "GET");
+        router.add("/paying_guest", pgs, "GET");
+        router.add("/hotels/nearby", nearby, appGet, "GET");
+        router.add("/paying_guest/nearby", nearby, appGet, "GET");
+        router.add("/booking", new IdempotentHandler(idempotency, booking), appPost, "POST");
+        router.add("/profile", profile, "GET", "POST");
+        router.add("/app/change-password", profile, "POST");
+        router.add("/booking-history", bookingHistory, "GET");
+        router.add("/cancel-booking", bookingHistory, "PUT");
+        router.add("/update-booking-dates", bookingHistory, "PUT");
+        router.add("/filterHotels", appFilter, "POST");
+
         // ============= App Payment & Wallets Section ===============
-        
-        server.createContext("/wallet", new RewardsWalletHandler(dbConfig));
-        server.createContext("/wallet/deposit", new RewardsWalletHandler(dbConfig));
-        server.createContext("/wallet/pay", new RewardsWalletHandler(dbConfig));
-        server.createContext("/coupon/validate", new RewardsWalletHandler(dbConfig));
-        server.createContext("/referrals", new RewardsWalletHandler(dbConfig));
-        server.createContext("/payment/createOrder", new PaymentHandler(dbConfig));
-        server.createContext("/payment/verify", new PaymentHandler(dbConfig));
-        server.createContext("/razorpay/webhook", new PaymentHandler(dbConfig));
-        server.createContext("/payment/refund", new PaymentHandler(dbConfig));
+        router.add("/wallet", wallet, "GET");
+        router.add("/wallet/transactions", wallet, "GET");
+        router.add("/wallet/refunds", wallet, "GET");
+        router.add("/wallet/deposit", wallet, "GET", "POST");
+        router.add("/wallet/pay", wallet, "GET", "POST");
+        router.add("/coupon/validate", wallet, "POST");
+        router.add("/coupon/best", wallet, "POST");
+        router.add("/referrals", wallet, "GET", "POST");
+        router.add("/payment/createOrder", payment, appPost, "POST");
+        router.add("/payment/verify", new IdempotentHandler(idempotency, payment), appPost, "POST");
+        router.add("/razorpay/webhook", payment, appPost, "POST");
+        router.add("/payment/refund", payment, appPost, "POST");
 
         // ========== WEB HANDLERS ==========
-        server.createContext("/weblogin", new WebLoginRegisterHandler(dbConfig));
-        server.createContext("/registerlogin", new WebLoginRegisterHandler(dbConfig));
-        server.createContext("/forgotpassword", new WebLoginRegisterHandler(dbConfig));
-        
-        server.createContext("/api/partner", new WebDashBoardHandler(dbConfig));
+        router.add("/weblogin", webLogin, webPost, "POST");
+        router.add("/registerlogin", webLogin, webPost, "POST");
+        router.add("/forgotpassword", webLogin, webPost, "POST");
 
-        server.createContext("/webgetprofile", new WebProfileHandler(dbConfig));
-        server.createContext("/webupdateprofile", new WebProfileHandler(dbConfig));
-        server.createContext("/webchangepassword", new WebProfileHandler(dbConfig));
-        server.createContext("/webdeleteprofile", new WebProfileHandler(dbConfig));
+        // Was a createContext("/api/partner") prefix match: keep deeper paths and the bare path routed
+        router.add("/api/partner", webDashboard, webAuth, "GET");
+        router.add("/api/partner/{partnerId}", webDashboard, webAuth, "GET");
+        router.add("/api/partner/{partnerId}/**", webDashboard, webAuth, "GET");
 
-        server.createContext("/webaddhotels", new AddHotelsHandler(dbConfig));
-        server.createContext("/hotel_images", new HotelImagesHandler(dbConfig));
-        server.createContext("/webaddpgs", new AddPgHandler(dbConfig));
+        router.add("/webgetprofile", webProfile, webPost, "POST");
+        router.add("/webupdateprofile", webProfile, webPost, "POST");
+        router.add("/webchangepassword", webProfile, webPost, "POST");
+        router.add("/webdeleteprofile", webProfile, webPost, "POST");
 
-        server.createContext("/webviewhotels", new WebViewHotelsHandler(dbConfig)); 
-        server.createContext("/webviewpgs", new WebViewPGsHandler(dbConfig));
-
-        server.createContext("/webgetPartnerBookings", new WebBookingHandler(dbConfig));
-        server.createContext("/webcancelBooking", new WebBookingHandler(dbConfig));
-        server.createContext("/webupdateBookingStatus", new WebBookingHandler(dbConfig));
-        server.createContext("/setNotificationViewed", new SetFinanceNotificationViewedHandler(dbConfig));
+        router.add("/webaddhotels", addHotels, webPost, "POST");
+        router.add("/hotel_images/**", hotelImages, images, "GET");
+        router.add("/webaddpgs", addPgs, webPost, "POST");
 
+        router.add("/webviewhotels", webViewHotels, webPost, "POST");
+        router.add("/webviewpgs", webViewPgs, webPost, "POST");
 
+        router.add("/webgetPartnerBookings", webBooking, webGetPost, "GET");
+        router.add("/webcancelBooking", webBooking, webGetPost, "POST");
+        router.add("/webupdateBookingStatus", webBooking, webGetPost, "POST");
+        router.add("/setNotificationViewed", financeViewed, webAuth, "POST");
 
         // ========== CUSTOMIZATION ==========
-        server.createContext("/customize", new ProfileHandler(dbConfig));
+        router.add("/customize", profile, "GET", "POST");
 
         // ========== PARTNER FINANCE HANDLERS ==========
-        server.createContext("/getPartnerFinance", new GetPartnerFinanceHandler(dbConfig));
-        server.createContext("/updateBankDetails", new UpdateBankDetailsHandler(dbConfig));
-        server.createContext("/requestPayout", new RequestPayoutHandler(dbConfig));
-        server.createContext("/getPartnerTransactions", new GetPartnerTransactionsHandler(dbConfig));
-        
+        router.add("/getPartnerFinance", partnerFinance, webGetPost, "GET", "POST");
+        router.add("/updateBankDetails", bankDetails, webPost, "POST");
+        router.add("/requestPayout", payout, webPost, "POST");
+        router.add("/getPartnerTransactions", partnerTransactions, webGetPost, "GET", "POST");
+
+        // ========== SERVER STATS ==========
+        router.add("/server/executor", executor.statsHandler(), "GET");
+        router.add("/server/catalog", catalog.statsHandler(), "GET");
+        router.add("/server/coupons", coupons.statsHandler(), "GET");
+        router.add("/server/coupon-usage", couponUsage.statsHandler(), "GET");
+        router.add("/server/events", outboxRelay.statsHandler(), "GET");
+
+        server.createContext("/", router);
 
         // ======== START SERVER ========
-        server.setExecutor(null); // default executor
+        server.setExecutor(executor); // mode from server.executor (legacy | virtual | pool)
         server.start();
 
-        System.out.println("✅ Server started successfully on port " + port);
+        System.out.println("✅ Server started successfully on port " + port
+                + " (executor: " + executor.getMode().name().toLowerCase() + ")");
         System.out.println("Available endpoints:");
 
     }
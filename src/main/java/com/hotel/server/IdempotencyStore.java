@@ -0,0 +1,220 @@
+package com.hotel.server;
+
+import com.hotel.utilities.DbConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembered responses for requests sent with an Idempotency-Key header.
+ *
+ * Recent responses sit in a bounded LRU (idempotency.cache.size, default 10000). Every
+ * response is also written to idempotency_keys in the customer database, so a retry that
+ * reaches another server, or arrives after a restart, is still answered from the first
+ * response. Rows are kept idempotency.ttl.hours (default 24) and purged hourly. LRU entries
+ * expire with their row: a hit past the TTL is dropped and the key can be claimed again.
+ *
+ * A key is claimed with INSERT IGNORE before the request runs. Only the server that
+ * inserted the row executes the request. Inside one server, duplicates that arrive while
+ * the first copy is still running wait on its future instead of polling the table.
+ * <pre>
+ *   CREATE TABLE idempotency_keys (
+ *     Idempotency_Key VARCHAR(320) PRIMARY KEY,     -- route + ' ' + client key
+ *     Request_Hash    CHAR(64)     NOT NULL,        -- SHA-256 of the request body
+ *     Status_Code     INT          NULL,            -- NULL while the request is running
+ *     Content_Type    VARCHAR(100) NULL,
+ *     Response_Body   MEDIUMBLOB   NULL,
+ *     Created_At      DATETIME     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+ *     INDEX idx_idempotency_created (Created_At)
+ *   );
+ * </pre>
+ */
+public final class IdempotencyStore {
+
+    /** A response as it was first sent. */
+    public record Stored(String requestHash, int status, String contentType, byte[] body) {}
+
+    /**
+     * Outcome of {@link #claim}: the stored response, a copy running in this server to wait
+     * for, a copy running on another server, or a key the caller now owns and must run.
+     */
+    public sealed interface Claim permits Done, Wait, Busy, Owned {}
+    public record Done(Stored response) implements Claim {}
+    public record Wait(CompletableFuture<Stored> future) implements Claim {}
+    public record Busy() implements Claim {}
+    public record Owned(CompletableFuture<Stored> future) implements Claim {}
+
+    // expiresAtMillis is on this server's clock
+    private record Cached(Stored response, long expiresAtMillis) {}
+
+    private final DbConfig dbConfig;
+    private final int ttlHours;
+    private final Map<String, Cached> recent;
+    private final ConcurrentHashMap<String, CompletableFuture<Stored>> inFlight = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "idempotency-purge");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public IdempotencyStore(DbConfig dbConfig) {
+        this.dbConfig = dbConfig;
+        this.ttlHours = dbConfig.getIntSetting("idempotency.ttl.hours", 24);
+
+        int capacity = dbConfig.getIntSetting("idempotency.cache.size", 10_000);
+        this.recent = new LinkedHashMap<>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    public void start() {
+        purger.scheduleWithFixedDelay(this::purge, 1, 1, TimeUnit.HOURS);
+    }
+
+    public void shutdown() {
+        purger.shutdownNow();
+    }
+
+    // ===== Lookup / claim =====
+
+    /** Looks up or claims {@code key}. An Owned claim must end in {@link #complete} or {@link #abandon}. */
+    public Claim claim(String key, String requestHash) throws SQLException {
+        Stored cached = cached(key);
+        if (cached != null) return new Done(cached);
+
+        CompletableFuture<Stored> mine = new CompletableFuture<>();
+        CompletableFuture<Stored> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) return new Wait(running);
+
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+            if (insertClaim(conn, key, requestHash)) return new Owned(mine);
+
+            Cached stored = load(conn, key);
+            inFlight.remove(key, mine);
+            if (stored == null) return new Busy();             // another server is still running it
+            remember(key, stored);
+            return new Done(stored.response());
+        } catch (SQLException e) {
+            inFlight.remove(key, mine);
+            throw e;
+        }
+    }
+
+    /** Stores the response of an owned key and wakes any duplicates waiting on it. */
+    public void complete(String key, CompletableFuture<Stored> future, Stored response) {
+        String sql = "UPDATE idempotency_keys SET Status_Code = ?, Content_Type = ?, Response_Body = ? " +
+                "WHERE Idempotency_Key = ?";
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, response.status());
+            ps.setString(2, response.contentType());
+            ps.setBytes(3, response.body());
+            ps.setString(4, key);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("⚠ Could not store idempotent response for " + key + ": " + e.getMessage());
+        }
+        remember(key, new Cached(response, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(ttlHours)));
+        inFlight.remove(key, future);
+        future.complete(response);
+    }
+
+    /**
+     * Drops the claim on a key whose request failed (5xx or an exception), so the client's
+     * retry runs again. Duplicates waiting on it get null and must retry too.
+     */
+    public void abandon(String key, CompletableFuture<Stored> future) {
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "DELETE FROM idempotency_keys WHERE Idempotency_Key = ? AND Status_Code IS NULL")) {
+            ps.setString(1, key);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("⚠ Could not release idempotency key " + key + ": " + e.getMessage());
+        }
+        inFlight.remove(key, future);
+        future.complete(null);
+    }
+
+    // ===== Storage =====
+
+    private Stored cached(String key) {
+        synchronized (recent) {
+            Cached cached = recent.get(key);
+            if (cached == null) return null;
+            if (cached.expiresAtMillis() <= System.currentTimeMillis()) {
+                recent.remove(key);
+                return null;
+            }
+            return cached.response();
+        }
+    }
+
+    private void remember(String key, Cached response) {
+        synchronized (recent) {
+            recent.put(key, response);
+        }
+    }
+
+    private boolean insertClaim(Connection conn, String key, String requestHash) throws SQLException {
+        // An expired row that the purge has not reached yet does not block a new claim
+        try (PreparedStatement ps = conn.prepareStatement(
+                "DELETE FROM idempotency_keys WHERE Idempotency_Key = ? AND Created_At < NOW() - INTERVAL ? HOUR")) {
+            ps.setString(1, key);
+            ps.setInt(2, ttlHours);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT IGNORE INTO idempotency_keys (Idempotency_Key, Request_Hash) VALUES (?, ?)")) {
+            ps.setString(1, key);
+            ps.setString(2, requestHash);
+            return ps.executeUpdate() == 1;
+        }
+    }
+
+    // The row's age comes from the database clock, so the expiry does not depend on ours
+    private Cached load(Connection conn, String key) throws SQLException {
+        String sql = "SELECT Request_Hash, Status_Code, Content_Type, Response_Body, " +
+                "TIMESTAMPDIFF(SECOND, Created_At, NOW()) AS Age_Seconds FROM idempotency_keys " +
+                "WHERE Idempotency_Key = ? AND Status_Code IS NOT NULL";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, key);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                byte[] body = rs.getBytes("Response_Body");
+                Stored stored = new Stored(rs.getString("Request_Hash"), rs.getInt("Status_Code"),
+                        rs.getString("Content_Type"), body == null ? new byte[0] : body);
+                long remainingMillis = TimeUnit.HOURS.toMillis(ttlHours) - TimeUnit.SECONDS.toMillis(rs.getLong("Age_Seconds"));
+                return new Cached(stored, System.currentTimeMillis() + remainingMillis);
+            }
+        }
+    }
+
+    private void purge() {
+        long now = System.currentTimeMillis();
+        synchronized (recent) {
+            recent.values().removeIf(cached -> cached.expiresAtMillis() <= now);
+        }
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "DELETE FROM idempotency_keys WHERE Created_At < NOW() - INTERVAL ? HOUR")) {
+            ps.setInt(1, ttlHours);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            System.err.println("⚠ Idempotency purge failed, will retry: " + e.getMessage());
+        }
+    }
+}
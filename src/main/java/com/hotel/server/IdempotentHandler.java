@@ -0,0 +1,195 @@
+package com.hotel.server;
+
+import com.hotel.server.IdempotencyStore.Claim;
+import com.hotel.server.IdempotencyStore.Done;
+import com.hotel.server.IdempotencyStore.Owned;
+import com.hotel.server.IdempotencyStore.Stored;
+import com.hotel.server.IdempotencyStore.Wait;
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.SQLException;
+import java.util.HexFormat;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs a POST handler at most once per Idempotency-Key.
+ *
+ * Without the header the request goes straight to the wrapped handler. With it, the first
+ * request runs and its status and body are stored (see {@link IdempotencyStore}). A
+ * retry with the same key and body gets that response back, marked with
+ * "Idempotent-Replayed: true", and the handler does not run again. The same key with a
+ * different body is rejected with 422. A retry that arrives while the first copy is still
+ * running on another server gets 409. 5xx responses are not stored, so those can be retried.
+ *
+ * Keys are scoped to the route path, so one key may be used on /booking and then on
+ * /payment/verify.
+ */
+public final class IdempotentHandler implements HttpHandler {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long WAIT_SECONDS = 30;
+
+    private final IdempotencyStore store;
+    private final HttpHandler delegate;
+
+    public IdempotentHandler(IdempotencyStore store, HttpHandler delegate) {
+        this.store = store;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String key = exchange.getRequestHeaders().getFirst(HEADER);
+        if (key == null || key.isBlank()) {
+            delegate.handle(exchange);
+            return;
+        }
+        key = key.trim();
+        if (key.length() > MAX_KEY_LENGTH) {
+            Json.sendError(exchange, 400, HEADER + " must be at most " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String requestHash = sha256(body);
+        String scopedKey = exchange.getRequestURI().getPath() + " " + key;
+
+        Claim claim;
+        try {
+            claim = store.claim(scopedKey, requestHash);
+        } catch (SQLException e) {
+            System.err.println("⚠ Idempotency lookup failed: " + e.getMessage());
+            Json.sendError(exchange, 503, "Could not check " + HEADER + ", please retry");
+            return;
+        }
+
+        if (claim instanceof Owned owned) {
+            run(exchange, body, requestHash, scopedKey, owned);
+        } else if (claim instanceof Done done) {
+            replay(exchange, done.response(), requestHash);
+        } else if (claim instanceof Wait wait) {
+            replay(exchange, await(wait), requestHash);
+        } else {
+            Json.sendError(exchange, 409, "A request with this " + HEADER + " is still in progress");
+        }
+    }
+
+    private void run(HttpExchange exchange, byte[] body, String requestHash, String scopedKey, Owned owned)
+            throws IOException {
+        Capture capture = new Capture(exchange, body);
+        HttpExchange inner = exchange instanceof RoutedExchange routed ? routed.withDelegate(capture) : capture;
+
+        try {
+            delegate.handle(inner);
+        } catch (IOException | RuntimeException e) {
+            store.abandon(scopedKey, owned.future());
+            throw e;
+        }
+
+        Stored response = new Stored(requestHash, capture.status,
+                exchange.getResponseHeaders().getFirst("Content-Type"), capture.buffer.toByteArray());
+        if (capture.status <= 0 || capture.status >= 500) {
+            store.abandon(scopedKey, owned.future());
+            if (capture.status <= 0) {
+                Json.sendError(exchange, 500, "No response");
+                return;
+            }
+        } else {
+            store.complete(scopedKey, owned.future(), response);
+        }
+        send(exchange, response);
+    }
+
+    private static Stored await(Wait wait) {
+        try {
+            return wait.future().get(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException | TimeoutException e) {
+            return null;
+        }
+    }
+
+    private static void replay(HttpExchange exchange, Stored stored, String requestHash) throws IOException {
+        if (stored == null) {
+            Json.sendError(exchange, 409, "A request with this " + HEADER + " did not complete, please retry");
+        } else if (!stored.requestHash().equals(requestHash)) {
+            Json.sendError(exchange, 422, HEADER + " was already used for a different request");
+        } else {
+            exchange.getResponseHeaders().set("Idempotent-Replayed", "true");
+            send(exchange, stored);
+        }
+    }
+
+    private static void send(HttpExchange exchange, Stored stored) throws IOException {
+        if (stored.contentType() != null) exchange.getResponseHeaders().set("Content-Type", stored.contentType());
+        byte[] body = stored.body();
+        exchange.sendResponseHeaders(stored.status(), body.length == 0 ? -1 : body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Exchange handed to the wrapped handler: the request body comes from the bytes already
+     * read, and the status and body are buffered instead of sent. Response headers go
+     * straight to the real exchange.
+     */
+    private static final class Capture extends HttpExchange {
+
+        private final HttpExchange delegate;
+        private final InputStream requestBody;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private int status = -1;
+
+        Capture(HttpExchange delegate, byte[] requestBody) {
+            this.delegate = delegate;
+            this.requestBody = new ByteArrayInputStream(requestBody);
+        }
+
+        @Override public InputStream getRequestBody() { return requestBody; }
+        @Override public OutputStream getResponseBody() { return buffer; }
+        @Override public void sendResponseHeaders(int rCode, long responseLength) { status = rCode; }
+        @Override public int getResponseCode() { return status; }
+        @Override public void close() { }
+        @Override public void setStreams(InputStream i, OutputStream o) { }
+
+        @Override public Headers getRequestHeaders() { return delegate.getRequestHeaders(); }
+        @Override public Headers getResponseHeaders() { return delegate.getResponseHeaders(); }
+        @Override public URI getRequestURI() { return delegate.getRequestURI(); }
+        @Override public String getRequestMethod() { return delegate.getRequestMethod(); }
+        @Override public HttpContext getHttpContext() { return delegate.getHttpContext(); }
+        @Override public InetSocketAddress getRemoteAddress() { return delegate.getRemoteAddress(); }
+        @Override public InetSocketAddress getLocalAddress() { return delegate.getLocalAddress(); }
+        @Override public String getProtocol() { return delegate.getProtocol(); }
+        @Override public Object getAttribute(String name) { return delegate.getAttribute(name); }
+        @Override public void setAttribute(String name, Object value) { delegate.setAttribute(name, value); }
+        @Override public HttpPrincipal getPrincipal() { return delegate.getPrincipal(); }
+    }
+}
@@ -0,0 +1,166 @@
+package com.hotel.server;
+
+import com.hotel.utilities.DbConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Executor used by HotelBookingServer to run HttpExchanges.
+ *
+ * Configured from the config file:
+ *   server.executor = legacy | virtual | pool   (default: pool)
+ *   server.threads  = worker threads for pool mode (default: 2 x cores)
+ *   server.queue    = max queued requests for pool mode (default: 1000)
+ *
+ * legacy  - runs every request on the JDK dispatcher thread (old setExecutor(null) behaviour)
+ * virtual - one virtual thread per request (needs a Java 21+ runtime, falls back to pool otherwise)
+ * pool    - bounded platform thread pool; when the queue is full the request runs on the
+ *           dispatcher thread, which stops new connections being accepted until it finishes
+ */
+public final class RequestExecutor implements Executor {
+
+    public enum Mode { LEGACY, VIRTUAL, POOL }
+
+    private final Mode mode;
+    private final ExecutorService delegate;   // null in LEGACY mode
+    private final int maxQueue;
+
+    // ===== Gauges =====
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private RequestExecutor(Mode mode, ExecutorService delegate, int maxQueue) {
+        this.mode = mode;
+        this.delegate = delegate;
+        this.maxQueue = maxQueue;
+    }
+
+    public static RequestExecutor fromConfig(DbConfig dbConfig) {
+        String configured = dbConfig.getSetting("server.executor", "pool").toUpperCase();
+        int threads = dbConfig.getIntSetting("server.threads", Runtime.getRuntime().availableProcessors() * 2);
+        int maxQueue = dbConfig.getIntSetting("server.queue", 1000);
+
+        Mode mode;
+        try {
+            mode = Mode.valueOf(configured);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid property server.executor: " + configured);
+        }
+
+        switch (mode) {
+            case LEGACY:
+                return new RequestExecutor(Mode.LEGACY, null, 0);
+            case VIRTUAL:
+                ExecutorService virtual = newVirtualThreadExecutor();
+                if (virtual != null) {
+                    return new RequestExecutor(Mode.VIRTUAL, virtual, 0);
+                }
+                System.out.println("⚠ Virtual threads not available on this JVM, using pool executor");
+                return newPool(threads, maxQueue);
+            default:
+                return newPool(threads, maxQueue);
+        }
+    }
+
+    private static RequestExecutor newPool(int threads, int maxQueue) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(maxQueue),
+                r -> {
+                    Thread t = new Thread(r, "http-worker-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        return new RequestExecutor(Mode.POOL, pool, maxQueue);
+    }
+
+    // Looked up reflectively so the project still builds and runs on Java 17
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        queued.incrementAndGet();
+        Runnable tracked = () -> {
+            queued.decrementAndGet();
+            active.incrementAndGet();
+            try {
+                command.run();
+            } finally {
+                active.decrementAndGet();
+                completed.incrementAndGet();
+            }
+        };
+
+        if (delegate == null) {
+            tracked.run();
+            return;
+        }
+
+        try {
+            delegate.execute(tracked);
+        } catch (RejectedExecutionException e) {
+            // Queue full: back-pressure onto the dispatcher instead of dropping the exchange
+            rejected.incrementAndGet();
+            tracked.run();
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    public int getActiveRequests() {
+        return active.get();
+    }
+
+    public void shutdown() {
+        if (delegate != null) {
+            delegate.shutdown();
+        }
+    }
+
+    // ===== GET /server/executor → gauges as JSON =====
+    public HttpHandler statsHandler() {
+        return this::sendStats;
+    }
+
+    private void sendStats(HttpExchange exchange) throws IOException {
+        String json = "{\"mode\":\"" + mode.name().toLowerCase() + "\"" +
+                ",\"queueDepth\":" + queued.get() +
+                ",\"maxQueue\":" + maxQueue +
+                ",\"activeRequests\":" + active.get() +
+                ",\"completedRequests\":" + completed.get() +
+                ",\"rejectedRequests\":" + rejected.get() + "}";
+
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.hotel.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * HttpExchange handed to handlers by the Router. Carries the path and query
+ * parameters extracted while matching, so handlers don't parse the URI again.
+ *
+ * Kept on the exchange itself rather than in setAttribute(), because on Java 17
+ * exchange attributes are backed by the shared HttpContext map.
+ */
+public final class RoutedExchange extends HttpExchange {
+
+    private final HttpExchange delegate;
+    private final String pattern;
+    private final Map<String, String> pathParams;
+    private final Map<String, String> queryParams;
+
+    RoutedExchange(HttpExchange delegate, String pattern,
+                   Map<String, String> pathParams, Map<String, String> queryParams) {
+        this.delegate = delegate;
+        this.pattern = pattern;
+        this.pathParams = pathParams;
+        this.queryParams = queryParams;
+    }
+
+    /** The route pattern that matched, e.g. "/api/partner/{partnerId}". */
+    public String getRoutePattern() {
+        return pattern;
+    }
+
+    public String pathParam(String name) {
+        return pathParams.get(name);
+    }
+
+    public String queryParam(String name) {
+        return queryParams.get(name);
+    }
+
+    public Map<String, String> queryParams() {
+        return queryParams;
+    }
+
+    /** The same route match over another exchange (used to wrap the request or response streams). */
+    RoutedExchange withDelegate(HttpExchange other) {
+        return new RoutedExchange(other, pattern, pathParams, queryParams);
+    }
+
+    // ===== Delegation =====
+
+    @Override public Headers getRequestHeaders() { return delegate.getRequestHeaders(); }
+    @Override public Headers getResponseHeaders() { return delegate.getResponseHeaders(); }
+    @Override public URI getRequestURI() { return delegate.getRequestURI(); }
+    @Override public String getRequestMethod() { return delegate.getRequestMethod(); }
+    @Override public HttpContext getHttpContext() { return delegate.getHttpContext(); }
+    @Override public void close() { delegate.close(); }
+    @Override public InputStream getRequestBody() { return delegate.getRequestBody(); }
+    @Override public OutputStream getResponseBody() { return delegate.getResponseBody(); }
+    @Override public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        delegate.sendResponseHeaders(rCode, responseLength);
+    }
+    @Override public InetSocketAddress getRemoteAddress() { return delegate.getRemoteAddress(); }
+    @Override public int getResponseCode() { return delegate.getResponseCode(); }
+    @Override public InetSocketAddress getLocalAddress() { return delegate.getLocalAddress(); }
+    @Override public String getProtocol() { return delegate.getProtocol(); }
+    @Override public Object getAttribute(String name) { return delegate.getAttribute(name); }
+    @Override public void setAttribute(String name, Object value) { delegate.setAttribute(name, value); }
+    @Override public void setStreams(InputStream i, OutputStream o) { delegate.setStreams(i, o); }
+    @Override public HttpPrincipal getPrincipal() { return delegate.getPrincipal(); }
+}
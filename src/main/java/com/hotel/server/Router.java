@@ -0,0 +1,246 @@
+package com.hotel.server;
+
+import com.hotel.utilities.Json;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Single entry point for every request. Routes are compiled into a segment trie once at
+ * startup; each request is matched by walking its path segments, so dispatch cost depends
+ * on path depth and not on the number of routes.
+ *
+ * Patterns:
+ *   /login                     literal
+ *   /api/partner/{partnerId}   named path parameter
+ *   /hotel_images/**           rest of the path (any depth)
+ *
+ * Per-route metadata (allowed methods and CORS policy) is declared at registration.
+ * The router answers CORS preflights, 404s and 405s itself (errors as {"error": ...}) and sets CORS headers on every
+ * response of a CORS-enabled route, so handlers must not add them again.
+ */
+public final class Router implements HttpHandler {
+
+    // ===== CORS policies =====
+    public static final class Cors {
+        final String allowMethods;
+        final String allowHeaders;
+        final String exposeHeaders;
+
+        private Cors(String allowMethods, String allowHeaders, String exposeHeaders) {
+            this.allowMethods = allowMethods;
+            this.allowHeaders = allowHeaders;
+            this.exposeHeaders = exposeHeaders;
+        }
+
+        public static Cors of(String allowMethods, String allowHeaders) {
+            return new Cors(allowMethods, allowHeaders, null);
+        }
+
+        /** The same policy, also letting browser scripts read {@code headers} on responses. */
+        public Cors exposing(String headers) {
+            return new Cors(allowMethods, allowHeaders, headers);
+        }
+    }
+
+    private static final class Route {
+        final String pattern;
+        final HttpHandler handler;
+        final Set<String> methods;
+        final Cors cors;
+        final String allowHeader;
+
+        Route(String pattern, HttpHandler handler, Cors cors, String... methods) {
+            this.pattern = pattern;
+            this.handler = handler;
+            this.cors = cors;
+            this.methods = new LinkedHashSet<>();
+            for (String m : methods) this.methods.add(m.toUpperCase());
+            this.allowHeader = String.join(", ", this.methods);
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> literals = new HashMap<>();
+        Node param;
+        String paramName;
+        Route rest;     // "/**" route hanging off this node
+        Route route;    // exact route ending at this node
+    }
+
+    private static final class Match {
+        final Route route;
+        final Map<String, String> pathParams;
+
+        Match(Route route, Map<String, String> pathParams) {
+            this.route = route;
+            this.pathParams = pathParams;
+        }
+    }
+
+    private final Node root = new Node();
+
+    // ===== Registration =====
+
+    public Router add(String pattern, HttpHandler handler, String... methods) {
+        return add(pattern, handler, null, methods);
+    }
+
+    public Router add(String pattern, HttpHandler handler, Cors cors, String... methods) {
+        if (methods.length == 0) {
+            throw new IllegalArgumentException("Route " + pattern + " must allow at least one method");
+        }
+
+        Route route = new Route(pattern, handler, cors, methods);
+        Node node = root;
+
+        for (String segment : split(pattern)) {
+            if ("**".equals(segment)) {
+                if (node.rest != null) throw duplicate(pattern);
+                node.rest = route;
+                return this;
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String name = segment.substring(1, segment.length() - 1);
+                if (node.param == null) {
+                    node.param = new Node();
+                    node.paramName = name;
+                } else if (!node.paramName.equals(name)) {
+                    throw new IllegalArgumentException("Conflicting parameter names at " + pattern);
+                }
+                node = node.param;
+            } else {
+                node = node.literals.computeIfAbsent(segment, s -> new Node());
+            }
+        }
+
+        if (node.route != null) throw duplicate(pattern);
+        node.route = route;
+        return this;
+    }
+
+    private IllegalArgumentException duplicate(String pattern) {
+        return new IllegalArgumentException("Duplicate route: " + pattern);
+    }
+
+    // ===== Dispatch =====
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod().toUpperCase();
+            Match match = find(exchange.getRequestURI().getPath());
+
+            if (match == null) {
+                Json.sendError(exchange, 404, "Invalid endpoint: " + exchange.getRequestURI().getPath());
+                return;
+            }
+
+            Route route = match.route;
+            if (route.cors != null) {
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Methods", route.cors.allowMethods);
+                exchange.getResponseHeaders().set("Access-Control-Allow-Headers", route.cors.allowHeaders);
+                if (route.cors.exposeHeaders != null) {
+                    exchange.getResponseHeaders().set("Access-Control-Expose-Headers", route.cors.exposeHeaders);
+                }
+
+                if ("OPTIONS".equals(method)) {
+                    exchange.sendResponseHeaders(204, -1);
+                    return;
+                }
+            }
+
+            if (!route.methods.contains(method)) {
+                exchange.getResponseHeaders().set("Allow", route.allowHeader);
+                Json.sendError(exchange, 405, "Method not allowed: " + method);
+                return;
+            }
+
+            RoutedExchange routed = new RoutedExchange(exchange, route.pattern,
+                    match.pathParams, parseQuery(exchange.getRequestURI().getRawQuery()));
+            route.handler.handle(routed);
+
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private Match find(String path) {
+        List<String> segments = split(path);
+        return find(root, segments, 0, null);
+    }
+
+    // Literal segments win over parameters, parameters over "/**"
+    private Match find(Node node, List<String> segments, int index, Map<String, String> params) {
+        if (index == segments.size()) {
+            if (node.route != null) return new Match(node.route, params == null ? Map.of() : params);
+            if (node.rest != null) return new Match(node.rest, params == null ? Map.of() : params);
+            return null;
+        }
+
+        String segment = segments.get(index);
+
+        Node literal = node.literals.get(segment);
+        if (literal != null) {
+            Match m = find(literal, segments, index + 1, params);
+            if (m != null) return m;
+        }
+
+        if (node.param != null) {
+            Map<String, String> next = params == null ? new HashMap<>(4) : new HashMap<>(params);
+            next.put(node.paramName, URLDecoder.decode(segment, StandardCharsets.UTF_8));
+            Match m = find(node.param, segments, index + 1, next);
+            if (m != null) return m;
+        }
+
+        if (node.rest != null) {
+            return new Match(node.rest, params == null ? Map.of() : params);
+        }
+        return null;
+    }
+
+    private static List<String> split(String path) {
+        List<String> segments = new ArrayList<>(6);
+        if (path == null) return segments;
+
+        int start = 0;
+        int len = path.length();
+        while (start < len) {
+            int slash = path.indexOf('/', start);
+            int end = slash < 0 ? len : slash;
+            if (end > start) segments.add(path.substring(start, end));
+            start = end + 1;
+        }
+        return segments;
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) return Map.of();
+
+        Map<String, String> map = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            String[] kv = pair.split("=", 2);
+            String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
+            String value = kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8).trim() : "";
+            map.putIfAbsent(key, value);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    // ===== Helpers for handlers =====
+
+    public static String pathParam(HttpExchange exchange, String name) {
+        return exchange instanceof RoutedExchange r ? r.pathParam(name) : null;
+    }
+
+    public static Map<String, String> queryParams(HttpExchange exchange) {
+        if (exchange instanceof RoutedExchange r) return r.queryParams();
+        return parseQuery(exchange.getRequestURI().getRawQuery());
+    }
+}
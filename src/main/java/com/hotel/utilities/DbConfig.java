@@ -4,6 +4,7 @@ import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 
 import javax.sql.DataSource;
+import java.util.Properties;
 
 /**
  * Central DB configuration + DataSource manager.
@@ -28,6 +29,9 @@ public final class DbConfig {
     private final String apiKeySecret;
     private final String webHookSecret;
     
+    // ===== Non-DB settings (server.*, etc.) =====
+    private final Properties settings;
+
     // ===== DataSources =====
     private final HikariDataSource customerDataSource;
     private final HikariDataSource partnerDataSource;
@@ -35,6 +39,13 @@ public final class DbConfig {
     // ===== Constructor =====
     public DbConfig(String customerDbUrl, String partnerDbUrl, String username, String password,
                     String imageBaseUrl, String hotelImagesPath, String apiKey, String apiKeySecret, String webHookSecret) {
+        this(customerDbUrl, partnerDbUrl, username, password, imageBaseUrl, hotelImagesPath,
+                apiKey, apiKeySecret, webHookSecret, new Properties());
+    }
+
+    public DbConfig(String customerDbUrl, String partnerDbUrl, String username, String password,
+                    String imageBaseUrl, String hotelImagesPath, String apiKey, String apiKeySecret, String webHookSecret,
+                    Properties settings) {
 
         if (customerDbUrl == null || partnerDbUrl == null || username == null || password == null ||
             imageBaseUrl == null || hotelImagesPath == null || apiKey == null || apiKeySecret == null || webHookSecret == null) {
@@ -50,6 +61,7 @@ public final class DbConfig {
         this.apiKey = apiKey;
         this.apiKeySecret = apiKeySecret;
         this.webHookSecret = webHookSecret;
+        this.settings = settings == null ? new Properties() : settings;
 
         // Initialize pools
         this.customerDataSource = createDataSource(customerDbUrl);
@@ -80,6 +92,10 @@ public final class DbConfig {
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         config.addDataSourceProperty("useServerPrepStmts", "true");
 
+        // Honour Statement.setFetchSize() with a server-side cursor (streamed responses);
+        // statements that don't set a fetch size still read the whole result at once
+        config.addDataSourceProperty("useCursorFetch", "true");
+
         return new HikariDataSource(config);
     }
 
@@ -111,6 +127,22 @@ public final class DbConfig {
     public String getWebhookSecret() {
         return webHookSecret;
     }
+
+    // ===== Optional settings from the same config file =====
+    public String getSetting(String key, String defaultValue) {
+        String value = settings.getProperty(key);
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public int getIntSetting(String key, int defaultValue) {
+        String value = settings.getProperty(key);
+        if (value == null || value.isBlank()) return defaultValue;
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid integer for property " + key + ": " + value);
+        }
+    }
     
 
     // ===== Graceful Shutdown =====
@@ -99,7 +99,7 @@ public class DbConfigLoader {
 
         // ===== Return consolidated config =====
         return new DbConfig(customerUrl, partnerUrl, user, password, imageBaseUrl, hotelImagesPath,
-                apiKey, apiKeySecret, webHookSecret
+                apiKey, apiKeySecret, webHookSecret, props
         );
     }
 }
\ No newline at end of file
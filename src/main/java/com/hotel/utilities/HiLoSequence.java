@@ -0,0 +1,70 @@
+package com.hotel.utilities;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Dense sequential numbers handed out from blocks reserved in the database.
+ *
+ * One UPDATE reserves {@code blockSize} numbers at a time:
+ * <pre>
+ *   UPDATE id_blocks SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?
+ * </pre>
+ * The row lock is held only for that statement. The numbers in the block are then
+ * handed out from memory, so two servers, or two threads, never get the same number,
+ * and registrations never race on SELECT MAX(...). Numbers left in a block when the
+ * server stops are skipped, never reused.
+ *
+ * Table (one per database that needs a sequence), seeded past the highest existing id:
+ * <pre>
+ *   CREATE TABLE id_blocks (name VARCHAR(32) PRIMARY KEY, next_value BIGINT NOT NULL);
+ *   INSERT INTO id_blocks SELECT 'user', COALESCE(MAX(CAST(SUBSTRING(User_ID, 3) AS UNSIGNED)), 9087600) + 1
+ *     FROM User_Info;                                       -- customer database
+ *   INSERT INTO id_blocks SELECT 'partner', COALESCE(MAX(CAST(SUBSTRING(Partner_ID, 3) AS UNSIGNED)), 10000) + 1
+ *     FROM partner_data;                                    -- partner database
+ * </pre>
+ */
+public final class HiLoSequence {
+
+    private static final String RESERVE_SQL =
+            "UPDATE id_blocks SET next_value = LAST_INSERT_ID(next_value + ?) WHERE name = ?";
+
+    private final DataSource dataSource;
+    private final String name;
+    private final int blockSize;
+
+    // Current block: next <= n < limit
+    private long next;
+    private long limit;
+
+    public HiLoSequence(DataSource dataSource, String name, int blockSize) {
+        this.dataSource = dataSource;
+        this.name = name;
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long next() throws SQLException {
+        if (next >= limit) reserveBlock();
+        return next++;
+    }
+
+    private void reserveBlock() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(RESERVE_SQL)) {
+            ps.setInt(1, blockSize);
+            ps.setString(2, name);
+            if (ps.executeUpdate() != 1) {
+                throw new SQLException("No id_blocks row for sequence '" + name + "'");
+            }
+            try (PreparedStatement last = conn.prepareStatement("SELECT LAST_INSERT_ID()");
+                 ResultSet rs = last.executeQuery()) {
+                rs.next();
+                limit = rs.getLong(1);
+                next = limit - blockSize;
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.hotel.utilities;
+
+import java.sql.SQLException;
+
+/**
+ * Every generated business id in one place.
+ *
+ * Bookings, transactions and listings get Snowflake ids (no DB round trip, ordered by
+ * creation time, node from id.node). User and partner ids keep their short sequential
+ * CR/PR form and come from hi/lo blocks of id.block.size (default 50). Refilling a block
+ * borrows a pooled connection, so callers fetch user and partner ids before opening theirs.
+ *
+ * Snowflake ids are the prefix plus 13 base-36 digits, so they are wider than the old
+ * sequential ones (Booking_ID goes from 9 to 16 characters). The columns holding them
+ * must be at least:
+ * <pre>
+ *   bookings_info.Booking_ID, Transaction_ID     VARCHAR(16)   BKG / TXN + 13
+ *   Partner_Transactions.Transaction_ID          VARCHAR(16)   TX_ + 13
+ *   Hotels_info / paying_guest_info ids          VARCHAR(19)   HOTEL_ + 13, PG_ + 13
+ *
+ *   ALTER TABLE bookings_info MODIFY Booking_ID VARCHAR(16) NOT NULL, MODIFY Transaction_ID VARCHAR(16);
+ * </pre>
+ * Columns that copy these ids, such as bookings_info.Hotel_ID and wallet transaction
+ * references, need the same widths.
+ */
+public final class IdService {
+
+    private final SnowflakeIdGenerator snowflake;
+    private final HiLoSequence users;
+    private final HiLoSequence partners;
+
+    public IdService(DbConfig dbConfig) {
+        this.snowflake = new SnowflakeIdGenerator(dbConfig.getIntSetting("id.node", 0));
+
+        int blockSize = dbConfig.getIntSetting("id.block.size", 50);
+        this.users = new HiLoSequence(dbConfig.getCustomerDataSource(), "user", blockSize);
+        this.partners = new HiLoSequence(dbConfig.getPartnerDataSource(), "partner", blockSize);
+    }
+
+    public String bookingId() {
+        return snowflake.next("BKG");
+    }
+
+    public String transactionId() {
+        return snowflake.next("TXN");
+    }
+
+    public String payoutTransactionId() {
+        return snowflake.next("TX_");
+    }
+
+    public String hotelId() {
+        return snowflake.next("HOTEL_");
+    }
+
+    public String pgId() {
+        return snowflake.next("PG_");
+    }
+
+    public String userId() throws SQLException {
+        return "CR" + users.next();
+    }
+
+    public String partnerId() throws SQLException {
+        return "PR" + partners.next();
+    }
+}
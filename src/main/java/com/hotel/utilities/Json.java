@@ -0,0 +1,110 @@
+package com.hotel.utilities;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Shared JSON serialization for handlers.
+ *
+ * One ObjectMapper for the whole server (it is thread-safe once configured) and
+ * pre-built ObjectWriters, so nothing is set up per request. Responses are
+ * serialized into a reusable buffer and written with an exact Content-Length;
+ * numbers and booleans keep their JSON types.
+ *
+ * Buffers come from a small shared pool rather than a ThreadLocal: under the virtual
+ * executor every request runs on a new thread, so per-thread buffers were never reused.
+ * JsonSerializerBenchmark (under src/test) compares the pool with allocating a buffer per
+ * response, and both with the StringBuilder serializers the handlers used before.
+ */
+public final class Json {
+
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final ObjectWriter WRITER = MAPPER.writer();
+
+    // Buffers that grew past this are dropped after use instead of being kept by the thread
+    private static final int MAX_POOLED_BUFFER = 64 * 1024;
+
+    // Enough for the requests serializing at one moment; when empty a fresh buffer is used
+    private static final BlockingQueue<Buffer> BUFFERS =
+            new ArrayBlockingQueue<>(Math.max(8, 2 * Runtime.getRuntime().availableProcessors()));
+
+    private Json() {
+    }
+
+    // ===== Building =====
+
+    public static ObjectNode object() {
+        return MAPPER.createObjectNode();
+    }
+
+    public static String write(Object value) {
+        try {
+            return WRITER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("JSON serialization failed", e);
+        }
+    }
+
+    // ===== Sending =====
+
+    public static void send(HttpExchange exchange, int status, Object body) throws IOException {
+        Buffer buffer = acquire();
+        try {
+            WRITER.writeValue(buffer, body);
+
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+            exchange.sendResponseHeaders(status, buffer.size());
+            try (OutputStream os = exchange.getResponseBody()) {
+                buffer.writeTo(os);
+            }
+        } finally {
+            release(buffer);
+        }
+    }
+
+    static Buffer acquire() {
+        Buffer buffer = BUFFERS.poll();
+        return buffer != null ? buffer : new Buffer();
+    }
+
+    static void release(Buffer buffer) {
+        if (buffer.capacity() > MAX_POOLED_BUFFER) return;
+        buffer.reset();
+        BUFFERS.offer(buffer);     // dropped if the pool is already full
+    }
+
+    /** {"status":"error","message":...} as used by the partner endpoints. */
+    public static void sendStatus(HttpExchange exchange, int code, String status, String message) throws IOException {
+        ObjectNode node = object();
+        node.put("status", status);
+        node.put("message", message);
+        send(exchange, code, node);
+    }
+
+    /** {"error":...} as used by the app listing endpoints. */
+    public static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        send(exchange, code, Map.of("error", message == null ? "" : message));
+    }
+
+    // ByteArrayOutputStream that exposes its capacity; close() is a no-op, so writeValue() can't discard it
+    static final class Buffer extends ByteArrayOutputStream {
+        Buffer() {
+            super(4096);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
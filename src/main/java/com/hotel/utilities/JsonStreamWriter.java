@@ -0,0 +1,97 @@
+package com.hotel.utilities;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Streams JSON straight from a JDBC ResultSet into the HttpExchange body.
+ *
+ * The response is sent with chunked transfer encoding and rows are pulled from MySQL
+ * FETCH_SIZE at a time (server-side cursor, see useCursorFetch in DbConfig), so memory
+ * stays flat no matter how many rows the query returns.
+ *
+ * Once headers are sent the status can no longer change. A failure mid-stream ends the
+ * body where it stopped: the generator does not auto-close open arrays and objects, so the
+ * client gets invalid JSON rather than a well-formed but silently truncated result.
+ */
+public final class JsonStreamWriter {
+
+    public static final int FETCH_SIZE = 200;
+
+    @FunctionalInterface
+    public interface RowWriter {
+        void write(ResultSet rs, JsonGenerator gen) throws SQLException, IOException;
+    }
+
+    private JsonStreamWriter() {
+    }
+
+    /** Bounded fetch size for a statement whose rows will be streamed. */
+    public static void prepare(PreparedStatement ps) throws SQLException {
+        ps.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Sends 200 + chunked headers and returns a generator over the response body. Closing
+     * the generator does not write missing end markers (see the class comment).
+     */
+    public static JsonGenerator open(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        return Json.MAPPER.getFactory().createGenerator(exchange.getResponseBody())
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+    }
+
+    /** True once the status line has gone out; an error response is no longer possible. */
+    public static boolean headersSent(HttpExchange exchange) {
+        return exchange.getResponseCode() != -1;
+    }
+
+    /** Writes every remaining row as an element of the current array. Returns the row count. */
+    public static int writeRows(JsonGenerator gen, ResultSet rs, RowWriter rowWriter)
+            throws SQLException, IOException {
+        int count = 0;
+        while (rs.next()) {
+            rowWriter.write(rs, gen);
+            count++;
+        }
+        return count;
+    }
+
+    /** Streams the whole ResultSet as a top-level JSON array and closes the response. */
+    public static int streamArray(HttpExchange exchange, ResultSet rs, RowWriter rowWriter)
+            throws SQLException, IOException {
+        try (JsonGenerator gen = open(exchange)) {
+            gen.writeStartArray();
+            int count = writeRows(gen, rs, rowWriter);
+            gen.writeEndArray();
+            return count;
+        }
+    }
+
+    /**
+     * Writes a JDBC value the way the handlers used to after Jackson/Map conversion:
+     * numbers and booleans typed, dates and times as their ISO string, the rest as text.
+     */
+    public static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof Number || value instanceof Boolean) {
+            gen.writeObject(value);
+        } else if (value instanceof java.sql.Date date) {
+            gen.writeString(date.toLocalDate().toString());
+        } else {
+            gen.writeString(value.toString());
+        }
+    }
+
+    public static void writeField(JsonGenerator gen, String name, Object value) throws IOException {
+        gen.writeFieldName(name);
+        writeValue(gen, value);
+    }
+}
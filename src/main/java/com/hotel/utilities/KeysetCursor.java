@@ -0,0 +1,71 @@
+package com.hotel.utilities;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque page cursors for keyset ("seek") pagination.
+ *
+ * A cursor is the sort key of the last row on a page, base64url-encoded so clients treat it
+ * as a token. The next page is requested with ?cursor=..., and the handler turns the
+ * decoded key into a WHERE (key) < (cursor) condition. The cost of a page does not depend
+ * on how deep into the result it is, unlike OFFSET.
+ *
+ * The cursor for the following page goes out in the {@value #HEADER} response header, so
+ * response bodies keep their existing shape. No header means this was the last page.
+ */
+public final class KeysetCursor {
+
+    public static final String HEADER = "X-Next-Cursor";
+
+    private static final String SEPARATOR = "\n";
+
+    private KeysetCursor() {
+    }
+
+    /** Encodes the sort key of the last row; null parts are stored as empty strings. */
+    public static String encode(Object... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) sb.append(SEPARATOR);
+            if (parts[i] != null) sb.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor into exactly {@code parts} strings (empty for null parts), or returns
+     * null when there is no cursor.
+     *
+     * @throws IllegalArgumentException for a cursor this server did not issue
+     */
+    public static String[] decode(String token, int parts) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] values = raw.split(SEPARATOR, -1);
+            if (values.length != parts) throw new IllegalArgumentException("Invalid cursor");
+            return values;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /** Sets the next-page header; call before the response headers are sent. */
+    public static void setNext(HttpExchange exchange, String cursor) {
+        if (cursor != null) exchange.getResponseHeaders().set(HEADER, cursor);
+    }
+
+    /** Page size from ?limit=, clamped to 1..max. */
+    public static int limit(String value, int defaultLimit, int max) {
+        if (value == null || value.isBlank()) return defaultLimit;
+        try {
+            return Math.max(1, Math.min(max, Integer.parseInt(value.trim())));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("limit must be a number");
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.hotel.utilities;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-off job that fills Room_Price_Paise for rows written before the column existed.
+ *
+ * Schema (run once before deploying the handlers that write the column):
+ * <pre>
+ *   ALTER TABLE Hotels_info
+ *     ADD COLUMN Room_Price_Paise BIGINT NULL,
+ *     ADD INDEX idx_hotels_status_price (Status, Room_Price_Paise);
+ *   ALTER TABLE paying_guest_info
+ *     ADD COLUMN Room_Price_Paise BIGINT NULL,
+ *     ADD INDEX idx_pg_status_price (Status, Room_Price_Paise);
+ * </pre>
+ *
+ * Usage: java -Dconfig.path=/path/db.properties com.hotel.utilities.PriceBackfillTool [chunkSize]
+ *
+ * Works in primary-key order, one committed chunk at a time, and only touches rows where
+ * Room_Price_Paise IS NULL. It can be stopped and rerun at any point, and it is safe
+ * next to live traffic: a row whose Room_Price changed after it was read is left for
+ * the write path, which always sets both columns. Values follow the old
+ * CAST(REPLACE(REPLACE(Room_Price,'₹',''),',','') AS DECIMAL), so filters and sorts keep
+ * ordering rows exactly as before. Blank prices stay NULL.
+ */
+public class PriceBackfillTool {
+
+    private static final int DEFAULT_CHUNK = 500;
+
+    public static void main(String[] args) throws Exception {
+        int chunk = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CHUNK;
+        DbConfig dbConfig = DbConfigLoader.load(System.getProperty("config.path"));
+
+        backfill(dbConfig, "Hotels_info", "Hotel_ID", chunk);
+        backfill(dbConfig, "paying_guest_info", "PG_ID", chunk);
+    }
+
+    private static void backfill(DbConfig dbConfig, String table, String idColumn, int chunk) throws SQLException {
+        String selectSql = "SELECT " + idColumn + ", Room_Price FROM " + table +
+                " WHERE Room_Price_Paise IS NULL AND " + idColumn + " > ?" +
+                " ORDER BY " + idColumn + " LIMIT ?";
+        String updateSql = "UPDATE " + table + " SET Room_Price_Paise = ?" +
+                " WHERE " + idColumn + " = ? AND Room_Price_Paise IS NULL AND Room_Price <=> ?";
+
+        String lastId = "";
+        long updated = 0;
+        long skipped = 0;
+
+        try (Connection conn = dbConfig.getPartnerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement select = conn.prepareStatement(selectSql);
+                 PreparedStatement update = conn.prepareStatement(updateSql)) {
+
+                while (true) {
+                    List<String[]> rows = new ArrayList<>(chunk);
+                    select.setString(1, lastId);
+                    select.setInt(2, chunk);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) rows.add(new String[]{rs.getString(1), rs.getString(2)});
+                    }
+                    conn.commit();
+                    if (rows.isEmpty()) break;
+
+                    for (String[] row : rows) {
+                        String price = row[1];
+                        if (price == null || price.isBlank()) {
+                            skipped++;
+                            continue;
+                        }
+                        update.setLong(1, PriceParser.castPaise(price));
+                        update.setString(2, row[0]);
+                        update.setString(3, price);
+                        update.addBatch();
+                    }
+                    for (int count : update.executeBatch()) {
+                        if (count > 0) updated++;
+                    }
+                    conn.commit();
+
+                    lastId = rows.get(rows.size() - 1)[0];
+                    System.out.println(table + ": " + updated + " updated, " + skipped + " blank, up to " + lastId);
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        System.out.println("✅ " + table + " done: " + updated + " rows updated, " + skipped + " blank prices left NULL");
+    }
+}
@@ -0,0 +1,65 @@
+package com.hotel.utilities;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Room_Price is free text ("₹1,200", "1200/night"). This turns it into whole paise
+ * once, so the Room_Price_Paise column and everything reading it can stay numeric.
+ */
+public final class PriceParser {
+
+    // Currency marks and thousands separators the partner portal lets through
+    private static final Pattern NOISE = Pattern.compile("₹|(?i:rs\\.?|inr)|,|\\s");
+
+    // Amount with at most 2 decimals, optionally followed by a unit like "/night" or "/month"
+    private static final Pattern STRICT = Pattern.compile("(\\d{1,9}(?:\\.\\d{1,2})?)(?:/[a-zA-Z]+)?");
+
+    private static final Pattern LEADING_NUMBER = Pattern.compile("^[+-]?(\\d+\\.?\\d*|\\.\\d+)");
+
+    private PriceParser() {
+    }
+
+    /**
+     * Parses a price a partner typed. Blank means "no price" and gives null.
+     *
+     * @throws IllegalArgumentException when the text is not a plain non-negative amount
+     */
+    public static Long parsePaise(String text) {
+        if (text == null || text.isBlank()) return null;
+
+        Matcher m = STRICT.matcher(NOISE.matcher(text).replaceAll(""));
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Invalid room price: " + text);
+        }
+        return toPaise(m.group(1));
+    }
+
+    /**
+     * Reads a stored Room_Price the way CAST(REPLACE(REPLACE(Room_Price,'₹',''),',','') AS DECIMAL)
+     * did: the leading number after dropping '₹' and ','. No digits gives 0, NULL stays NULL.
+     * Used for rows written before Room_Price_Paise existed.
+     */
+    public static Long castPaise(Object raw) {
+        if (raw == null) return null;
+        if (raw instanceof Number n) return toPaise(n.toString());
+
+        String s = raw.toString().replace("₹", "").replace(",", "").trim();
+        Matcher m = LEADING_NUMBER.matcher(s);
+        return m.find() ? toPaise(m.group()) : 0L;
+    }
+
+    public static double toRupees(long paise) {
+        return paise / 100.0;
+    }
+
+    private static Long toPaise(String amount) {
+        try {
+            return new BigDecimal(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+        } catch (ArithmeticException | NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
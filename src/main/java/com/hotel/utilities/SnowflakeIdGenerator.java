@@ -0,0 +1,61 @@
+package com.hotel.utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style 63-bit IDs: 41 bits of milliseconds since 2024-01-01, 10 bits of node id,
+ * 12 bits of per-millisecond sequence. IDs from one node are strictly increasing, and IDs
+ * from different nodes never collide, so nothing has to ask the database.
+ *
+ * Lock-free: the last issued id is the only state, advanced with compare-and-set. When the
+ * wall clock steps backwards the generator keeps counting from the last timestamp it used
+ * instead of repeating ids.
+ */
+public final class SnowflakeIdGenerator {
+
+    static final long EPOCH_MILLIS = 1704067200000L;   // 2024-01-01T00:00:00Z
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    private static final long MAX_SEQUENCE = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+
+    private final long nodeBits;
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int node) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalStateException("Node id must be 0.." + MAX_NODE + ", got " + node);
+        }
+        this.nodeBits = (long) node << SEQUENCE_BITS;
+    }
+
+    public long nextId() {
+        while (true) {
+            long prev = last.get();
+            long prevMillis = prev >>> TIMESTAMP_SHIFT;
+            long now = System.currentTimeMillis() - EPOCH_MILLIS;
+
+            long next;
+            if (now > prevMillis) {
+                next = (now << TIMESTAMP_SHIFT) | nodeBits;
+            } else if ((prev & MAX_SEQUENCE) < MAX_SEQUENCE) {
+                next = prev + 1;                       // same (or earlier) millisecond: bump sequence
+            } else {
+                Thread.onSpinWait();                    // 4096 ids this millisecond: wait for the next
+                continue;
+            }
+            if (last.compareAndSet(prev, next)) return next;
+        }
+    }
+
+    /**
+     * {@code prefix} + the next id as 13 upper-case base-36 digits. Fixed width keeps the
+     * strings in the same order as the ids.
+     */
+    public String next(String prefix) {
+        String digits = Long.toString(nextId(), 36).toUpperCase();
+        return prefix + "0".repeat(13 - digits.length()) + digits;
+    }
+}
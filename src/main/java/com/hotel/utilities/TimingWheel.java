@@ -0,0 +1,98 @@
+package com.hotel.utilities;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: millions of pending timers at O(1) per schedule and per tick.
+ *
+ * Four levels of 64 slots. Level 0 slots are one tick wide, level 1 slots 64 ticks, level 2
+ * 4096 ticks and level 3 262144 ticks, so with one-second ticks the wheel reaches about
+ * 194 days ahead. A later deadline waits in the last level-3 slot and is placed again when
+ * that slot comes round. When a lower level wraps, the slot of the level above is cascaded
+ * into the finer levels. Every timer moves down at most three times before it fires.
+ *
+ * Not thread-safe by itself: schedule() and advance() synchronise on the wheel, which is
+ * enough for one ticking thread plus request threads adding timers.
+ */
+public final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);   // ticks covered by the whole wheel
+
+    private record Timer<T>(T item, long deadlineTick) {}
+
+    private final long tickMillis;
+    private final ArrayDeque<Timer<T>>[][] slots;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = startMillis / tickMillis;
+        this.slots = new ArrayDeque[LEVELS][SLOTS];
+    }
+
+    /** Schedules {@code item} to come out of advance() once {@code deadlineMillis} has passed. */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);   // never early
+        place(new Timer<>(item, Math.max(deadlineTick, currentTick + 1)));
+        size++;
+    }
+
+    /** Moves the wheel to {@code nowMillis} and returns every item whose deadline has passed. */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            // Top level first, so entries cascaded from it can be cascaded again in this tick
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level, slot(currentTick, level));
+                }
+            }
+            ArrayDeque<Timer<T>> bucket = slots[0][slot(currentTick, 0)];
+            if (bucket != null) {
+                for (Timer<T> timer; (timer = bucket.poll()) != null; ) {
+                    due.add(timer.item());
+                }
+            }
+        }
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void cascade(int level, int slot) {
+        ArrayDeque<Timer<T>> bucket = slots[level][slot];
+        if (bucket == null || bucket.isEmpty()) return;
+        slots[level][slot] = null;
+        for (Timer<T> timer : bucket) place(timer);
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = Math.min(timer.deadlineTick() - currentTick, SPAN - 1);   // beyond the wheel: park at its far end
+        long at = currentTick + delta;
+
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) level++;
+
+        int slot = slot(at, level);
+        ArrayDeque<Timer<T>> bucket = slots[level][slot];
+        if (bucket == null) slots[level][slot] = bucket = new ArrayDeque<>();
+        bucket.add(timer);
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+}
@@ -0,0 +1,140 @@
+package com.hotel.wallet;
+
+import com.hotel.utilities.DbConfig;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Wallet debits that cannot overdraw.
+ *
+ * A debit is one conditional UPDATE:
+ * <pre>
+ *   UPDATE wallets SET balance = LAST_INSERT_ID(ROUND((balance - ?) * 100)) / 100
+ *    WHERE wallet_id = ? AND balance >= ?
+ * </pre>
+ * The balance check and the write happen in the same statement, so two concurrent debits
+ * can never take the same money. The new balance, in paise, comes back in the OK packet
+ * as the statement's insert id (read with getGeneratedKeys, no extra round trip). This is
+ * the same LAST_INSERT_ID(expr) idiom HiLoSequence uses.
+ *
+ * Operations on one user's wallet are also serialised in-process by a striped lock
+ * (wallet.lock.stripes, default 256). A caller takes {@link #lockFor} before it borrows
+ * the connection for its transaction, and releases it after the connection is closed. A hot user's
+ * requests then queue on a cheap in-memory lock instead of piling up on the InnoDB row
+ * lock, and holding a pooled connection each while they wait. The striped lock does not
+ * replace the conditional UPDATE: other servers still only meet at the row.
+ */
+public final class WalletService {
+
+    /** A debit that went through: what was taken and what it left, in paise. */
+    public record Debit(String walletId, long amountPaise, long balanceAfterPaise) {}
+
+    private static final String DEBIT_SQL =
+            "UPDATE wallets SET balance = LAST_INSERT_ID(ROUND((balance - ?) * 100)) / 100 " +
+            "WHERE wallet_id = ? AND balance >= ?";
+
+    private final ReentrantLock[] stripes;
+
+    // user_id -> wallet_id; a wallet never changes owner
+    private final ConcurrentHashMap<String, String> walletIds = new ConcurrentHashMap<>();
+
+    public WalletService(DbConfig dbConfig) {
+        this(dbConfig.getIntSetting("wallet.lock.stripes", 256));
+    }
+
+    WalletService(int stripeCount) {
+        this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+    }
+
+    /** The in-process lock for {@code userId}'s wallet; users sharing a stripe share the lock. */
+    public Lock lockFor(String userId) {
+        return stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+    }
+
+    /**
+     * Takes up to {@code maxPaise} from the user's wallet inside the caller's transaction.
+     * The whole amount is taken when the balance covers it, otherwise whatever the balance
+     * holds. Returns null when there is no wallet or nothing to take.
+     */
+    public Debit debitUpTo(Connection conn, String userId, long maxPaise) throws SQLException {
+        if (maxPaise <= 0) return null;
+        String walletId = walletIdOf(conn, userId);
+        if (walletId == null) return null;
+
+        Debit full = tryDebit(conn, walletId, maxPaise);
+        if (full != null) return full;
+
+        // Not enough for the whole amount: lock the row and take what is there
+        long available;
+        try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM wallets WHERE wallet_id = ? FOR UPDATE")) {
+            ps.setString(1, walletId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                available = rs.getBigDecimal(1).movePointRight(2).longValue();
+            }
+        }
+        return available <= 0 ? null : tryDebit(conn, walletId, Math.min(available, maxPaise));
+    }
+
+    /** The wallet_transactions row for a debit, with the balance it left. */
+    public void recordDebit(Connection conn, Debit debit, String type, String referenceId, String description)
+            throws SQLException {
+        String sql = "INSERT INTO wallet_transactions (txn_id, wallet_id, type, amount, direction, reference_id, " +
+                "status, description, balance_after_txn) VALUES (?,?,?,?,?,?,?,?,?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, UUID.randomUUID().toString());
+            ps.setString(2, debit.walletId());
+            ps.setString(3, type);
+            ps.setBigDecimal(4, rupees(debit.amountPaise()));
+            ps.setString(5, "debit");
+            ps.setString(6, referenceId);
+            ps.setString(7, "success");
+            ps.setString(8, description);
+            ps.setBigDecimal(9, rupees(debit.balanceAfterPaise()));
+            ps.executeUpdate();
+        }
+    }
+
+    private Debit tryDebit(Connection conn, String walletId, long paise) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(DEBIT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            BigDecimal amount = rupees(paise);
+            ps.setBigDecimal(1, amount);
+            ps.setString(2, walletId);
+            ps.setBigDecimal(3, amount);
+            if (ps.executeUpdate() == 0) return null;
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                // LAST_INSERT_ID(0) is reported as "no key": the wallet is now empty
+                return new Debit(walletId, paise, keys.next() ? keys.getLong(1) : 0);
+            }
+        }
+    }
+
+    String walletIdOf(Connection conn, String userId) throws SQLException {
+        String cached = walletIds.get(userId);
+        if (cached != null) return cached;
+
+        try (PreparedStatement ps = conn.prepareStatement("SELECT wallet_id FROM wallets WHERE user_id = ? LIMIT 1")) {
+            ps.setString(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) return null;
+                String walletId = rs.getString(1);
+                walletIds.put(userId, walletId);
+                return walletId;
+            }
+        }
+    }
+
+    private static BigDecimal rupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+}
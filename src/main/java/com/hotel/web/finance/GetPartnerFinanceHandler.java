@@ -1,6 +1,10 @@
 package com.hotel.web.finance;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.JsonStreamWriter;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.URLDecoder;
@@ -17,20 +21,29 @@ public class GetPartnerFinanceHandler implements HttpHandler {
         this.dbConfig = dbConfig;
     }
 
-    private static final DecimalFormat df = new DecimalFormat("#.##");
+    // DecimalFormat is not thread-safe and requests now run on a worker pool
+    private static final ThreadLocal<DecimalFormat> df = ThreadLocal.withInitial(() -> new DecimalFormat("#.##"));
+
+    private static final String[] BANK_FIELDS = {
+            "Account_Holder_Name", "Bank_Name", "Account_Number", "IFSC_SWIFT",
+            "Account_Type", "PAN_Tax_ID", "Payout_Type", "Last_Payout_Date"
+    };
+
+    // Select relevant columns from bookings_info. Original_Amount is the revenue.
+    private static final String BOOKINGS_SQL = """
+            SELECT Booking_ID, Hotel_ID, Hotel_Name, Hotel_Type, Guest_Name, Email, User_ID,
+                   Check_In_Date, Check_Out_Date, Guest_Count, Adults, Children, Total_Rooms_Booked,
+                   Total_Days_at_Stay, Room_Price_Per_Day, All_Days_Price, GST, Original_Amount, Final_Payable_Amount,
+                   Amount_Paid_Online, Due_Amount_At_Hotel, Payment_Method_Type, Paid_Via, Transaction_ID, Hotel_Address,
+                   Booking_Status, Hotel_Contact, Payment_Status, Refund_Status, Wallet_Used, Wallet_Amount_Deducted,
+                   Coupon_Code, Coupon_Discount_Amount, Room_Price_Per_Month, Months
+            FROM bookings_info
+            WHERE Partner_ID = ?
+            ORDER BY Check_In_Date DESC
+            """;
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        // CORS & allowed methods
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         if (!"GET".equalsIgnoreCase(exchange.getRequestMethod()) &&
             !"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(405, -1);
@@ -68,8 +81,8 @@ public class GetPartnerFinanceHandler implements HttpHandler {
                 catch (Exception ignored) { commissionPercent = 0.0; }
             }
 
-            // 3) Fetch bookings for partner and compute totals using commissionPercent
-            BookingAggregation agg = fetchBookingsAndCompute(partnerId, commissionPercent);
+            // 3) Totals are aggregated in SQL so the booking list below can be streamed
+            BookingAggregation agg = fetchBookingTotals(partnerId);
 
             // Recognized totals (only COMPLETED bookings)
             double recognizedRevenue = agg.recognizedRevenue;
@@ -81,46 +94,60 @@ public class GetPartnerFinanceHandler implements HttpHandler {
             double paidPayout = toDouble(partnerMap.getOrDefault("Paid_Payout", 0.0));
             double pendingPayout = Math.max(0.0, netRevenue - paidPayout);
 
-            // 5) Build response
-            Map<String, Object> result = new LinkedHashMap<>();
-            result.put("status", "success");
-            result.put("partner_id", partnerId);
-
-            // Recognized (authoritative) revenue — COMPLETED only
-            result.put("Total_Revenue", df.format(recognizedRevenue));
-            // Provisional (informational) revenue — PENDING + CONFIRMED
-            result.put("Provisional_Revenue", df.format(provisionalRevenue));
-
-            result.put("Commission_Percentage", df.format(commissionPercent));
-            result.put("Commission_Amount", df.format(commissionAmount));
-            result.put("Net_Revenue", df.format(netRevenue));
-            result.put("Pending_Payout", df.format(pendingPayout));
-            result.put("Paid_Payout", df.format(paidPayout));
-
-            // Counts
-            result.put("Total_Bookings", agg.count);
-            result.put("Completed_Bookings", agg.completed);
-            result.put("Cancelled_Bookings", agg.cancelled);
-            result.put("Provisional_Bookings", agg.provisionalCount);
-
-            // Bank details - map DB columns to frontend keys (safe defaults)
-            result.put("Account_Holder_Name", partnerMap.getOrDefault("Account_Holder_Name", ""));
-            result.put("Bank_Name", partnerMap.getOrDefault("Bank_Name", ""));
-            result.put("Account_Number", partnerMap.getOrDefault("Account_Number", ""));
-            result.put("IFSC_SWIFT", partnerMap.getOrDefault("IFSC_SWIFT", ""));
-            result.put("Account_Type", partnerMap.getOrDefault("Account_Type", ""));
-            result.put("PAN_Tax_ID", partnerMap.getOrDefault("PAN_Tax_ID", ""));
-            result.put("Payout_Type", partnerMap.getOrDefault("Payout_Type", ""));
-            result.put("Last_Payout_Date", partnerMap.getOrDefault("Last_Payout_Date", ""));
-
-            // Attach per-booking list (all statuses). Per-booking Commission_Amount/Net_Revenue computed.
-            result.put("Bookings", agg.bookings);
-
-            sendResponse(exchange, 200, toJson(result));
+            // 4) Stream response: summary fields first, then the bookings straight from the ResultSet
+            try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+                 PreparedStatement ps = conn.prepareStatement(BOOKINGS_SQL)) {
+
+                JsonStreamWriter.prepare(ps);
+                ps.setString(1, partnerId);
+
+                try (ResultSet rs = ps.executeQuery();
+                     JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+
+                    gen.writeStartObject();
+                    gen.writeStringField("status", "success");
+                    gen.writeStringField("partner_id", partnerId);
+
+                    // Recognized (authoritative) revenue — COMPLETED only
+                    gen.writeStringField("Total_Revenue", format(recognizedRevenue));
+                    // Provisional (informational) revenue — PENDING + CONFIRMED
+                    gen.writeStringField("Provisional_Revenue", format(provisionalRevenue));
+
+                    gen.writeStringField("Commission_Percentage", format(commissionPercent));
+                    gen.writeStringField("Commission_Amount", format(commissionAmount));
+                    gen.writeStringField("Net_Revenue", format(netRevenue));
+                    gen.writeStringField("Pending_Payout", format(pendingPayout));
+                    gen.writeStringField("Paid_Payout", format(paidPayout));
+
+                    // Counts
+                    gen.writeNumberField("Total_Bookings", agg.count);
+                    gen.writeNumberField("Completed_Bookings", agg.completed);
+                    gen.writeNumberField("Cancelled_Bookings", agg.cancelled);
+                    gen.writeNumberField("Provisional_Bookings", agg.provisionalCount);
+
+                    // Bank details - map DB columns to frontend keys (safe defaults)
+                    for (String key : BANK_FIELDS) {
+                        JsonStreamWriter.writeField(gen, key, partnerMap.getOrDefault(key, ""));
+                    }
+
+                    // Per-booking list (all statuses). Per-booking Commission_Amount/Net_Revenue computed.
+                    gen.writeArrayFieldStart("Bookings");
+                    ResultSetMetaData md = rs.getMetaData();
+                    int colCount = md.getColumnCount();
+                    while (rs.next()) {
+                        writeBooking(rs, md, colCount, commissionPercent, gen);
+                    }
+                    gen.writeEndArray();
+
+                    gen.writeEndObject();
+                }
+            }
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500, "{\"status\":\"error\",\"message\":\"" + escape(e.getMessage()) + "\"}");
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                Json.sendStatus(exchange, 500, "error", e.getMessage());
+            }
         }
     }
 
@@ -155,21 +182,22 @@ public class GetPartnerFinanceHandler implements HttpHandler {
         return map;
     }
 
-    // Query bookings_info for partner and compute per-booking commission/net and aggregates
-    private BookingAggregation fetchBookingsAndCompute(String partnerId, double commissionPercent) throws Exception {
+    // Counts and revenue split by status, same buckets as the per-booking list:
+    // COMPLETED is recognized, CANCELLED is excluded, everything else is provisional
+    private BookingAggregation fetchBookingTotals(String partnerId) throws Exception {
         BookingAggregation agg = new BookingAggregation();
 
-        // Select relevant columns from bookings_info. Include Total_Price (revenue).
         String sql = """
-                SELECT Booking_ID, Hotel_ID, Hotel_Name, Hotel_Type, Guest_Name, Email, User_ID,
-                       Check_In_Date, Check_Out_Date, Guest_Count, Adults, Children, Total_Rooms_Booked,
-                       Total_Days_at_Stay, Room_Price_Per_Day, All_Days_Price, GST, Original_Amount, Final_Payable_Amount,
-                       Amount_Paid_Online, Due_Amount_At_Hotel, Payment_Method_Type, Paid_Via, Transaction_ID, Hotel_Address, 
-                       Booking_Status, Hotel_Contact, Payment_Status, Refund_Status, Wallet_Used, Wallet_Amount_Deducted,
-                       Coupon_Code, Coupon_Discount_Amount, Room_Price_Per_Month, Months
+                SELECT COUNT(*) AS Total,
+                       COALESCE(SUM(UPPER(Booking_Status) = 'COMPLETED'), 0) AS Completed,
+                       COALESCE(SUM(UPPER(Booking_Status) = 'CANCELLED'), 0) AS Cancelled,
+                       COALESCE(SUM(CASE WHEN UPPER(Booking_Status) = 'COMPLETED'
+                                         THEN Original_Amount ELSE 0 END), 0) AS Recognized,
+                       COALESCE(SUM(CASE WHEN Booking_Status IS NULL
+                                           OR UPPER(Booking_Status) NOT IN ('COMPLETED', 'CANCELLED')
+                                         THEN Original_Amount ELSE 0 END), 0) AS Provisional
                 FROM bookings_info
                 WHERE Partner_ID = ?
-                ORDER BY Check_In_Date DESC
                 """;
 
         try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
@@ -177,55 +205,13 @@ public class GetPartnerFinanceHandler implements HttpHandler {
 
             ps.setString(1, partnerId);
             try (ResultSet rs = ps.executeQuery()) {
-                ResultSetMetaData md = rs.getMetaData();
-                int colCount = md.getColumnCount();
-
-                while (rs.next()) {
-                    agg.count++;
-
-                    double totalPrice = 0.0;
-                    try {
-                        Object tpObj = rs.getObject("Original_Amount");
-                        if (tpObj != null) totalPrice = Double.parseDouble(tpObj.toString());
-                    } catch (Exception ignored) { totalPrice = 0.0; }
-
-                    String status = rs.getString("Booking_Status");
-                    if (status != null) {
-                        if (status.equalsIgnoreCase("CANCELLED")) agg.cancelled++;
-                        else if (status.equalsIgnoreCase("COMPLETED")) {
-                            agg.completed++;
-                            // Recognized revenue only from completed bookings
-                            agg.recognizedRevenue += totalPrice;
-                        } else if (status.equalsIgnoreCase("PENDING") || status.equalsIgnoreCase("CONFIRMED")) {
-                            agg.provisionalCount++;
-                            agg.provisionalRevenue += totalPrice;
-                        } else {
-                            // other statuses treat as provisional (you can refine)
-                            agg.provisionalCount++;
-                            agg.provisionalRevenue += totalPrice;
-                        }
-                    } else {
-                        agg.provisionalCount++;
-                        agg.provisionalRevenue += totalPrice;
-                    }
-
-                    Map<String, Object> booking = new LinkedHashMap<>();
-                    // add all selected columns to booking map
-                    for (int i = 1; i <= colCount; i++) {
-                        String colLabel = md.getColumnLabel(i);
-                        Object val = rs.getObject(i);
-                        booking.put(colLabel, val != null ? val : "");
-                    }
-
-                    // compute commission & net for this booking using commissionPercent from partner table
-                    // We compute per-booking commission/net for visibility; totals only include completed as above.
-                    double commissionAmt = totalPrice * commissionPercent / 100.0;
-                    double netAmt = totalPrice - commissionAmt;
-
-                    booking.put("Commission_Amount", df.format(commissionAmt));
-                    booking.put("Net_Revenue", df.format(netAmt));
-
-                    agg.bookings.add(booking);
+                if (rs.next()) {
+                    agg.count = rs.getInt("Total");
+                    agg.completed = rs.getInt("Completed");
+                    agg.cancelled = rs.getInt("Cancelled");
+                    agg.provisionalCount = agg.count - agg.completed - agg.cancelled;
+                    agg.recognizedRevenue = rs.getDouble("Recognized");
+                    agg.provisionalRevenue = rs.getDouble("Provisional");
                 }
             }
         }
@@ -233,6 +219,30 @@ public class GetPartnerFinanceHandler implements HttpHandler {
         return agg;
     }
 
+    private void writeBooking(ResultSet rs, ResultSetMetaData md, int colCount,
+                              double commissionPercent, JsonGenerator gen) throws SQLException, IOException {
+        double totalPrice = 0.0;
+        try {
+            Object tpObj = rs.getObject("Original_Amount");
+            if (tpObj != null) totalPrice = Double.parseDouble(tpObj.toString());
+        } catch (Exception ignored) { totalPrice = 0.0; }
+
+        gen.writeStartObject();
+        // all selected columns, NULL as ""
+        for (int i = 1; i <= colCount; i++) {
+            Object val = rs.getObject(i);
+            JsonStreamWriter.writeField(gen, md.getColumnLabel(i), val != null ? val : "");
+        }
+
+        // We compute per-booking commission/net for visibility; totals only include completed bookings.
+        double commissionAmt = totalPrice * commissionPercent / 100.0;
+        double netAmt = totalPrice - commissionAmt;
+
+        gen.writeStringField("Commission_Amount", format(commissionAmt));
+        gen.writeStringField("Net_Revenue", format(netAmt));
+        gen.writeEndObject();
+    }
+
     // Helper to extract partner_id from GET query or POST form
     private String extractPartnerId(HttpExchange exchange) throws IOException {
         if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
@@ -240,7 +250,7 @@ public class GetPartnerFinanceHandler implements HttpHandler {
             Map<String, String> map = parseForm(body);
             return map.get("partner_id");
         } else {
-            Map<String, String> q = queryToMap(exchange.getRequestURI().getQuery());
+            Map<String, String> q = Router.queryParams(exchange);
             return q.get("partner_id");
         }
     }
@@ -253,7 +263,6 @@ public class GetPartnerFinanceHandler implements HttpHandler {
         int completed = 0;
         int cancelled = 0;
         int provisionalCount = 0;
-        List<Map<String, Object>> bookings = new ArrayList<>();
     }
 
     // ---------- Helpers ----------
@@ -280,59 +289,13 @@ public class GetPartnerFinanceHandler implements HttpHandler {
         return map;
     }
 
-    private Map<String, String> queryToMap(String query) throws UnsupportedEncodingException {
-        Map<String, String> map = new HashMap<>();
-        if (query == null || query.isEmpty()) return map;
-        for (String pair : query.split("&")) {
-            String[] kv = pair.split("=", 2);
-            if (kv.length == 2) {
-                map.put(URLDecoder.decode(kv[0], "UTF-8"), URLDecoder.decode(kv[1], "UTF-8"));
-            }
-        }
-        return map;
-    }
-
     private double toDouble(Object o) {
         if (o == null) return 0.0;
         try { return Double.parseDouble(o.toString()); } catch (Exception e) { return 0.0; }
     }
 
-    private String escape(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\")
-                .replace("\"", "\\\"")
-                .replace("\n","\\n")
-                .replace("\r","\\r")
-                .replace("\t","\\t");
-    }
-
-    // Simple JSON serializer (keeps same style as your original)
-    private String toJson(Object obj) {
-        if (obj == null) return "null";
-        if (obj instanceof Map) {
-            StringBuilder sb = new StringBuilder("{");
-            Map<?,?> map = (Map<?,?>) obj;
-            for (Map.Entry<?,?> e : map.entrySet()) {
-                sb.append("\"").append(escape(String.valueOf(e.getKey()))).append("\":");
-                sb.append(toJson(e.getValue())).append(",");
-            }
-            if (sb.charAt(sb.length()-1)==',') sb.setLength(sb.length()-1);
-            sb.append("}");
-            return sb.toString();
-        } else if (obj instanceof List) {
-            StringBuilder sb = new StringBuilder("[");
-            List<?> list = (List<?>) obj;
-            for (Object o : list) {
-                sb.append(toJson(o)).append(",");
-            }
-            if (sb.charAt(sb.length()-1)==',') sb.setLength(sb.length()-1);
-            sb.append("]");
-            return sb.toString();
-        } else if (obj instanceof Number || obj instanceof Boolean) {
-            return String.valueOf(obj);
-        } else {
-            return "\"" + escape(String.valueOf(obj)) + "\"";
-        }
+    private String format(double value) {
+        return df.get().format(value);
     }
 
     private void sendResponse(HttpExchange exchange, int code, String msg) throws IOException {
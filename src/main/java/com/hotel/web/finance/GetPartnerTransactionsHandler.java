@@ -1,6 +1,10 @@
 package com.hotel.web.finance;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.URLDecoder;
@@ -19,21 +23,12 @@ public class GetPartnerTransactionsHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         String partnerId;
 
         if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             partnerId = parseForm(readBody(exchange)).get("partner_id");
         } else {
-            partnerId = queryToMap(exchange.getRequestURI().getQuery()).get("partner_id");
+            partnerId = Router.queryParams(exchange).get("partner_id");
         }
 
         if (partnerId == null || partnerId.isEmpty()) {
@@ -42,7 +37,7 @@ public class GetPartnerTransactionsHandler implements HttpHandler {
             return;
         }
 
-        List<Map<String, Object>> txList = new ArrayList<>();
+        ArrayNode txList = Json.MAPPER.createArrayNode();
 
         try (Connection conn = dbConfig.getPartnerDataSource().getConnection()) {
 
@@ -60,7 +55,7 @@ public class GetPartnerTransactionsHandler implements HttpHandler {
                     adjustFinanceForFailed(conn, partnerId, withdrawal);
                 }
 
-                Map<String, Object> obj = new LinkedHashMap<>();
+                ObjectNode obj = txList.addObject();
                 obj.put("Transaction_ID", rs.getString("Transaction_ID"));
                 obj.put("Transaction_Date", rs.getString("Transaction_Date"));
                 obj.put("Total_Amount", rs.getDouble("Total_Amount"));
@@ -69,21 +64,18 @@ public class GetPartnerTransactionsHandler implements HttpHandler {
                 obj.put("Status", status);
                 obj.put("Transaction_Type", rs.getString("Transaction_Type")); // <-- NEW
                 obj.put("Comments", rs.getString("Comments"));
-
-
-                txList.add(obj);
             }
 
         } catch (Exception e) {
             e.printStackTrace();
-            sendResponse(exchange, 500,
-                    "{\"status\":\"error\",\"message\":\"" +
-                            escape(e.getMessage()) + "\"}");
+            Json.sendStatus(exchange, 500, "error", e.getMessage());
             return;
         }
 
-        String response = "{\"status\":\"success\",\"transactions\":" + listToJson(txList) + "}";
-        sendResponse(exchange, 200, response);
+        ObjectNode response = Json.object();
+        response.put("status", "success");
+        response.set("transactions", txList);
+        Json.send(exchange, 200, response);
     }
 
     // ======================================================================
@@ -130,40 +122,6 @@ public class GetPartnerTransactionsHandler implements HttpHandler {
         return map;
     }
 
-    private Map<String, String> queryToMap(String query) throws UnsupportedEncodingException {
-        Map<String, String> map = new HashMap<>();
-        if (query == null) return map;
-        for (String pair : query.split("&")) {
-            String[] kv = pair.split("=", 2);
-            if (kv.length == 2) {
-                map.put(URLDecoder.decode(kv[0], "UTF-8"),
-                        URLDecoder.decode(kv[1], "UTF-8"));
-            }
-        }
-        return map;
-    }
-
-    private String escape(String s) {
-        return s == null ? "" : s.replace("\"", "\\\"");
-    }
-
-    private String listToJson(List<Map<String, Object>> list) {
-        StringBuilder sb = new StringBuilder("[");
-        for (Map<String, Object> obj : list) {
-            sb.append("{");
-            for (String k : obj.keySet()) {
-                sb.append("\"").append(k).append("\":\"")
-                        .append(String.valueOf(obj.get(k)).replace("\"", "\\\""))
-                        .append("\",");
-            }
-            sb.setLength(sb.length() - 1);
-            sb.append("},");
-        }
-        if (sb.length() > 1) sb.setLength(sb.length() - 1);
-        sb.append("]");
-        return sb.toString();
-    }
-
     private void sendResponse(HttpExchange exchange, int code, String msg) throws IOException {
         exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
         byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
@@ -1,6 +1,7 @@
 package com.hotel.web.finance;
 
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.URLDecoder;
@@ -12,9 +13,11 @@ import java.util.*;
 public class RequestPayoutHandler implements HttpHandler {
 
 	private final DbConfig dbConfig;
+	private final IdService ids;
 
-    public RequestPayoutHandler(DbConfig dbConfig) {
+    public RequestPayoutHandler(DbConfig dbConfig, IdService ids) {
         this.dbConfig = dbConfig;
+        this.ids = ids;
     }
 
     private static final double MIN_WITHDRAWAL = 5000.0;
@@ -23,14 +26,6 @@ public class RequestPayoutHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -146,7 +141,7 @@ public class RequestPayoutHandler implements HttpHandler {
             }
 
             /** 4️⃣ INSERT TRANSACTION **/
-            String txId = "TX_" + System.currentTimeMillis();
+            String txId = ids.payoutTransactionId();
 
             String insert = """
                     INSERT INTO Partner_Transactions
@@ -1,6 +1,10 @@
 package com.hotel.web.partner;
 
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.PriceParser;
 import com.sun.net.httpserver.*;
 import java.io.*;
 import java.net.URLDecoder;
@@ -13,21 +17,17 @@ import org.json.*;
 public class AddHotelsHandler implements HttpHandler {
 
 	private final DbConfig dbConfig;
+	private final CatalogService catalog;
+	private final IdService ids;
 
-    public AddHotelsHandler(DbConfig dbConfig) {
+    public AddHotelsHandler(DbConfig dbConfig, CatalogService catalog, IdService ids) {
         this.dbConfig = dbConfig;
+        this.catalog = catalog;
+        this.ids = ids;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -36,11 +36,20 @@ public class AddHotelsHandler implements HttpHandler {
         String body = readRequestBody(exchange);
         Map<String, String> params = parseForm(body);
 
+        // Validate the price before touching images or the DB
+        Long roomPricePaise;
+        try {
+            roomPricePaise = PriceParser.parsePaise(params.get("room_price"));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"status\":\"error\",\"message\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
         String hotelId = params.get("hotel_id");
         boolean isUpdate = hotelId != null && !hotelId.trim().isEmpty() && hotelExists(hotelId);
 
         if (!isUpdate) {
-            hotelId = "HOTEL_" + System.currentTimeMillis();
+            hotelId = ids.hotelId();
         }
 
         try {
@@ -70,9 +79,12 @@ public class AddHotelsHandler implements HttpHandler {
                 params.put("hotel_images", String.join(",", savedUrls));
             }
 
-            boolean success = isUpdate ? updateHotelInDB(hotelId, params) : addHotelToDB(hotelId, params);
+            boolean success = isUpdate
+                    ? updateHotelInDB(hotelId, params, roomPricePaise)
+                    : addHotelToDB(hotelId, params, roomPricePaise);
 
             if (success) {
+                catalog.listingChanged(Listing.Kind.HOTEL, hotelId);
                 String msg = isUpdate ? "Hotel updated successfully!" : "Hotel added successfully!";
                 sendResponse(exchange, 200, "{\"status\":\"success\",\"message\":\"" + msg + "\"}");
             } else {
@@ -97,31 +109,33 @@ public class AddHotelsHandler implements HttpHandler {
         return false;
     }
 
-    private boolean addHotelToDB(String hotelId, Map<String, String> params) throws SQLException {
+    private boolean addHotelToDB(String hotelId, Map<String, String> params, Long roomPricePaise) throws SQLException {
         String sql = "INSERT INTO Hotels_info (" +
                 "Hotel_ID, Partner_ID, Hotel_Name, Hotel_Type, Room_Type, Address, City, State, Country, Pincode," +
                 "Hotel_Location, Total_Rooms, Available_Rooms, Room_Price, Amenities, Description, Policies, Rating, " +
-                "Hotel_Contact, About_This_Property, Hotel_Images, Customization, Status)" +
-                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "Hotel_Contact, About_This_Property, Hotel_Images, Customization, Status, Room_Price_Paise)" +
+                " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = dbConfig.getPartnerDataSource().getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             setHotelParamsForInsert(stmt, hotelId, params);
+            setPaise(stmt, 24, roomPricePaise);
             return stmt.executeUpdate() > 0;
         }
     }
 
-    private boolean updateHotelInDB(String hotelId, Map<String, String> params) throws SQLException {
+    private boolean updateHotelInDB(String hotelId, Map<String, String> params, Long roomPricePaise) throws SQLException {
         String sql = "UPDATE Hotels_info SET " +
                 "Hotel_Name=?, Hotel_Type=?, Room_Type=?, Address=?, City=?, State=?, Country=?, Pincode=?," +
                 "Hotel_Location=?, Total_Rooms=?, Available_Rooms=?, Room_Price=?, Amenities=?, Description=?, Policies=?," +
-                "Rating=?, Hotel_Contact=?, About_This_Property=?, Hotel_Images=?, Customization=?, Status=? " +
+                "Rating=?, Hotel_Contact=?, About_This_Property=?, Hotel_Images=?, Customization=?, Status=?, Room_Price_Paise=? " +
                 "WHERE Hotel_ID=?";
 
         try (Connection conn = dbConfig.getPartnerDataSource().getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             setHotelParamsForUpdate(stmt, params);
-            stmt.setString(22, hotelId); // corrected index
+            setPaise(stmt, 22, roomPricePaise);
+            stmt.setString(23, hotelId);
             return stmt.executeUpdate() > 0;
         }
     }
@@ -176,6 +190,12 @@ public class AddHotelsHandler implements HttpHandler {
         stmt.setString(21, params.getOrDefault("status", "Active"));
     }
 
+    // Numeric copy of Room_Price for range filters and sorting; NULL when no price was given
+    private void setPaise(PreparedStatement stmt, int index, Long paise) throws SQLException {
+        if (paise == null) stmt.setNull(index, Types.BIGINT);
+        else stmt.setLong(index, paise);
+    }
+
     private String readRequestBody(HttpExchange exchange) throws IOException {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
             StringBuilder sb = new StringBuilder();
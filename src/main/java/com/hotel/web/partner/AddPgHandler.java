@@ -1,6 +1,10 @@
 package com.hotel.web.partner;
 
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.PriceParser;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import org.json.JSONArray;
@@ -17,21 +21,17 @@ import java.util.*;
 public class AddPgHandler implements HttpHandler {
 
 	private final DbConfig dbConfig;
+	private final CatalogService catalog;
+    private final IdService ids;
 
-    public AddPgHandler(DbConfig dbConfig) {
+    public AddPgHandler(DbConfig dbConfig, CatalogService catalog, IdService ids) {
         this.dbConfig = dbConfig;
+        this.catalog = catalog;
+        this.ids = ids;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -47,6 +47,15 @@ public class AddPgHandler implements HttpHandler {
             return;
         }
 
+        // Validate the price before touching images or the DB
+        Long roomPricePaise;
+        try {
+            roomPricePaise = PriceParser.parsePaise(params.get("room_price"));
+        } catch (IllegalArgumentException e) {
+            sendResponse(exchange, 400, "{\"status\":\"error\",\"message\":\"" + escapeJson(e.getMessage()) + "\"}");
+            return;
+        }
+
         // If images JSON included, parse and save images first, then inject pg_images param as CSV of URLs
         try {
             if (params.containsKey("images") && params.get("images") != null && !params.get("images").trim().isEmpty()) {
@@ -58,7 +67,7 @@ public class AddPgHandler implements HttpHandler {
                     // pg_id may be provided for update; if not, we'll generate one (but we need it to save images).
                     String pgId = params.getOrDefault("pg_id", "").trim();
                     if (pgId.isEmpty()) {
-                        pgId = "PG_" + System.currentTimeMillis();
+                        pgId = ids.pgId();
                         params.put("pg_id", pgId);
                     }
 
@@ -107,13 +116,16 @@ public class AddPgHandler implements HttpHandler {
             isUpdate = pgExists(incomingPgId);
         } else {
             // generate new PG_ID
-            incomingPgId = "PG_" + System.currentTimeMillis();
+            incomingPgId = ids.pgId();
             params.put("pg_id", incomingPgId);
         }
 
         try {
-            boolean success = isUpdate ? updatePGInDB(incomingPgId, params) : addPGToDB(incomingPgId, params);
+            boolean success = isUpdate
+                    ? updatePGInDB(incomingPgId, params, roomPricePaise)
+                    : addPGToDB(incomingPgId, params, roomPricePaise);
             if (success) {
+                catalog.listingChanged(Listing.Kind.PG, incomingPgId);
                 String msg = isUpdate ? "PG updated successfully!" : "PG added successfully!";
                 sendResponse(exchange, 200, "{\"status\":\"success\",\"message\":\"" + escapeJson(msg) + "\"}");
             } else {
@@ -142,14 +154,14 @@ public class AddPgHandler implements HttpHandler {
         return false;
     }
 
-    private boolean addPGToDB(String pgId, Map<String, String> params) throws SQLException {
+    private boolean addPGToDB(String pgId, Map<String, String> params, Long roomPricePaise) throws SQLException {
         // Insert must match your table columns and order exactly
         String sql = "INSERT INTO paying_guest_info (" +
                 "PG_ID, Partner_ID, PG_Name, PG_Type, Room_Type, Address, City, State, Country, Pincode, " +
                 "Total_Single_Sharing_Rooms, Total_Double_Sharing_Rooms, Total_Three_Sharing_Rooms, " +
                 "Total_Four_ShARING_Rooms, Total_Five_ShARING_Rooms, Hotel_Location, Available_Rooms, Room_Price, " +
-                "Amenities, Description, Policies, Rating, PG_Contact, About_This_PG, PG_Images, Status" +
-                ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                "Amenities, Description, Policies, Rating, PG_Contact, About_This_PG, PG_Images, Status, Room_Price_Paise" +
+                ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         // Fix column names that may have been pasted with inconsistent capitalization/spelling:
         sql = sql.replace("Total_Four_ShARING_Rooms", "Total_Four_Sharing_Rooms")
@@ -159,29 +171,38 @@ public class AddPgHandler implements HttpHandler {
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             setPGParamsForInsert(stmt, pgId, params);
+            setPaise(stmt, 27, roomPricePaise);
             return stmt.executeUpdate() > 0;
         }
     }
 
-    private boolean updatePGInDB(String pgId, Map<String, String> params) throws SQLException {
+    private boolean updatePGInDB(String pgId, Map<String, String> params, Long roomPricePaise) throws SQLException {
         String sql = "UPDATE paying_guest_info SET " +
                 "PG_Name=?, Partner_ID=?, PG_Type=?, Room_Type=?, Address=?, City=?, State=?, Country=?, Pincode=?, " +
                 "Total_Single_Sharing_Rooms=?, Total_Double_Sharing_Rooms=?, Total_Three_Sharing_Rooms=?, " +
                 "Total_Four_Sharing_Rooms=?, Total_Five_Sharing_Rooms=?, Hotel_Location=?, Available_Rooms=?, Room_Price=?, " +
-                "Amenities=?, Description=?, Policies=?, Rating=?, PG_Contact=?, About_This_PG=?, PG_Images=?, Status=? " +
+                "Amenities=?, Description=?, Policies=?, Rating=?, PG_Contact=?, About_This_PG=?, PG_Images=?, Status=?, " +
+                "Room_Price_Paise=? " +
                 "WHERE PG_ID=?";
 
         try (Connection conn = dbConfig.getPartnerDataSource().getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             setPGParamsForUpdate(stmt, params);
-            stmt.setString(26, pgId); // WHERE PG_ID=?
+            setPaise(stmt, 26, roomPricePaise);
+            stmt.setString(27, pgId); // WHERE PG_ID=?
             return stmt.executeUpdate() > 0;
         }
     }
 
     // ----------------- Param bindings -----------------
 
+    // Numeric copy of Room_Price for range filters and sorting; NULL when no price was given
+    private void setPaise(PreparedStatement stmt, int index, Long paise) throws SQLException {
+        if (paise == null) stmt.setNull(index, Types.BIGINT);
+        else stmt.setLong(index, paise);
+    }
+
     private void setPGParamsForInsert(PreparedStatement stmt, String pgId, Map<String, String> params) throws SQLException {
         // Map exactly to the INSERT column order
         stmt.setString(1, pgId);
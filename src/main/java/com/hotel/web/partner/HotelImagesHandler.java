@@ -24,15 +24,6 @@ public class HotelImagesHandler implements HttpHandler {
         String method = exchange.getRequestMethod();
         String path = exchange.getRequestURI().getPath();
 
-        // ===== CORS preflight =====
-        if ("OPTIONS".equalsIgnoreCase(method)) {
-            exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
-            exchange.getResponseHeaders().set("Access-Control-Allow-Methods", "GET, OPTIONS");
-            exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "*");
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         if (!"GET".equalsIgnoreCase(method)) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -71,7 +62,6 @@ public class HotelImagesHandler implements HttpHandler {
 
         // ===== Headers =====
         exchange.getResponseHeaders().set("Content-Type", contentType);
-        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
 
         // Cache images for 7 days
         exchange.getResponseHeaders().set(
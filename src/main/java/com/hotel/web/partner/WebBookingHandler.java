@@ -2,8 +2,20 @@ package com.hotel.web.partner;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.booking.BookingStateMachine;
+import com.hotel.booking.BookingStateMachine.Result;
+import com.hotel.booking.BookingStateMachine.Status;
+import com.hotel.booking.BookingStateMachine.Transition;
+import com.hotel.events.BookingEvent;
+import com.hotel.events.Outbox;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.inventory.AvailabilityCalendar.Claim;
+import com.hotel.inventory.AvailabilityCalendar.Stay;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
+import com.hotel.utilities.JsonStreamWriter;
+import com.hotel.utilities.KeysetCursor;
 
 import java.io.*;
 import java.net.URLDecoder;
@@ -15,22 +27,15 @@ import java.util.*;
 public class WebBookingHandler implements HttpHandler {
 
     private final DbConfig dbConfig;
+    private final AvailabilityCalendar calendar;
 
-    public WebBookingHandler(DbConfig dbConfig) {
+    public WebBookingHandler(DbConfig dbConfig, AvailabilityCalendar calendar) {
         this.dbConfig = dbConfig;
+        this.calendar = calendar;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        String method = exchange.getRequestMethod();
-
-        // CORS preflight
-        if (method.equalsIgnoreCase("OPTIONS")) {
-            addCORSHeaders(exchange);
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         String path = exchange.getRequestURI().getPath();
 
         if (path.endsWith("/webgetPartnerBookings")) {
@@ -44,12 +49,6 @@ public class WebBookingHandler implements HttpHandler {
         }
     }
 
-    private void addCORSHeaders(HttpExchange exchange) {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-    }
-
     private Map<String, String> parsePostBody(HttpExchange exchange) throws IOException {
         Map<String, String> map = new HashMap<>();
 
@@ -75,80 +74,242 @@ public class WebBookingHandler implements HttpHandler {
         return map;
     }
 
-    private String getQueryParam(HttpExchange exchange, String key) throws UnsupportedEncodingException {
-        String query = exchange.getRequestURI().getQuery();
-        if (query == null) return "";
+    // ========================= GET BOOKINGS =========================
 
-        for (String param : query.split("&")) {
-            String[] pair = param.split("=");
-            if (pair.length == 2 && pair[0].equalsIgnoreCase(key)) {
-                return URLDecoder.decode(pair[1], "UTF-8").trim();
-            }
+    private static final String BOOKING_COLUMNS = """
+            Partner_ID, Hotel_ID, Booking_ID, Hotel_Name, Hotel_Type, Guest_Name,
+            Email, User_ID, Check_In_Date, Check_Out_Date, Guest_Count, Adults,
+            Children, Total_Rooms_Booked, Total_Days_at_Stay, Room_Price_Per_Day,
+            All_Days_Price, GST, Original_Amount, Final_Payable_Amount, Payment_Method_Type,
+            Hotel_Address, Booking_Status, Hotel_Contact, Payment_Status,
+            Wallet_Used, Wallet_Amount_Deducted, Coupon_Code
+            """;
+
+    private static final int DEFAULT_PAGE = 50;
+    private static final int MAX_PAGE = 500;
+
+    /** Server-side sort keys; Booking_ID breaks ties in the same direction. */
+    private enum Sort {
+        CHECK_IN("Check_In_Date"),
+        AMOUNT("Final_Payable_Amount");
+
+        final String column;
+
+        Sort(String column) {
+            this.column = column;
         }
-        return "";
-    }
 
-    // ========================= GET BOOKINGS =========================
+        /** The typed key for {@code value}; IllegalArgumentException when it does not parse. */
+        Object key(String value) {
+            return this == CHECK_IN ? java.sql.Date.valueOf(value) : new java.math.BigDecimal(value);
+        }
+
+        void bind(PreparedStatement ps, int idx, Object key) throws SQLException {
+            if (this == CHECK_IN) ps.setDate(idx, (java.sql.Date) key);
+            else ps.setBigDecimal(idx, (java.math.BigDecimal) key);
+        }
+    }
 
+    /**
+     * A partner's bookings, filtered and sorted in SQL and streamed row by row.
+     *
+     * Query params: partnerId (required), status (comma-separated, any of PENDING,
+     * CONFIRMED, COMPLETED, CANCELLED), from / to (check-in date range), hotelId, q (guest
+     * name, email or booking id), sort = check_in | amount, order = desc | asc (default
+     * check_in desc).
+     *
+     * Without limit or cursor the whole result is streamed, as before. With them, one
+     * keyset page of limit rows (default 50, max 500) is returned, and the cursor for the
+     * next page is in the X-Next-Cursor header. A small key-only query finds the last key
+     * of the page first. The page is then streamed between the two cursors, so pages never
+     * overlap or skip rows.
+     * <pre>
+     *   CREATE INDEX idx_bookings_partner_checkin ON bookings_info (Partner_ID, Check_In_Date, Booking_ID);
+     *   CREATE INDEX idx_bookings_partner_amount  ON bookings_info (Partner_ID, Final_Payable_Amount, Booking_ID);
+     * </pre>
+     */
     private void handleGetBookings(HttpExchange exchange) throws IOException {
         if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
             exchange.sendResponseHeaders(405, -1);
             return;
         }
 
-        addCORSHeaders(exchange);
-        String partnerId = getQueryParam(exchange, "partnerId");
-
-        List<Map<String, String>> bookings = new ArrayList<>();
-
-        String sql = """
-                SELECT Partner_ID, Hotel_ID, Booking_ID, Hotel_Name, Hotel_Type, Guest_Name,
-                       Email, User_ID, Check_In_Date, Check_Out_Date, Guest_Count, Adults,
-                       Children, Total_Rooms_Booked, Total_Days_at_Stay, Room_Price_Per_Day,
-                       All_Days_Price, GST, Original_Amount, Payment_Method_Type,
-                       Hotel_Address, Booking_Status, Hotel_Contact, Payment_Status,
-                       Wallet_Used, Wallet_Amount_Deducted, Coupon_Code
-                FROM bookings_info
-                WHERE Partner_ID = ?
-                """;
-
-        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            stmt.setString(1, partnerId);
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                ResultSetMetaData meta = rs.getMetaData();
-                int colCount = meta.getColumnCount();
-
-                while (rs.next()) {
-                    Map<String, String> row = new LinkedHashMap<>();
-                    for (int i = 1; i <= colCount; i++) {
-                        String col = meta.getColumnName(i);
-                        String val = rs.getString(i);
-                        row.put(col, val != null ? val : "");
+        Map<String, String> params = Router.queryParams(exchange);
+        String partnerId = params.getOrDefault("partnerId", "").trim();
+        if (partnerId.isEmpty()) {
+            Json.sendStatus(exchange, 400, "error", "partnerId is required");
+            return;
+        }
+
+        // ---- filters ----
+        StringBuilder where = new StringBuilder(" WHERE Partner_ID = ?");
+        List<Binder> binds = new ArrayList<>();
+        binds.add((ps, i) -> ps.setString(i, partnerId));
+
+        Sort sort;
+        boolean descending;
+        boolean paged = params.containsKey("limit") || params.containsKey("cursor");
+        int limit;
+        String[] cursor;
+        Object cursorKey = null;
+        try {
+            // Through the state machine, so rows with no Booking_Status are found as PENDING
+            Set<Status> statuses = EnumSet.noneOf(Status.class);
+            for (String status : params.getOrDefault("status", "").split(",")) {
+                if (!status.isBlank()) statuses.add(Status.valueOf(status.trim().toUpperCase()));
+            }
+            if (!statuses.isEmpty()) {
+                where.append(" AND ").append(BookingStateMachine.statusIn(statuses.toArray(new Status[0])));
+            }
+
+            String from = params.getOrDefault("from", "").trim();
+            if (!from.isEmpty()) {
+                java.sql.Date date = java.sql.Date.valueOf(LocalDate.parse(from));
+                where.append(" AND Check_In_Date >= ?");
+                binds.add((ps, i) -> ps.setDate(i, date));
+            }
+            String to = params.getOrDefault("to", "").trim();
+            if (!to.isEmpty()) {
+                java.sql.Date date = java.sql.Date.valueOf(LocalDate.parse(to));
+                where.append(" AND Check_In_Date <= ?");
+                binds.add((ps, i) -> ps.setDate(i, date));
+            }
+
+            String hotelId = params.getOrDefault("hotelId", "").trim();
+            if (!hotelId.isEmpty()) {
+                where.append(" AND Hotel_ID = ?");
+                binds.add((ps, i) -> ps.setString(i, hotelId));
+            }
+
+            String q = params.getOrDefault("q", "").trim();
+            if (!q.isEmpty()) {
+                String like = "%" + q.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                where.append(" AND (Guest_Name LIKE ? OR Email LIKE ? OR Booking_ID = ?)");
+                binds.add((ps, i) -> ps.setString(i, like));
+                binds.add((ps, i) -> ps.setString(i, like));
+                binds.add((ps, i) -> ps.setString(i, q));
+            }
+
+            sort = Sort.valueOf(params.getOrDefault("sort", "check_in").trim().toUpperCase());
+            String order = params.getOrDefault("order", "desc").trim().toLowerCase();
+            if (!order.equals("desc") && !order.equals("asc")) throw new IllegalArgumentException("order");
+            descending = order.equals("desc");
+
+            limit = KeysetCursor.limit(params.get("limit"), DEFAULT_PAGE, MAX_PAGE);
+            cursor = KeysetCursor.decode(params.get("cursor"), 4);
+            if (cursor != null && (!cursor[0].equals(sort.name()) || !cursor[1].equals(order))) {
+                throw new IllegalArgumentException("cursor belongs to another sort");
+            }
+            // Parsed here so a tampered key is a 400, not a failure half-way through the query
+            if (cursor != null && !cursor[2].isEmpty()) cursorKey = sort.key(cursor[2]);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            Json.sendStatus(exchange, 400, "error", "Invalid filter, sort or cursor");
+            return;
+        }
+
+        String direction = descending ? " DESC" : " ASC";
+        String orderBy = " ORDER BY " + sort.column + direction + ", Booking_ID" + direction;
+        if (cursor != null) {
+            where.append(" AND ").append(after(sort, descending, cursor[2].isEmpty()));
+            bindKey(binds, sort, cursorKey, cursor[3]);
+        }
+
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+
+            String sql = "SELECT " + BOOKING_COLUMNS + " FROM bookings_info" + where;
+            if (paged) {
+                // Key of the page's last row, and whether anything follows it
+                String keySql = "SELECT " + sort.column + ", Booking_ID FROM bookings_info" + where + orderBy
+                        + " LIMIT " + (limit - 1) + ", 2";
+                String[] last = null;
+                boolean more = false;
+                try (PreparedStatement ps = conn.prepareStatement(keySql)) {
+                    bindAll(ps, binds);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        if (rs.next()) last = new String[]{rs.getString(1), rs.getString(2)};
+                        more = rs.next();
+                    }
+                }
+                if (last != null) {
+                    sql += " AND " + atOrBefore(sort, descending, last[0] == null);
+                    bindKey(binds, sort, last[0] == null ? null : sort.key(last[0]), last[1]);
+                    if (more) {
+                        KeysetCursor.setNext(exchange, KeysetCursor.encode(
+                                sort.name(), descending ? "desc" : "asc", last[0], last[1]));
                     }
-                    bookings.add(row);
+                }
+            }
+
+            try (PreparedStatement ps = conn.prepareStatement(sql + orderBy)) {
+                JsonStreamWriter.prepare(ps);
+                bindAll(ps, binds);
+                try (ResultSet rs = ps.executeQuery()) {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    int colCount = meta.getColumnCount();
+
+                    JsonStreamWriter.streamArray(exchange, rs, (row, gen) -> {
+                        gen.writeStartObject();
+                        for (int i = 1; i <= colCount; i++) {
+                            String val = row.getString(i);
+                            gen.writeStringField(meta.getColumnName(i), val != null ? val : "");
+                        }
+                        gen.writeEndObject();
+                    });
                 }
             }
         } catch (SQLException e) {
             e.printStackTrace();
+            if (!JsonStreamWriter.headersSent(exchange)) {
+                Json.sendStatus(exchange, 500, "error", "Database error");
+            }
         }
+    }
 
-        String json = new ObjectMapper().writeValueAsString(bookings);
-        exchange.getResponseHeaders().add("Content-Type", "application/json");
-        exchange.sendResponseHeaders(200, json.getBytes(StandardCharsets.UTF_8).length);
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement ps, int idx) throws SQLException;
+    }
 
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(json.getBytes(StandardCharsets.UTF_8));
+    private static void bindAll(PreparedStatement ps, List<Binder> binds) throws SQLException {
+        for (int i = 0; i < binds.size(); i++) binds.get(i).bind(ps, i + 1);
+    }
+
+    /** Binds (key, key, id) for a non-null key, (id) for a null one, matching after() / atOrBefore(). */
+    private static void bindKey(List<Binder> binds, Sort sort, Object key, String bookingId) {
+        if (key != null) {
+            binds.add((ps, i) -> sort.bind(ps, i, key));
+            binds.add((ps, i) -> sort.bind(ps, i, key));
         }
+        binds.add((ps, i) -> ps.setString(i, bookingId));
+    }
+
+    // MySQL sorts NULL first ascending and last descending; both predicates follow that order.
+
+    /** Rows strictly after (key, Booking_ID) in the requested order. */
+    private static String after(Sort sort, boolean descending, boolean nullKey) {
+        String c = sort.column;
+        if (descending) {
+            return nullKey ? "(" + c + " IS NULL AND Booking_ID < ?)"
+                    : "(" + c + " < ? OR (" + c + " = ? AND Booking_ID < ?) OR " + c + " IS NULL)";
+        }
+        return nullKey ? "(" + c + " IS NOT NULL OR Booking_ID > ?)"
+                : "(" + c + " > ? OR (" + c + " = ? AND Booking_ID > ?))";
+    }
+
+    /** Rows up to and including (key, Booking_ID) in the requested order. */
+    private static String atOrBefore(Sort sort, boolean descending, boolean nullKey) {
+        String c = sort.column;
+        if (descending) {
+            return nullKey ? "(" + c + " IS NOT NULL OR Booking_ID >= ?)"
+                    : "(" + c + " > ? OR (" + c + " = ? AND Booking_ID >= ?))";
+        }
+        return nullKey ? "(" + c + " IS NULL AND Booking_ID <= ?)"
+                : "(" + c + " IS NULL OR " + c + " < ? OR (" + c + " = ? AND Booking_ID <= ?))";
     }
 
     // ========================= CANCEL BOOKING =========================
 
     private void handleCancelBooking(HttpExchange exchange) throws IOException {
-        addCORSHeaders(exchange);
-
         if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -159,14 +320,8 @@ public class WebBookingHandler implements HttpHandler {
         boolean success = false;
 
         if (!bookingId.isEmpty()) {
-            String sql = "UPDATE bookings_info SET Booking_Status = 'CANCELLED' WHERE Booking_ID = ?";
-
-            try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-                stmt.setString(1, bookingId);
-                success = stmt.executeUpdate() > 0;
-
+            try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+                success = transition(conn, bookingId, Transition.CANCEL).applied();
             } catch (SQLException e) {
                 e.printStackTrace();
             }
@@ -184,18 +339,13 @@ public class WebBookingHandler implements HttpHandler {
     // ========================= UPDATE BOOKING STATUS =========================
 
     private void handleUpdateBookingStatus(HttpExchange exchange) throws IOException {
-        addCORSHeaders(exchange);
-
         if (!exchange.getRequestMethod().equalsIgnoreCase("POST")) {
             exchange.sendResponseHeaders(405, -1);
             return;
         }
 
         Map<String, String> params = parsePostBody(exchange);
-        if (params.isEmpty()) {
-            params.put("bookingId", getQueryParam(exchange, "bookingId"));
-            params.put("status", getQueryParam(exchange, "status"));
-        }
+        if (params.isEmpty()) params = Router.queryParams(exchange);
 
         String bookingId = params.getOrDefault("bookingId", "").trim();
         String newStatus = params.getOrDefault("status", "").trim().toUpperCase(); // ✅ FORCE UPPERCASE
@@ -205,58 +355,28 @@ public class WebBookingHandler implements HttpHandler {
 
         if (!bookingId.isEmpty() && !newStatus.isEmpty()) {
 
-            String fetchSql = "SELECT Booking_Status, Check_Out_Date FROM bookings_info WHERE Booking_ID = ?";
-            String updateSql = "UPDATE bookings_info SET Booking_Status = ? WHERE Booking_ID = ?";
-
-            try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
-                 PreparedStatement fetchStmt = conn.prepareStatement(fetchSql)) {
-
-                fetchStmt.setString(1, bookingId);
-
-                String currentStatus = "";
-                LocalDate checkOutDate = null;
-
-                try (ResultSet rs = fetchStmt.executeQuery()) {
-                    if (rs.next()) {
-                        currentStatus = rs.getString("Booking_Status").toUpperCase();
-                        String checkOut = rs.getString("Check_Out_Date");
-                        if (checkOut != null && !checkOut.isEmpty()) {
-                            checkOutDate = LocalDate.parse(checkOut);
-                        }
-                    }
-                }
-
-                boolean allowed = false;
-                LocalDate today = LocalDate.now();
-
-                switch (newStatus) {
-                    case "CONFIRMED":
-                        allowed = "PENDING".equals(currentStatus);
-                        break;
-                    case "CANCELLED":
-                        allowed = "PENDING".equals(currentStatus) || "CONFIRMED".equals(currentStatus);
-                        break;
-                    case "COMPLETED":
-                        allowed = "CONFIRMED".equals(currentStatus)
-                                && checkOutDate != null
-                                && !checkOutDate.isAfter(today);
-                        break;
-                }
-
-                if (allowed) {
-                    try (PreparedStatement updateStmt = conn.prepareStatement(updateSql)) {
-                        updateStmt.setString(1, newStatus); // ✅ ALWAYS UPPERCASE IN DB
-                        updateStmt.setString(2, bookingId);
-                        success = updateStmt.executeUpdate() > 0;
-                        message = success ? "Status updated successfully" : "Update failed";
-                    }
-                } else {
-                    message = "Action not allowed";
+            Transition transition = switch (newStatus) {
+                case "CONFIRMED" -> Transition.CONFIRM;
+                case "CANCELLED" -> Transition.CANCEL;
+                case "COMPLETED" -> Transition.COMPLETE;   // only once the guest has checked out
+                default -> null;
+            };
+
+            if (transition == null) {
+                message = "Action not allowed";
+            } else {
+                try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+                    Result result = transition(conn, bookingId, transition);
+                    success = result.applied();
+                    message = switch (result.outcome()) {
+                        case APPLIED -> "Status updated successfully";
+                        case REJECTED -> "Action not allowed";
+                        case NOT_FOUND -> "Booking not found";
+                    };
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                    message = "Database error";
                 }
-
-            } catch (SQLException e) {
-                e.printStackTrace();
-                message = "Database error";
             }
         }
 
@@ -270,4 +390,30 @@ public class WebBookingHandler implements HttpHandler {
             os.write(response.getBytes(StandardCharsets.UTF_8));
         }
     }
+
+    /**
+     * Applies a partner-side transition with its outbox event in one transaction, and gives
+     * the rooms back when a cancellation commits.
+     */
+    private Result transition(Connection conn, String bookingId, Transition transition) throws SQLException {
+        conn.setAutoCommit(false);
+        Claim claim = null;
+        try {
+            Stay stay = transition.to() == Status.CANCELLED ? AvailabilityCalendar.findStay(conn, bookingId) : null;
+            if (stay != null) claim = calendar.release(bookingId, stay);
+            Result result = BookingStateMachine.apply(conn, bookingId, transition);
+            if (result.applied()) {
+                Outbox.append(conn, transition.to() == Status.CANCELLED
+                        ? BookingEvent.Type.CANCELLED : BookingEvent.Type.STATUS_CHANGED, bookingId);
+            }
+            conn.commit();
+            if (result.applied()) calendar.committed(claim);
+            else calendar.rolledBack(claim);
+            return result;
+        } catch (SQLException e) {
+            conn.rollback();
+            calendar.rolledBack(claim);
+            throw e;
+        }
+    }
 }
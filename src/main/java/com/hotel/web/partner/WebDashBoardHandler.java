@@ -1,7 +1,8 @@
 package com.hotel.web.partner;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hotel.server.Router;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.Json;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import java.io.IOException;
@@ -20,22 +21,12 @@ public class WebDashBoardHandler implements HttpHandler {
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
-        setCORS(exchange);
-
-        if (exchange.getRequestMethod().equalsIgnoreCase("OPTIONS")) {
-            exchange.sendResponseHeaders(200, -1);
-            return;
-        }
-
         if (!exchange.getRequestMethod().equalsIgnoreCase("GET")) {
             sendResponse(exchange, 405, "Invalid Method");
             return;
         }
 
-        String path = exchange.getRequestURI().getPath();
-        String[] parts = path.split("/");
-
-        String partnerId = (parts.length >= 4) ? parts[3] : null;
+        String partnerId = Router.pathParam(exchange, "partnerId");
 
         if (partnerId == null || partnerId.isEmpty()) {
             sendResponse(exchange, 400, "Missing partnerId");
@@ -196,13 +187,7 @@ public class WebDashBoardHandler implements HttpHandler {
     // ======================= RESPONSE HELPERS =======================
 
     private void sendJson(HttpExchange ex, Object obj) throws IOException {
-        String json = new ObjectMapper().writeValueAsString(obj);
-        byte[] out  = json.getBytes();
-
-        ex.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
-        ex.sendResponseHeaders(200, out.length);
-        ex.getResponseBody().write(out);
-        ex.close();
+        Json.send(ex, 200, obj);
     }
 
     private void sendResponse(HttpExchange ex, int code, String msg) throws IOException {
@@ -211,10 +196,4 @@ public class WebDashBoardHandler implements HttpHandler {
         ex.getResponseBody().write(out);
         ex.close();
     }
-
-    private void setCORS(HttpExchange ex) {
-        ex.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        ex.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, OPTIONS");
-        ex.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, Authorization");
-    }
 }
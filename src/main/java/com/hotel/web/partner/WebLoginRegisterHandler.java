@@ -1,7 +1,10 @@
 package com.hotel.web.partner;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.hotel.security.PasswordUtil;
 import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.Json;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 
@@ -14,22 +17,15 @@ import java.util.*;
 public class WebLoginRegisterHandler implements HttpHandler {
 
     private final DbConfig dbConfig;
+    private final IdService ids;
 
-    public WebLoginRegisterHandler(DbConfig dbConfig) {
+    public WebLoginRegisterHandler(DbConfig dbConfig, IdService ids) {
         this.dbConfig = dbConfig;
+        this.ids = ids;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             exchange.sendResponseHeaders(405, -1);
             return;
@@ -107,27 +103,13 @@ public class WebLoginRegisterHandler implements HttpHandler {
                     return;
                 }
 
-                // Successful login (unchanged response logic)
-                Map<String, String> partnerDetails = new LinkedHashMap<>();
-                ResultSetMetaData meta = rs.getMetaData();
-
-                for (int i = 1; i <= meta.getColumnCount(); i++) {
-                    String key = meta.getColumnName(i);
-                    String val = rs.getString(i) != null ? rs.getString(i) : "";
-                    partnerDetails.put(key, val);
-                }
-
-                StringBuilder sb = new StringBuilder(
-                        "{\"status\":\"success\",\"message\":\"Login successful\",");
-                for (Map.Entry<String, String> entry : partnerDetails.entrySet()) {
-                    sb.append("\"").append(entry.getKey()).append("\":\"")
-                            .append(entry.getValue().replace("\"", "\\\""))
-                            .append("\",");
-                }
-                sb.setLength(sb.length() - 1);
-                sb.append("}");
+                // Successful login: status + every partner column
+                ObjectNode body = Json.object();
+                body.put("status", "success");
+                body.put("message", "Login successful");
+                putPartnerColumns(rs, body);
 
-                sendResponse(exchange, 200, sb.toString());
+                Json.send(exchange, 200, body);
             }
         }
     }
@@ -145,25 +127,10 @@ public class WebLoginRegisterHandler implements HttpHandler {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Map<String, String> profile = new LinkedHashMap<>();
-                    ResultSetMetaData meta = rs.getMetaData();
+                    ObjectNode profile = Json.object();
+                    putPartnerColumns(rs, profile);
 
-                    for (int i = 1; i <= meta.getColumnCount(); i++) {
-                        String key = meta.getColumnName(i);
-                        String val = rs.getString(i) != null ? rs.getString(i) : "";
-                        profile.put(key, val);
-                    }
-
-                    StringBuilder sb = new StringBuilder("{");
-                    for (Map.Entry<String, String> entry : profile.entrySet()) {
-                        sb.append("\"").append(entry.getKey()).append("\":\"")
-                                .append(entry.getValue().replace("\"", "\\\""))
-                                .append("\",");
-                    }
-                    sb.setLength(sb.length() - 1);
-                    sb.append("}");
-
-                    sendResponse(exchange, 200, sb.toString());
+                    Json.send(exchange, 200, profile);
                     return;
                 }
             }
@@ -212,6 +179,9 @@ public class WebLoginRegisterHandler implements HttpHandler {
         // ✅ Hash password
         String hashedPassword = PasswordUtil.hashPassword(rawPassword);
 
+        // Before borrowing a connection: refilling a hi/lo block takes one of its own
+        String uniqueID = ids.partnerId();
+
         try (Connection conn = dbConfig.getPartnerDataSource().getConnection()) {
 
             String checkQuery = "SELECT Partner_ID FROM partner_data WHERE LOWER(Email)=?";
@@ -226,7 +196,6 @@ public class WebLoginRegisterHandler implements HttpHandler {
                 }
             }
 
-            String uniqueID = "PR" + (new Random().nextInt(90000) + 10000);
             Timestamp registrationDate = new Timestamp(System.currentTimeMillis());
 
             String insertQuery =
@@ -289,6 +258,17 @@ public class WebLoginRegisterHandler implements HttpHandler {
     }
 
     // ================== UTIL ==================
+    // Every partner_data column as a string (NULL as ""), except the password hash
+    private void putPartnerColumns(ResultSet rs, ObjectNode node) throws SQLException {
+        ResultSetMetaData meta = rs.getMetaData();
+        for (int i = 1; i <= meta.getColumnCount(); i++) {
+            String key = meta.getColumnName(i);
+            if ("Password".equalsIgnoreCase(key)) continue;
+            String val = rs.getString(i);
+            node.put(key, val != null ? val : "");
+        }
+    }
+
     private String capitalize(String str) {
         if (str == null || str.isEmpty()) return str;
         return str.substring(0, 1).toUpperCase() + str.substring(1);
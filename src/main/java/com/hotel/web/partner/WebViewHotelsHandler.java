@@ -1,5 +1,7 @@
 package com.hotel.web.partner;
 
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
 import com.hotel.utilities.DbConfig;
 import com.sun.net.httpserver.*;
 import java.io.*;
@@ -10,23 +12,15 @@ import java.util.*;
 public class WebViewHotelsHandler implements HttpHandler {
 
 	private final DbConfig dbConfig;
+	private final CatalogService catalog;
 
-    public WebViewHotelsHandler(DbConfig dbConfig) {
+    public WebViewHotelsHandler(DbConfig dbConfig, CatalogService catalog) {
         this.dbConfig = dbConfig;
+        this.catalog = catalog;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
-        // CORS headers
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             sendResponse(exchange, 405, "status=error&message=Method not allowed");
             return;
@@ -41,6 +35,7 @@ public class WebViewHotelsHandler implements HttpHandler {
                 String idsStr = params.get("hotel_ids");
                 List<String> hotelIds = Arrays.asList(idsStr.split(","));
                 deleteHotelsFromDB(hotelIds);
+                catalog.listingsChanged(Listing.Kind.HOTEL, hotelIds);
                 sendResponse(exchange, 200, "status=success&message=Hotels deleted successfully");
             } else if (params.containsKey("partner_id")) {
                 // Fetch hotels
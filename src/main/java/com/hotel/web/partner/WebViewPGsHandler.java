@@ -1,5 +1,7 @@
 package com.hotel.web.partner;
 
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
 import com.hotel.utilities.DbConfig;
 import com.sun.net.httpserver.*;
 import java.io.*;
@@ -10,23 +12,16 @@ import java.util.*;
 public class WebViewPGsHandler implements HttpHandler {
 
 	private final DbConfig dbConfig;
+	private final CatalogService catalog;
 
-    public WebViewPGsHandler(DbConfig dbConfig) {
+    public WebViewPGsHandler(DbConfig dbConfig, CatalogService catalog) {
         this.dbConfig = dbConfig;
+        this.catalog = catalog;
     }
 
     @Override
     public void handle(HttpExchange exchange) throws IOException {
 
-        exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "*");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
-
-        if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
-            exchange.sendResponseHeaders(204, -1);
-            return;
-        }
-
         if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
             sendResponse(exchange, 405, "status=error&message=Method not allowed");
             return;
@@ -42,6 +37,7 @@ public class WebViewPGsHandler implements HttpHandler {
                 String idsStr = params.get("pg_ids");
                 List<String> pgIds = Arrays.asList(idsStr.split(","));
                 deletePGsFromDB(pgIds);
+                catalog.listingsChanged(Listing.Kind.PG, pgIds);
                 sendResponse(exchange, 200, "status=success&data=deleted");
                 return;
             }
@@ -0,0 +1,260 @@
+package com.hotel.app;
+
+import com.hotel.catalog.CatalogService;
+import com.hotel.catalog.Listing;
+import com.hotel.coupon.CouponUsage;
+import com.hotel.events.BookingEvent;
+import com.hotel.inventory.AvailabilityCalendar;
+import com.hotel.inventory.HoldExpiryService;
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.IdService;
+import com.hotel.utilities.Json;
+import com.hotel.wallet.WalletService;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * POST /booking end to end on an in-memory H2 database in MySQL mode: the in-memory claim,
+ * {@link AvailabilityCalendar#fits} with its listing lock, the insert and the outbox row,
+ * committed or rolled back.
+ */
+class BookingHandlerTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+    private static final int CAPACITY = 3;
+    private static final int NIGHTS = 10;
+
+    /**
+     * Two servers, each with its own calendar that never hears of the other's bookings,
+     * take parallel bookings for one listing. Only fits() stands between them and an
+     * oversold night. Some inserts fail after fits() and must give their claim back.
+     */
+    @Test
+    void twoServersNeverOversellAListing() throws Exception {
+        DbConfig db = h2("two_servers");
+        AvailabilityCalendar calendarA = calendar(db);
+        AvailabilityCalendar calendarB = calendar(db);
+        BookingHandler serverA = handler(db, calendarA);
+        BookingHandler serverB = handler(db, calendarB);
+
+        int requests = 400;
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            BookingHandler server = i % 2 == 0 ? serverA : serverB;
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(NIGHTS - 3);
+                boolean failing = random.nextInt(5) == 0;
+                Map<String, Object> booking = booking(TODAY.plusDays(from), TODAY.plusDays(from + 1 + random.nextInt(3)),
+                        1 + random.nextInt(2), failing);
+                start.await();
+                return new int[]{post(server, booking), failing ? 1 : 0};
+            }));
+        }
+        start.countDown();
+
+        int succeeded = 0;
+        int full = 0;
+        for (Future<int[]> future : futures) {
+            int[] outcome = future.get(60, TimeUnit.SECONDS);
+            int status = outcome[0];
+            if (outcome[1] == 1) {
+                assertThat(status).isIn(409, 500);
+            } else {
+                assertThat(status).isIn(200, 409);
+            }
+            if (status == 200) succeeded++;
+            if (status == 409) full++;
+        }
+        pool.shutdown();
+
+        assertThat(succeeded).isPositive();
+        assertThat(full).isPositive();
+        assertThat(count(db, "SELECT COUNT(*) FROM bookings_info")).isEqualTo(succeeded);
+        assertThat(count(db, "SELECT COUNT(*) FROM booking_outbox")).isEqualTo(succeeded);
+
+        for (int night = 0; night < NIGHTS; night++) {
+            LocalDate day = TODAY.plusDays(night);
+            int sold = bookedInDb(db, day);
+            assertThat(sold).isBetween(0, CAPACITY);
+            // Each calendar holds exactly its own server's bookings: no claim was left behind
+            assertThat(booked(calendarA, day) + booked(calendarB, day)).isEqualTo(sold);
+        }
+
+        // Booking events bring each calendar up to date with the other server's bookings
+        List<BookingEvent> events = List.of(new BookingEvent(0, BookingEvent.Type.CREATED, null, null, "H1",
+                null, null, null, 0, null));
+        calendarA.onBookingEvents(events);
+        calendarB.onBookingEvents(events);
+        for (int night = 0; night < NIGHTS; night++) {
+            LocalDate day = TODAY.plusDays(night);
+            assertThat(booked(calendarA, day)).isEqualTo(bookedInDb(db, day));
+            assertThat(booked(calendarB, day)).isEqualTo(bookedInDb(db, day));
+        }
+    }
+
+    @Test
+    void bookingTheLastRoomTwiceIsRefused() throws Exception {
+        DbConfig db = h2("last_room");
+        BookingHandler serverA = handler(db, calendar(db));
+        BookingHandler serverB = handler(db, calendar(db));
+
+        assertThat(post(serverA, booking(TODAY, TODAY.plusDays(2), CAPACITY, false))).isEqualTo(200);
+        assertThat(post(serverB, booking(TODAY.plusDays(1), TODAY.plusDays(3), 1, false))).isEqualTo(409);
+        assertThat(post(serverB, booking(TODAY.plusDays(2), TODAY.plusDays(3), 1, false))).isEqualTo(200);
+        assertThat(count(db, "SELECT COUNT(*) FROM bookings_info")).isEqualTo(2);
+    }
+
+    // ===== Fixtures =====
+
+    /** An offline booking of listing H1; a failing one has a hotel name too long for its column. */
+    private static Map<String, Object> booking(LocalDate checkIn, LocalDate checkOut, int rooms, boolean failing) {
+        Map<String, Object> booking = new LinkedHashMap<>();
+        booking.put("Partner_ID", "P1");
+        booking.put("Hotel_ID", "H1");
+        booking.put("Hotel_Name", failing ? "x".repeat(80) : "Sea View");
+        booking.put("Hotel_Type", "Hotel");
+        booking.put("User_ID", "U1");
+        booking.put("Check_In_Date", checkIn.toString());
+        booking.put("Check_Out_Date", checkOut.toString());
+        booking.put("Total_Rooms_Booked", rooms);
+        booking.put("Total_Price", 1000);
+        booking.put("Final_Payable_Amount", 1000);
+        booking.put("Payment_Method_Type", "Pay at Hotel");
+        return booking;
+    }
+
+    /** Runs one POST /booking through the handler and returns the response status. */
+    private static int post(BookingHandler handler, Map<String, Object> body) throws Exception {
+        HttpExchange exchange = mock(HttpExchange.class);
+        int[] status = {-1};
+        when(exchange.getRequestURI()).thenReturn(URI.create("/booking"));
+        when(exchange.getRequestMethod()).thenReturn("POST");
+        when(exchange.getRequestBody()).thenReturn(new ByteArrayInputStream(
+                Json.MAPPER.writeValueAsString(body).getBytes(StandardCharsets.UTF_8)));
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+        doAnswer(invocation -> status[0] = invocation.getArgument(0))
+                .when(exchange).sendResponseHeaders(anyInt(), anyLong());
+        handler.handle(exchange);
+        return status[0];
+    }
+
+    private static BookingHandler handler(DbConfig db, AvailabilityCalendar calendar) {
+        AtomicInteger ids = new AtomicInteger();
+        String server = Integer.toHexString(System.identityHashCode(calendar));
+        IdService idService = mock(IdService.class);
+        when(idService.bookingId()).thenAnswer(invocation -> "BKG" + server + "-" + ids.incrementAndGet());
+        return new BookingHandler(db, calendar, idService, mock(HoldExpiryService.class), mock(WalletService.class),
+                mock(CouponUsage.class), mock(CatalogService.class));
+    }
+
+    private static AvailabilityCalendar calendar(DbConfig db) {
+        AvailabilityCalendar calendar = new AvailabilityCalendar(db);
+        Listing listing = mock(Listing.class);
+        when(listing.getId()).thenReturn("H1");
+        when(listing.getKind()).thenReturn(Listing.Kind.HOTEL);
+        when(listing.getNumber("Total_Rooms")).thenReturn((double) CAPACITY);
+        calendar.onCatalogChanged(null, null, List.of(listing), List.of());
+        return calendar;
+    }
+
+    private static int booked(AvailabilityCalendar calendar, LocalDate night) {
+        return CAPACITY - calendar.freeRooms("H1", night, night.plusDays(1));
+    }
+
+    /** bookings_info, booking_outbox and listing_locks in an in-memory H2 database in MySQL mode. */
+    private static DbConfig h2(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+                "CASE_INSENSITIVE_IDENTIFIERS=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bookings_info");
+            st.execute("DROP TABLE IF EXISTS booking_outbox");
+            st.execute("DROP TABLE IF EXISTS listing_locks");
+            st.execute("""
+                CREATE TABLE bookings_info (
+                  Booking_ID VARCHAR(64) PRIMARY KEY, Partner_ID VARCHAR(64), Hotel_ID VARCHAR(64),
+                  Hotel_Name VARCHAR(64), Hotel_Type VARCHAR(32), Guest_Name VARCHAR(64), Email VARCHAR(64),
+                  User_ID VARCHAR(64), Check_In_Date DATE, Check_Out_Date DATE, Guest_Count INT, Adults INT,
+                  Children INT, Total_Rooms_Booked INT, Total_Days_at_Stay INT, Room_Price_Per_Day DOUBLE,
+                  All_Days_Price DOUBLE, GST DOUBLE, Original_Amount DOUBLE, Final_Payable_Amount DOUBLE,
+                  Amount_Paid_Online DOUBLE, Due_Amount_At_Hotel DOUBLE, Payment_Method_Type VARCHAR(32),
+                  Paid_Via VARCHAR(32), Payment_Status VARCHAR(32), Transaction_ID VARCHAR(64),
+                  Wallet_Used VARCHAR(8), Wallet_Amount_Deducted DOUBLE, Coupon_Code VARCHAR(32),
+                  Coupon_Discount_Amount DOUBLE, Room_Type VARCHAR(32), Room_Price_Per_Month VARCHAR(32),
+                  Months INT, Hotel_Address VARCHAR(128), Hotel_Contact VARCHAR(32), Hold_Expires_At TIMESTAMP,
+                  Booking_Status VARCHAR(32) DEFAULT 'PENDING'
+                )""");
+            st.execute("""
+                CREATE TABLE booking_outbox (
+                  Id BIGINT AUTO_INCREMENT PRIMARY KEY, Event_Type VARCHAR(32) NOT NULL,
+                  Booking_ID VARCHAR(64) NOT NULL, Partner_ID VARCHAR(64), Hotel_ID VARCHAR(64),
+                  User_ID VARCHAR(64), Booking_Status VARCHAR(32), Payment_Status VARCHAR(32),
+                  Final_Payable_Amount DOUBLE, Created_At TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+                )""");
+            st.execute("CREATE TABLE listing_locks (listing_id VARCHAR(64) NOT NULL PRIMARY KEY)");
+        }
+        DbConfig db = mock(DbConfig.class);
+        when(db.getCustomerDataSource()).thenReturn(dataSource);
+        when(db.getIntSetting(anyString(), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        return db;
+    }
+
+    private static int bookedInDb(DbConfig db, LocalDate night) throws SQLException {
+        try (Connection conn = db.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COALESCE(SUM(Total_Rooms_Booked), 0) FROM bookings_info " +
+                             "WHERE Hotel_ID = 'H1' AND Check_In_Date <= ? AND Check_Out_Date > ?")) {
+            ps.setDate(1, java.sql.Date.valueOf(night));
+            ps.setDate(2, java.sql.Date.valueOf(night));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static int count(DbConfig db, String sql) throws SQLException {
+        try (Connection conn = db.getCustomerDataSource().getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
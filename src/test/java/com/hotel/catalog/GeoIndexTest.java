@@ -0,0 +1,26 @@
+package com.hotel.catalog;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoIndexTest {
+
+    @Test
+    void parsesLatLng() {
+        assertThat(GeoIndex.parseLocation(" 15.2993 , 74.1240 ")).containsExactly(15.2993, 74.1240);
+    }
+
+    @Test
+    void rejectsMalformedOutOfRangeAndNonFiniteLocations() {
+        assertThat(GeoIndex.parseLocation(null)).isNull();
+        assertThat(GeoIndex.parseLocation("15.2993")).isNull();
+        assertThat(GeoIndex.parseLocation("north,east")).isNull();
+        assertThat(GeoIndex.parseLocation("91,74")).isNull();
+        assertThat(GeoIndex.parseLocation("15,181")).isNull();
+        assertThat(GeoIndex.parseLocation("0,0")).isNull();
+        assertThat(GeoIndex.parseLocation("NaN,NaN")).isNull();
+        assertThat(GeoIndex.parseLocation("15,NaN")).isNull();
+        assertThat(GeoIndex.parseLocation("Infinity,74")).isNull();
+    }
+}
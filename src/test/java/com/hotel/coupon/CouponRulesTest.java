@@ -0,0 +1,97 @@
+package com.hotel.coupon;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CouponRulesTest {
+
+    private static final LocalDate FRIDAY = LocalDate.now().plusDays(30).with(TemporalAdjusters.next(DayOfWeek.FRIDAY));
+
+    @Test
+    void noRulesAcceptsEverything() {
+        CouponRule rule = CouponRules.compile("ANY", null, null, List.of());
+
+        assertThat(rule).isSameAs(CouponRule.NONE);
+        assertThat(rule.reject(cart("web", 2, 100))).isNull();
+    }
+
+    @Test
+    void applicablePlatformOnlyChecksCartsThatNameOne() {
+        CouponRule rule = CouponRules.compile("APP", "android, ios", null, List.of());
+
+        assertThat(rule.reject(cart("Android", 1, 100))).isNull();
+        assertThat(rule.reject(cart("web", 1, 100))).isEqualTo("Not available on this platform");
+        assertThat(rule.reject(cart(null, 1, 100))).isNull();
+    }
+
+    @Test
+    void minOrderValueAndNightLimits() {
+        CouponRule rule = CouponRules.compile("LONG", null, 1500.0, List.of(
+                new Coupon.Rule("min-nights", "2"), new Coupon.Rule("Max Nights", "7")));
+
+        assertThat(rule.reject(cart("web", 3, 2000))).isNull();
+        assertThat(rule.reject(cart("web", 3, 1000))).isEqualTo("Minimum order value not met");
+        assertThat(rule.reject(cart("web", 1, 2000))).isEqualTo("Minimum stay of 2 nights required");
+        assertThat(rule.reject(cart("web", 8, 2000))).isEqualTo("Valid for stays of up to 7 nights");
+    }
+
+    @Test
+    void propertyRulesNeedTheFact() {
+        CouponRule rule = CouponRules.compile("GOA", null, null, List.of(
+                new Coupon.Rule("city", "Goa,Pune"), new Coupon.Rule("hotel_type", "Resort")));
+
+        assertThat(rule.reject(new Cart(null, "H1", "resort", "goa", FRIDAY, FRIDAY.plusDays(1), 100, null))).isNull();
+        assertThat(rule.reject(new Cart(null, "H1", "Resort", null, FRIDAY, FRIDAY.plusDays(1), 100, null)))
+                .isEqualTo("Not valid in this city");
+    }
+
+    @Test
+    void checkInDay() {
+        CouponRule rule = CouponRules.compile("WEEKEND", null, null, List.of(new Coupon.Rule("day_of_week", "FRI,SAT")));
+
+        assertThat(rule.reject(cart("web", 1, 100))).isNull();
+        assertThat(rule.reject(new Cart(null, null, null, null, FRIDAY.plusDays(2), FRIDAY.plusDays(3), 100, null)))
+                .isEqualTo("Not valid for this check-in day");
+    }
+
+    @Test
+    void firstBookingIsOnlyLookedUpWhenARuleAsks() {
+        AtomicInteger lookups = new AtomicInteger();
+        BooleanSupplier first = () -> {
+            lookups.incrementAndGet();
+            return true;
+        };
+        Cart cart = new Cart("web", "H1", "Resort", "Goa", FRIDAY, FRIDAY.plusDays(2), 100, first);
+
+        assertThat(CouponRules.compile("ANY", null, null, List.of(new Coupon.Rule("min_nights", "1"))).reject(cart)).isNull();
+        assertThat(lookups).hasValue(0);
+
+        assertThat(CouponRules.compile("NEW", null, null, List.of(new Coupon.Rule("first_booking", "yes"))).reject(cart)).isNull();
+        assertThat(CouponRules.compile("OLD", null, null, List.of(new Coupon.Rule("first_booking", "false"))).reject(cart))
+                .isEqualTo("Not valid on your first booking");
+        assertThat(lookups).hasValue(2);
+    }
+
+    @Test
+    void unknownOrUnparseableRuleDisablesTheCoupon() {
+        CouponRule unknown = CouponRules.compile("X", null, null, List.of(new Coupon.Rule("moon_phase", "full")));
+        CouponRule badValue = CouponRules.compile("Y", null, null, List.of(new Coupon.Rule("min_nights", "two")));
+        CouponRule emptyList = CouponRules.compile("Z", null, null, List.of(new Coupon.Rule("city", " , ")));
+
+        assertThat(unknown.reject(cart("web", 2, 100))).isEqualTo("Coupon is not available");
+        assertThat(badValue.reject(cart("web", 2, 100))).isEqualTo("Coupon is not available");
+        assertThat(emptyList.reject(cart("web", 2, 100))).isEqualTo("Coupon is not available");
+    }
+
+    private static Cart cart(String platform, int nights, double amount) {
+        return new Cart(platform, "H1", "Resort", "Goa", FRIDAY, FRIDAY.plusDays(nights), amount, () -> true);
+    }
+}
@@ -0,0 +1,409 @@
+package com.hotel.inventory;
+
+import com.hotel.catalog.Listing;
+import com.hotel.events.BookingEvent;
+import com.hotel.inventory.AvailabilityCalendar.Claim;
+import com.hotel.inventory.AvailabilityCalendar.Stay;
+import com.hotel.utilities.DbConfig;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AvailabilityCalendarTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Test
+    void reservesUpToCapacityAndReleases() {
+        AvailabilityCalendar calendar = calendar(null, 30, TODAY, "H1", 2);
+        Stay stay = new Stay("H1", TODAY, TODAY.plusDays(2), 1);
+
+        Claim first = calendar.reserve("B1", stay);
+        calendar.committed(first);
+        Claim second = calendar.reserve("B2", stay);
+        assertThat(first).isNotNull();
+        assertThat(second).isNotNull();
+        assertThat(calendar.reserve("B3", stay)).isNull();
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isZero();
+
+        calendar.rolledBack(second);
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isEqualTo(1);
+        calendar.rolledBack(second);
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isEqualTo(1);
+    }
+
+    @Test
+    void fullNightGivesBackTheNightsAlreadyClaimed() {
+        AvailabilityCalendar calendar = calendar(null, 30, TODAY, "H1", 1);
+        assertThat(calendar.reserve("B1", new Stay("H1", TODAY.plusDays(2), TODAY.plusDays(3), 1))).isNotNull();
+
+        // Nights 0 and 1 are free, night 2 is full: nothing may stay claimed
+        assertThat(calendar.reserve("B2", new Stay("H1", TODAY, TODAY.plusDays(3), 1))).isNull();
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isEqualTo(1);
+    }
+
+    @Test
+    void listingWithoutCapacityIsNotChecked() {
+        AvailabilityCalendar calendar = new AvailabilityCalendar(null, 30, TODAY);
+        Stay stay = new Stay("UNKNOWN", TODAY, TODAY.plusDays(1), 5);
+
+        assertThat(calendar.reserve("B1", stay)).isNotNull();
+        assertThat(calendar.reserve("B2", stay)).isNotNull();
+    }
+
+    @Test
+    void releaseGivesTheRoomsBackOnlyWhenItCommits() {
+        AvailabilityCalendar calendar = calendar(null, 30, TODAY, "H1", 1);
+        Stay stay = new Stay("H1", TODAY, TODAY.plusDays(2), 1);
+        calendar.committed(calendar.reserve("B1", stay));
+
+        calendar.rolledBack(calendar.release("B1", stay));
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isZero();
+
+        calendar.committed(calendar.release("B1", stay));
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(2))).isEqualTo(1);
+    }
+
+    @Test
+    void moveDoesNotCountTheBookingsOwnRooms() {
+        AvailabilityCalendar calendar = calendar(null, 30, TODAY, "H1", 1);
+        Stay before = new Stay("H1", TODAY, TODAY.plusDays(2), 1);
+        Stay after = new Stay("H1", TODAY.plusDays(1), TODAY.plusDays(3), 1);
+        calendar.committed(calendar.reserve("B1", before));
+
+        Claim move = calendar.move("B1", before, after);
+        assertThat(move).isNotNull();
+        assertThat(calendar.reserve("B2", new Stay("H1", TODAY, TODAY.plusDays(1), 1))).isNull();
+
+        calendar.committed(move);
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(1))).isEqualTo(1);
+        assertThat(calendar.freeRooms("H1", TODAY.plusDays(1), TODAY.plusDays(3))).isZero();
+    }
+
+    @Test
+    void rollMovesTheWindowAndLoadsTheEnteringNight() throws SQLException {
+        int horizon = 10;
+        DbConfig db = database(rows("H1", 2));
+        AvailabilityCalendar calendar = calendar(db, horizon, TODAY.minusDays(1), "H1", 5);
+        calendar.reserve("B1", new Stay("H1", TODAY.minusDays(1), TODAY.plusDays(1), 1));
+
+        calendar.roll();
+
+        assertThat(calendar.freeRooms("H1", TODAY.minusDays(1), TODAY)).isEqualTo(-1);
+        assertThat(calendar.freeRooms("H1", TODAY, TODAY.plusDays(1))).isEqualTo(4);
+        // The entering night takes the spare slot: only the database's 2 rooms may be in it
+        assertThat(calendar.freeRooms("H1", TODAY.plusDays(horizon - 1), TODAY.plusDays(horizon))).isEqualTo(3);
+    }
+
+    @Test
+    void failedRollLeavesTheWindowAlone() throws SQLException {
+        DbConfig db = mock(DbConfig.class);
+        DataSource dataSource = mock(DataSource.class);
+        when(db.getCustomerDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenThrow(new SQLException("down"));
+        AvailabilityCalendar calendar = calendar(db, 10, TODAY.minusDays(1), "H1", 5);
+        calendar.reserve("B1", new Stay("H1", TODAY.minusDays(1), TODAY, 1));
+
+        calendar.roll();
+
+        assertThat(calendar.freeRooms("H1", TODAY.minusDays(1), TODAY)).isEqualTo(4);
+    }
+
+    /**
+     * Thousands of parallel reservations for a handful of rooms: on no night may more
+     * stays succeed than there are rooms, and the counts must match the successes exactly.
+     */
+    @Test
+    void parallelReservationsNeverOverbook() throws Exception {
+        int capacity = 5;
+        int nights = 20;
+        int requests = 5_000;
+        AvailabilityCalendar calendar = calendar(null, 30, TODAY, "H1", capacity);
+
+        AtomicIntegerArray sold = new AtomicIntegerArray(nights);
+        AtomicInteger ids = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(64);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(nights - 3);
+                int length = 1 + random.nextInt(3);
+                start.await();
+                Stay stay = new Stay("H1", TODAY.plusDays(from), TODAY.plusDays(from + length), 1);
+                Claim claim = calendar.reserve("B" + ids.incrementAndGet(), stay);
+                if (claim == null) return null;
+                // Some bookings roll back, as a failed insert would
+                if (random.nextInt(4) == 0) {
+                    calendar.rolledBack(claim);
+                } else {
+                    calendar.committed(claim);
+                    for (int night = from; night < from + length; night++) sold.incrementAndGet(night);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        for (int night = 0; night < nights; night++) {
+            assertThat(sold.get(night)).isBetween(0, capacity);
+            int free = calendar.freeRooms("H1", TODAY.plusDays(night), TODAY.plusDays(night + 1));
+            assertThat(free).isEqualTo(capacity - sold.get(night));
+        }
+    }
+
+    /** A reservation racing the roll must not leave a count in the slot that the entering night takes over. */
+    @Test
+    void rollIsAtomicWithRespectToReserve() throws Exception {
+        int horizon = 10;
+        for (int round = 0; round < 50; round++) {
+            DbConfig db = database(rows());
+            AvailabilityCalendar calendar = calendar(db, horizon, TODAY.minusDays(1), "H1", 1_000_000);
+            Stay yesterday = new Stay("H1", TODAY.minusDays(1), TODAY, 1);
+
+            AtomicBoolean stop = new AtomicBoolean();
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            for (int t = 0; t < 4; t++) {
+                pool.submit(() -> {
+                    while (!stop.get()) calendar.committed(calendar.reserve("B1", yesterday));
+                });
+            }
+            calendar.roll();
+            stop.set(true);
+            pool.shutdown();
+            assertThat(pool.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+            LocalDate entering = TODAY.plusDays(horizon - 1);
+            assertThat(calendar.freeRooms("H1", entering, entering.plusDays(1))).isEqualTo(1_000_000);
+        }
+    }
+
+    /**
+     * Bookings, date changes and cancellations commit and roll back against a real database
+     * while booking events keep reloading the listing. No count may go negative, and once
+     * everything settles the calendar must match bookings_info night by night, with or
+     * without a final reload.
+     */
+    @Test
+    void reloadRacingClaimsNeverLosesOrRepeatsThem() throws Exception {
+        int capacity = 8;
+        int nights = 10;
+        DbConfig db = h2("reload_race");
+        AvailabilityCalendar calendar = calendar(db, 30, TODAY, "H1", capacity);
+        List<BookingEvent> events = List.of(event("H1"));
+
+        Map<String, Stay> held = new ConcurrentHashMap<>();
+        AtomicInteger ids = new AtomicInteger();
+        AtomicBoolean negative = new AtomicBoolean();
+        AtomicBoolean stop = new AtomicBoolean();
+
+        ExecutorService background = Executors.newFixedThreadPool(2);
+        background.submit(() -> {
+            while (!stop.get()) calendar.onBookingEvents(events);
+        });
+        background.submit(() -> {
+            while (!stop.get()) {
+                for (int night = 0; night < nights; night++) {
+                    if (calendar.booked("H1", TODAY.plusDays(night)) < 0) negative.set(true);
+                }
+            }
+        });
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 150; i++) {
+                    int from = random.nextInt(nights - 3);
+                    Stay stay = new Stay("H1", TODAY.plusDays(from), TODAY.plusDays(from + 1 + random.nextInt(3)),
+                            1 + random.nextInt(2));
+                    String existing = held.isEmpty() ? null : held.keySet().iterator().next();
+                    int action = random.nextInt(3);
+                    if (action == 0 || existing == null) {
+                        String id = "B" + ids.incrementAndGet();
+                        book(db, calendar, held, id, calendar.reserve(id, stay), stay, random.nextInt(4) == 0);
+                    } else if (action == 1) {
+                        Stay old = held.remove(existing);
+                        if (old == null) continue;
+                        Stay moved = new Stay("H1", stay.checkIn(), stay.checkOut(), old.rooms());
+                        Claim claim = calendar.move(existing, old, moved);
+                        if (claim == null) {
+                            held.put(existing, old);
+                            continue;
+                        }
+                        boolean fail = random.nextInt(4) == 0;
+                        book(db, calendar, held, existing, claim, fail ? old : moved, fail);
+                    } else {
+                        Stay old = held.remove(existing);
+                        if (old == null) continue;
+                        boolean fail = random.nextInt(4) == 0;
+                        cancel(db, calendar, calendar.release(existing, old), existing, fail);
+                        if (fail) held.put(existing, old);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) future.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+        stop.set(true);
+        background.shutdown();
+        assertThat(background.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(negative).isFalse();
+        for (int night = 0; night < nights; night++) {
+            assertThat(calendar.booked("H1", TODAY.plusDays(night))).isEqualTo(bookedInDb(db, TODAY.plusDays(night)));
+        }
+        calendar.onBookingEvents(events);
+        for (int night = 0; night < nights; night++) {
+            int rooms = bookedInDb(db, TODAY.plusDays(night));
+            assertThat(rooms).isBetween(0, capacity);
+            assertThat(calendar.booked("H1", TODAY.plusDays(night))).isEqualTo(rooms);
+        }
+    }
+
+    // Writes stay as booking id's row, as a new booking or a date change, and commits unless fail
+    private static void book(DbConfig db, AvailabilityCalendar calendar, Map<String, Stay> held,
+                             String id, Claim claim, Stay stay, boolean fail) throws SQLException {
+        if (claim == null) return;
+        try (Connection conn = db.getCustomerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "MERGE INTO bookings_info (Booking_ID, Hotel_ID, Check_In_Date, Check_Out_Date, " +
+                            "Total_Rooms_Booked, Booking_Status) KEY (Booking_ID) VALUES (?, ?, ?, ?, ?, 'CONFIRMED')")) {
+                ps.setString(1, id);
+                ps.setString(2, stay.listingId());
+                ps.setDate(3, java.sql.Date.valueOf(stay.checkIn()));
+                ps.setDate(4, java.sql.Date.valueOf(stay.checkOut()));
+                ps.setInt(5, stay.rooms());
+                ps.executeUpdate();
+            }
+            if (fail) {
+                conn.rollback();
+                calendar.rolledBack(claim);
+            } else {
+                conn.commit();
+                calendar.committed(claim);
+            }
+        }
+        if (!fail || claim.replacing != null) held.put(id, stay);
+    }
+
+    private static void cancel(DbConfig db, AvailabilityCalendar calendar, Claim claim, String id,
+                               boolean fail) throws SQLException {
+        try (Connection conn = db.getCustomerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "UPDATE bookings_info SET Booking_Status = 'CANCELLED' WHERE Booking_ID = ?")) {
+                ps.setString(1, id);
+                ps.executeUpdate();
+            }
+            if (fail) {
+                conn.rollback();
+                calendar.rolledBack(claim);
+            } else {
+                conn.commit();
+                calendar.committed(claim);
+            }
+        }
+    }
+
+    // ===== Fixtures =====
+
+    private static AvailabilityCalendar calendar(DbConfig db, int horizon, LocalDate firstNight,
+                                                 String listingId, int rooms) {
+        AvailabilityCalendar calendar = new AvailabilityCalendar(db, horizon, firstNight);
+        Listing listing = mock(Listing.class);
+        when(listing.getId()).thenReturn(listingId);
+        when(listing.getKind()).thenReturn(Listing.Kind.HOTEL);
+        when(listing.getNumber("Total_Rooms")).thenReturn((double) rooms);
+        calendar.onCatalogChanged(null, null, List.of(listing), List.of());
+        return calendar;
+    }
+
+    /** A database whose every query returns {@code rs}. */
+    private static DbConfig database(ResultSet rs) throws SQLException {
+        DbConfig db = mock(DbConfig.class);
+        DataSource dataSource = mock(DataSource.class);
+        Connection conn = mock(Connection.class);
+        PreparedStatement ps = mock(PreparedStatement.class);
+        when(db.getCustomerDataSource()).thenReturn(dataSource);
+        when(dataSource.getConnection()).thenReturn(conn);
+        when(conn.prepareStatement(anyString())).thenReturn(ps);
+        when(ps.executeQuery()).thenReturn(rs);
+        return db;
+    }
+
+    /** The (Hotel_ID, Rooms) rows of the entering night query. */
+    private static ResultSet rows(Object... idsAndRooms) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        int count = idsAndRooms.length / 2;
+        int[] row = {-1};
+        when(rs.next()).thenAnswer(invocation -> ++row[0] < count);
+        when(rs.getString("Hotel_ID")).thenAnswer(invocation -> (String) idsAndRooms[row[0] * 2]);
+        when(rs.getInt("Rooms")).thenAnswer(invocation -> (Integer) idsAndRooms[row[0] * 2 + 1]);
+        return rs;
+    }
+
+    /** An in-memory H2 database in MySQL mode holding the bookings_info columns the calendar reads. */
+    private static DbConfig h2(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+                "CASE_INSENSITIVE_IDENTIFIERS=TRUE;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1");
+        try (Connection conn = dataSource.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DROP TABLE IF EXISTS bookings_info");
+            st.execute("CREATE TABLE bookings_info (Booking_ID VARCHAR(64) PRIMARY KEY, Hotel_ID VARCHAR(64), " +
+                    "Check_In_Date DATE, Check_Out_Date DATE, Total_Rooms_Booked INT, Booking_Status VARCHAR(32))");
+        }
+        DbConfig db = mock(DbConfig.class);
+        when(db.getCustomerDataSource()).thenReturn(dataSource);
+        return db;
+    }
+
+    private static int bookedInDb(DbConfig db, LocalDate night) throws SQLException {
+        try (Connection conn = db.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "SELECT COALESCE(SUM(Total_Rooms_Booked), 0) FROM bookings_info WHERE Hotel_ID = 'H1' " +
+                             "AND Check_In_Date <= ? AND Check_Out_Date > ? AND " + AvailabilityCalendar.HOLDS_ROOMS)) {
+            ps.setDate(1, java.sql.Date.valueOf(night));
+            ps.setDate(2, java.sql.Date.valueOf(night));
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private static BookingEvent event(String hotelId) {
+        return new BookingEvent(0, BookingEvent.Type.CREATED, null, null, hotelId, null, null, null, 0, null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.hotel.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RouterTest {
+
+    @Test
+    void queryParamsMatchWholeNames() {
+        Map<String, String> params = Router.queryParams(exchange("/hotels?subtype=Villa&type=Resort"));
+
+        assertThat(params).containsEntry("type", "Resort").containsEntry("subtype", "Villa");
+    }
+
+    @Test
+    void queryParamsAreDecodedAndTrimmed() {
+        Map<String, String> params = Router.queryParams(exchange("/profile?email=a%2Bb%40x.com&q=goa+beach+&flag"));
+
+        assertThat(params).containsEntry("email", "a+b@x.com").containsEntry("q", "goa beach").containsEntry("flag", "");
+    }
+
+    @Test
+    void noQueryIsAnEmptyMap() {
+        assertThat(Router.queryParams(exchange("/hotels"))).isEmpty();
+    }
+
+    private static HttpExchange exchange(String uri) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        when(exchange.getRequestURI()).thenReturn(URI.create(uri));
+        return exchange;
+    }
+}
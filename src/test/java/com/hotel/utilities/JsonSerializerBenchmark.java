@@ -0,0 +1,353 @@
+package com.hotel.utilities;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a listing response the way the handlers did before {@link Json}, against
+ * {@link Json#send} and {@link JsonStreamWriter}. Every variant sends the same rows through
+ * an exchange whose body only counts bytes, so only serialization differs.
+ *
+ * <ul>
+ *   <li>legacyListToJson: the StringBuilder toJson and quote-only escape of HotelsHandler
+ *       and PgsHandler, every value as a string</li>
+ *   <li>legacyRecursiveToJson: the recursive toJson and full escape of the finance handlers</li>
+ *   <li>jsonSend: Json.send with the shared buffer pool</li>
+ *   <li>jsonSendFreshBuffer: the same with a new buffer per response, as a ThreadLocal
+ *       amounts to when every request has its own thread</li>
+ *   <li>streamWriter: JsonStreamWriter writing each row as it comes, without a buffer</li>
+ * </ul>
+ *
+ * Run from the project directory; add {@code -prof gc} to the arguments for allocation
+ * per response:
+ * <pre>
+ *   mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.hotel.utilities.JsonSerializerBenchmark
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializerBenchmark {
+
+    @Param({"10", "200"})
+    int rows;
+
+    private List<Map<String, Object>> listings;
+    private SinkExchange exchange;
+
+    @Setup
+    public void setUp() {
+        listings = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Map<String, Object> listing = new LinkedHashMap<>();
+            listing.put("Hotel_ID", "H" + (1000 + i));
+            listing.put("Hotel_Name", "Sea View \"Residency\" " + i);
+            listing.put("City", "Goa");
+            listing.put("State", "Goa");
+            listing.put("Room_Price", 2499.0 + i);
+            listing.put("Rating", 4.3);
+            listing.put("Amenities", List.of("WiFi", "Pool", "Parking", "Breakfast"));
+            listing.put("Description", "A quiet stay near the beach with free breakfast and sea-facing rooms.");
+            listings.add(listing);
+        }
+        exchange = new SinkExchange();
+    }
+
+    @Benchmark
+    public long legacyListToJson() throws IOException {
+        exchange.reset();
+        sendBytes(exchange, LegacyJson.listToJson(listings));
+        return exchange.body.bytes;
+    }
+
+    @Benchmark
+    public long legacyRecursiveToJson() throws IOException {
+        exchange.reset();
+        sendBytes(exchange, LegacyJson.toJson(listings));
+        return exchange.body.bytes;
+    }
+
+    @Benchmark
+    public long jsonSend() throws IOException {
+        exchange.reset();
+        Json.send(exchange, 200, listings);
+        return exchange.body.bytes;
+    }
+
+    @Benchmark
+    public long jsonSendFreshBuffer() throws IOException {
+        exchange.reset();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(4096);
+        Json.WRITER.writeValue(buffer, listings);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, buffer.size());
+        try (OutputStream os = exchange.getResponseBody()) {
+            buffer.writeTo(os);
+        }
+        return exchange.body.bytes;
+    }
+
+    @Benchmark
+    public long streamWriter() throws IOException {
+        exchange.reset();
+        try (JsonGenerator gen = JsonStreamWriter.open(exchange)) {
+            gen.writeStartArray();
+            for (Map<String, Object> listing : listings) {
+                gen.writeStartObject();
+                for (Map.Entry<String, Object> field : listing.entrySet()) {
+                    if (field.getValue() instanceof List<?> list) {
+                        gen.writeFieldName(field.getKey());
+                        gen.writeStartArray();
+                        for (Object item : list) JsonStreamWriter.writeValue(gen, item);
+                        gen.writeEndArray();
+                    } else {
+                        JsonStreamWriter.writeField(gen, field.getKey(), field.getValue());
+                    }
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+        return exchange.body.bytes;
+    }
+
+    // The legacy handlers' sendJson/sendResponse
+    private static void sendBytes(HttpExchange exchange, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(JsonSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+
+    /** The serializers the handlers used before Json, as they were. */
+    static final class LegacyJson {
+
+        private LegacyJson() {
+        }
+
+        // HotelsHandler / PgsHandler
+        static String listToJson(List<Map<String, Object>> list) {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < list.size(); i++) {
+                Map<String, Object> m = list.get(i);
+                sb.append("{");
+                int j = 0;
+                for (var e : m.entrySet()) {
+                    sb.append("\"").append(quoteOnly(e.getKey())).append("\":");
+                    Object val = e.getValue();
+                    if (val instanceof List) {
+                        sb.append("[");
+                        List<?> l = (List<?>) val;
+                        for (int k = 0; k < l.size(); k++) {
+                            sb.append("\"").append(quoteOnly(String.valueOf(l.get(k)))).append("\"");
+                            if (k < l.size() - 1) sb.append(",");
+                        }
+                        sb.append("]");
+                    } else {
+                        sb.append("\"").append(quoteOnly(String.valueOf(val))).append("\"");
+                    }
+                    if (j++ < m.size() - 1) sb.append(",");
+                }
+                sb.append("}");
+                if (i < list.size() - 1) sb.append(",");
+            }
+            sb.append("]");
+            return sb.toString();
+        }
+
+        private static String quoteOnly(String s) {
+            if (s == null) return "";
+            return s.replace("\"", "\\\"").replace("\n", " ").replace("\r", " ");
+        }
+
+        // GetPartnerFinanceHandler / GetPartnerTransactionsHandler
+        static String toJson(Object obj) {
+            if (obj == null) return "null";
+            if (obj instanceof Map) {
+                StringBuilder sb = new StringBuilder("{");
+                Map<?, ?> map = (Map<?, ?>) obj;
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    sb.append("\"").append(escape(String.valueOf(e.getKey()))).append("\":");
+                    sb.append(toJson(e.getValue())).append(",");
+                }
+                if (sb.charAt(sb.length() - 1) == ',') sb.setLength(sb.length() - 1);
+                sb.append("}");
+                return sb.toString();
+            } else if (obj instanceof List) {
+                StringBuilder sb = new StringBuilder("[");
+                List<?> list = (List<?>) obj;
+                for (Object o : list) {
+                    sb.append(toJson(o)).append(",");
+                }
+                if (sb.charAt(sb.length() - 1) == ',') sb.setLength(sb.length() - 1);
+                sb.append("]");
+                return sb.toString();
+            } else if (obj instanceof Number || obj instanceof Boolean) {
+                return String.valueOf(obj);
+            } else {
+                return "\"" + escape(String.valueOf(obj)) + "\"";
+            }
+        }
+
+        private static String escape(String s) {
+            if (s == null) return "";
+            return s.replace("\\", "\\\\")
+                    .replace("\"", "\\\"")
+                    .replace("\n", "\\n")
+                    .replace("\r", "\\r")
+                    .replace("\t", "\\t");
+        }
+    }
+
+    /** A response body that counts bytes and keeps none; closing it does nothing. */
+    static final class CountingStream extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    /** Just enough of an exchange for a handler to send one response. */
+    static final class SinkExchange extends HttpExchange {
+        final CountingStream body = new CountingStream();
+        private final Headers responseHeaders = new Headers();
+        private int responseCode = -1;
+
+        void reset() {
+            body.bytes = 0;
+            responseCode = -1;
+        }
+
+        @Override
+        public Headers getRequestHeaders() {
+            return new Headers();
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI.create("/hotels");
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "GET";
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return InputStream.nullInputStream();
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return body;
+        }
+
+        @Override
+        public void sendResponseHeaders(int rCode, long responseLength) {
+            responseCode = rCode;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return responseCode;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name, Object value) {
+        }
+
+        @Override
+        public void setStreams(InputStream i, OutputStream o) {
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.hotel.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsEveryPartIncludingNulls() {
+        String cursor = KeysetCursor.encode("CHECK_IN", "desc", null, "BKG0000000000001");
+
+        assertThat(KeysetCursor.decode(cursor, 4)).containsExactly("CHECK_IN", "desc", "", "BKG0000000000001");
+    }
+
+    @Test
+    void cursorIsUrlSafe() {
+        String cursor = KeysetCursor.encode("2024-01-01T10:15:30.123Z", "??>>~~");
+
+        assertThat(cursor).matches("[A-Za-z0-9_-]+");
+    }
+
+    @Test
+    void noCursorDecodesToNull() {
+        assertThat(KeysetCursor.decode(null, 2)).isNull();
+        assertThat(KeysetCursor.decode("  ", 2)).isNull();
+    }
+
+    @Test
+    void rejectsCursorsThisServerDidNotIssue() {
+        assertThatThrownBy(() -> KeysetCursor.decode("not base64!", 2))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode(KeysetCursor.encode("a", "b", "c"), 2))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        String oneLine = Base64.getUrlEncoder().withoutPadding().encodeToString("only".getBytes());
+        assertThatThrownBy(() -> KeysetCursor.decode(oneLine, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void limitIsClampedAndValidated() {
+        assertThat(KeysetCursor.limit(null, 50, 500)).isEqualTo(50);
+        assertThat(KeysetCursor.limit("0", 50, 500)).isEqualTo(1);
+        assertThat(KeysetCursor.limit("10000", 50, 500)).isEqualTo(500);
+        assertThat(KeysetCursor.limit(" 20 ", 50, 500)).isEqualTo(20);
+        assertThatThrownBy(() -> KeysetCursor.limit("ten", 50, 500))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
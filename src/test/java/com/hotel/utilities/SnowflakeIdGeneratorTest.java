@@ -0,0 +1,75 @@
+package com.hotel.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    @Test
+    void idsFromOneNodeStrictlyIncrease() {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(1);
+        long previous = ids.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = ids.nextId();
+            assertThat(next).isGreaterThan(previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    void nodesNeverCollide() {
+        SnowflakeIdGenerator a = new SnowflakeIdGenerator(1);
+        SnowflakeIdGenerator b = new SnowflakeIdGenerator(2);
+        Set<Long> seen = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            assertThat(seen.add(a.nextId())).isTrue();
+            assertThat(seen.add(b.nextId())).isTrue();
+        }
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIds() throws Exception {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(0);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(pool.submit(() -> {
+                long[] mine = new long[20_000];
+                for (int i = 0; i < mine.length; i++) mine[i] = ids.nextId();
+                return mine;
+            }));
+        }
+        Set<Long> seen = new HashSet<>();
+        for (Future<long[]> future : futures) {
+            for (long id : future.get(30, TimeUnit.SECONDS)) assertThat(seen.add(id)).isTrue();
+        }
+        pool.shutdown();
+        assertThat(seen).hasSize(16 * 20_000);
+    }
+
+    @Test
+    void stringIdsHaveFixedWidth() {
+        SnowflakeIdGenerator ids = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE);
+        String id = ids.next("BKG");
+
+        assertThat(id).hasSize(16).startsWith("BKG").matches("BKG[0-9A-Z]{13}");
+    }
+
+    @Test
+    void rejectsNodesOutOfRange() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1)).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
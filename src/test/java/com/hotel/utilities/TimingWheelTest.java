@@ -0,0 +1,72 @@
+package com.hotel.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final long TICK = 1000;
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    void firesOnceTheDeadlineHasPassedAndNotBefore() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("a", START + 2_500);
+
+        assertThat(wheel.advance(START + 2_000)).isEmpty();
+        assertThat(wheel.advance(START + 3_000)).containsExactly("a");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void pastDeadlineFiresOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        wheel.schedule("late", START - 60_000);
+
+        assertThat(wheel.advance(START + TICK)).containsExactly("late");
+    }
+
+    @Test
+    void cascadesTimersFromEveryLevel() {
+        TimingWheel<Long> wheel = new TimingWheel<>(TICK, START);
+        // One timer per level: 1 tick, 64+ ticks, 4096+ ticks and 262144+ ticks ahead
+        long[] delays = {5, 100, 5_000, 300_000};
+        for (long delay : delays) wheel.schedule(delay, START + delay * TICK);
+        assertThat(wheel.size()).isEqualTo(delays.length);
+
+        for (long delay : delays) {
+            assertThat(wheel.advance(START + (delay - 1) * TICK)).isEmpty();
+            assertThat(wheel.advance(START + delay * TICK)).containsExactly(delay);
+        }
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void deadlineBeyondTheWheelIsPlacedAgainAndFiresOnTime() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, START);
+        long beyond = START + TimeUnit.DAYS.toMillis(250);      // the wheel spans about 194 days
+        wheel.schedule("far", beyond);
+
+        assertThat(wheel.advance(beyond - TICK)).isEmpty();
+        assertThat(wheel.advance(beyond)).containsExactly("far");
+    }
+
+    @Test
+    void manyTimersAllFireExactlyOnce() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, START);
+        int timers = 10_000;
+        for (int i = 0; i < timers; i++) wheel.schedule(i, START + (i % 7_000 + 1) * TICK);
+
+        List<Integer> fired = new ArrayList<>();
+        for (long now = START; now <= START + 7_000 * TICK; now += 37 * TICK) fired.addAll(wheel.advance(now));
+        fired.addAll(wheel.advance(START + 7_001 * TICK));
+
+        assertThat(fired).hasSize(timers).doesNotHaveDuplicates();
+        assertThat(wheel.size()).isZero();
+    }
+}
@@ -0,0 +1,146 @@
+package com.hotel.wallet;
+
+import com.hotel.utilities.DbConfig;
+import com.hotel.utilities.DbConfigLoader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Hammers one wallet from many threads to measure debit throughput under contention and
+ * to check that it never overdraws. Needs a real MySQL database, so it is not a test.
+ *
+ * Each iteration funds a scratch wallet with half of what the threads try to take, in ₹1
+ * debits (batch size per thread). It runs with the striped in-process lock (how
+ * BookingHandler debits) and with the row lock alone. The iteration fails if the money
+ * taken does not equal the money that was there, or if the balance goes negative. The
+ * scratch wallet is deleted afterwards. No wallet_transactions rows are written.
+ * <pre>
+ *   mvn -B test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ *   java -Dconfig.path=/path/db.properties -cp target/test-classes:target/classes:$(cat target/cp.txt) \
+ *       com.hotel.wallet.WalletContentionBenchmark [-t 16] [-bs 200]
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, batchSize = 50)
+@Measurement(iterations = 5, batchSize = 200)
+@Threads(16)
+@Fork(1)
+public class WalletContentionBenchmark {
+
+    private static final long DEBIT_PAISE = 100;
+
+    @Param({"true", "false"})
+    boolean striped;
+
+    private DbConfig dbConfig;
+    private WalletService wallets;
+    private String userId;
+    private String walletId;
+    private long fundedPaise;
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void connect() throws Exception {
+        dbConfig = DbConfigLoader.load(System.getProperty("config.path"));
+        wallets = new WalletService(256);
+    }
+
+    @Setup(Level.Iteration)
+    public void fund(BenchmarkParams benchmark, IterationParams iteration) throws SQLException {
+        userId = "bench-" + UUID.randomUUID();
+        walletId = UUID.randomUUID().toString();
+        fundedPaise = benchmark.getThreads() * iteration.getBatchSize() * DEBIT_PAISE / 2;
+        taken.set(0);
+        rejected.set(0);
+        errors.set(0);
+
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement(
+                     "INSERT INTO wallets (wallet_id, user_id, balance) VALUES (?, ?, ?)")) {
+            ps.setString(1, walletId);
+            ps.setString(2, userId);
+            ps.setBigDecimal(3, BigDecimal.valueOf(fundedPaise, 2));
+            ps.executeUpdate();
+        }
+    }
+
+    @Benchmark
+    public void debit() {
+        Lock lock = striped ? wallets.lockFor(userId) : null;
+        if (lock != null) lock.lock();
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+            conn.setAutoCommit(false);
+            WalletService.Debit debit = wallets.debitUpTo(conn, userId, DEBIT_PAISE);
+            conn.commit();
+            if (debit == null) rejected.incrementAndGet();
+            else taken.addAndGet(debit.amountPaise());
+        } catch (SQLException e) {
+            errors.incrementAndGet();
+        } finally {
+            if (lock != null) lock.unlock();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void check() throws SQLException {
+        long balance;
+        try (Connection conn = dbConfig.getCustomerDataSource().getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT balance FROM wallets WHERE wallet_id = ?")) {
+                ps.setString(1, walletId);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    balance = rs.getBigDecimal(1).movePointRight(2).longValue();
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM wallets WHERE wallet_id = ?")) {
+                ps.setString(1, walletId);
+                ps.executeUpdate();
+            }
+        }
+
+        System.out.printf("  funded %d, taken %d, left %d paise; %d rejected, %d errors%n",
+                fundedPaise, taken.get(), balance, rejected.get(), errors.get());
+        if (balance < 0 || taken.get() + balance != fundedPaise) {
+            throw new IllegalStateException("Wallet overdrawn or money lost, striped=" + striped);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(WalletContentionBenchmark.class.getSimpleName())
+                .jvmArgsAppend("-Dconfig.path=" + System.getProperty("config.path"))
+                .build()).run();
+    }
+}